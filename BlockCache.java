@@ -0,0 +1,137 @@
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class BlockCache
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class keeps a bounded number of decoded EntryBlocks of
+ ||                  lhl.idx in memory while the index is being built, keyed by page. Changes are
+ ||                  only marked dirty, so repeated inserts into the same bucket cost no I/O. A
+ ||                  dirty block is written back as one whole block when it is evicted(least
+ ||                  recently used first) or when the cache is flushed.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the opened lhl.idx file, its block layout and the number of blocks to keep.
+ ||
+ ||  Class Methods:  public EntryBlock get()
+ ||                  public void put()
+ ||                  public void markDirty()
+ ||                  public void flush()
+ ||                  public long getHits()
+ ||                  public long getMisses()
+ ||                  public long getFlushes()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class BlockCache {
+
+	private IndexFile file; //The lhl.idx file the blocks belong to.
+	private BlockLayout layout; //The size and place of the blocks in the file.
+	private int capacity; //The most blocks kept in memory.
+	private LinkedHashMap<Integer, EntryBlock> blocks; //The cached blocks by page, in least recently used order.
+	private HashSet<Integer> dirty; //The pages changed since they were read or last written.
+	private long hits; //Requests answered from memory.
+	private long misses; //Requests that had to read the block.
+	private long flushes; //Blocks written back to the file.
+
+	public BlockCache(IndexFile file, BlockLayout layout, int capacity) {
+		this.file = file;
+		this.layout = layout;
+		this.capacity = Math.max(1, capacity);
+		this.dirty = new HashSet<Integer>();
+		//An access ordered map evicts the least recently used block once it is over capacity.
+		this.blocks = new LinkedHashMap<Integer, EntryBlock>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, EntryBlock> eldest) {
+				if (size() <= BlockCache.this.capacity) {
+					return false;
+				}
+				writeBack(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method get(page)
+	|
+	|  Purpose:  Returns the block stored at the page, reading it on a miss. The caller may
+	|            change the returned block but must call markDirty() afterwards.
+	|
+	|  Pre-condition:  The page must hold a block.
+	|
+	|  Post-condition: The block is the most recently used.
+	|
+	|  Parameters: page - the page of the block.
+	|
+	|  Returns: the cached block.
+	*-------------------------------------------------------------------*/
+	public EntryBlock get(int page) {
+		EntryBlock block = blocks.get(page);
+		if (block != null) {
+			hits++;
+			return block;
+		}
+		misses++;
+		block = new EntryBlock(layout);
+		block.readBlock(file, page);
+		blocks.put(page, block);
+		return block;
+	}
+
+	//Installs a block for the page without reading it, for blocks that are rewritten whole.
+	public void put(int page, EntryBlock block) {
+		dirty.add(page);
+		blocks.put(page, block);
+	}
+
+	public void markDirty(int page) {
+		dirty.add(page);
+	}
+
+	private void writeBack(int page, EntryBlock block) {
+		if (dirty.remove(page)) {
+			block.writeBlock(file, page);
+			flushes++;
+		}
+	}
+
+	//Writes every dirty block back. The blocks stay cached and clean.
+	public void flush() {
+		for (Map.Entry<Integer, EntryBlock> each : blocks.entrySet()) {
+			writeBack(each.getKey(), each.getValue());
+		}
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getFlushes() {
+		return flushes;
+	}
+
+	public String toString() {
+		return "The block cache(" + capacity + " blocks) had " + hits + " hits and " + misses + " misses and flushed "
+				+ flushes + " blocks.";
+	}
+}
@@ -0,0 +1,144 @@
+import java.nio.ByteBuffer;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class BlockLayout
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class describes where the blocks of one lhl.idx file are:
+ ||                  how many entries a block holds, how many bytes it takes and where the first
+ ||                  one starts. Every block is laid out the same way whatever its size, the
+ ||                  entries(record number and EID) followed by the count and the overflow link.
+ ||                  The default is the original 20 entry, 168 byte block right after the 512 byte
+ ||                  header. An aligned layout rounds the block up to a power of two and fills the
+ ||                  extra room with entries, e.g. 511 entries in a 4 KiB block. Whenever the block
+ ||                  is a power of two larger than the header, the blocks start at the block size
+ ||                  instead of after the header, so every block sits on its own pages and a probe
+ ||                  of a block never reads a 4 KiB page it does not need.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  ENTRYSIZE - the bytes of one entry.
+ ||                  HEADERSIZE - the reserved header at the front of lhl.idx (see IndexBin).
+ ||                  PAGESIZE - the storage page size used to count the pages a block touches.
+ ||                  MAXBUCKET - the most entries in one block.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the number of entries per block and whether the block should be
+ ||                  rounded up to a power of two.
+ ||
+ ||  Class Methods:  public int getBucketSize()
+ ||                  public int getBlockSize()
+ ||                  public long getDataStart()
+ ||                  public long blockStart()
+ ||                  public long countStart()
+ ||                  public long nextStart()
+ ||                  public long firstPage()
+ ||                  public long lastPage()
+ ||                  public void encode()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class BlockLayout {
+
+	private static int ENTRYSIZE = 8; //A record number and an EID.
+	private static int HEADERSIZE = 512; //The reserved header at the front of lhl.idx.
+	private static int PAGESIZE = 4096; //The page size of the storage the index is read from.
+	public static int MAXBUCKET = 1 << 17; //1 MiB blocks, far past anything a probe should read.
+
+	private int bucketSize; //The entries held by one block.
+	private int blockSize; //The bytes of one block: the entries, the count and the overflow link.
+	private long dataStart; //The byte position of the block at page 0.
+
+	public BlockLayout(int bucketSize, boolean aligned) {
+		this.bucketSize = Math.max(1, Math.min(MAXBUCKET, bucketSize));
+		this.blockSize = this.bucketSize * ENTRYSIZE + 8;
+		if (aligned) {
+			this.blockSize = Integer.highestOneBit(blockSize - 1) << 1;
+			this.bucketSize = (blockSize - 8) / ENTRYSIZE;
+		}
+		this.dataStart = HEADERSIZE;
+		if (Integer.bitCount(blockSize) == 1 && blockSize > HEADERSIZE) {
+			this.dataStart = blockSize;
+		}
+	}
+
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public long getDataStart() {
+		return dataStart;
+	}
+
+	//Byte position of the first entry of the block at the passed page.
+	public long blockStart(int page) {
+		return dataStart + ((long) page * blockSize);
+	}
+
+	//Byte position of the count int that follows the entries of a block.
+	public long countStart(int page) {
+		return blockStart(page) + (bucketSize * ENTRYSIZE);
+	}
+
+	//Byte position of the overflow link that follows the count int.
+	public long nextStart(int page) {
+		return countStart(page) + 4;
+	}
+
+	//The first and last PAGESIZE page of the file the block at the passed page lies on.
+	public long firstPage(int page) {
+		return blockStart(page) / PAGESIZE;
+	}
+
+	public long lastPage(int page) {
+		return (blockStart(page) + blockSize - 1) / PAGESIZE;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method encode (buffer, keys, eids, from, count, next)
+	|
+	|  Purpose:  Appends one complete block to the buffer in the same layout writeBlock()
+	|            produces: count entries taken from keys/eids starting at from, zero filled
+	|            slots, the count and the overflow link. Used to write many blocks in one
+	|            sequential write.
+	|
+	|  Pre-condition:  count is at most the bucket size and the buffer has room for one block.
+	|
+	|  Post-condition: The buffer position has moved one block further.
+	|
+	|  Parameters:
+	|      buffer - the buffer receiving the block.
+	|      keys, eids - the record numbers and EIDs of the entries.
+	|      from - the first array index of this block's entries.
+	|      count - the number of entries in this block.
+	|      next - the overflow link of the block.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void encode(ByteBuffer buffer, int[] keys, int[] eids, int from, int count, int next) {
+		for (int i = from; i < from + count; i++) {
+			buffer.putInt(keys[i]);
+			buffer.putInt(eids[i]);
+		}
+		for (int i = count; i < bucketSize; i++) {
+			buffer.putLong(0);
+		}
+		buffer.putInt(count);
+		buffer.putInt(next);
+	}
+
+	public String toString() {
+		return bucketSize + " entries in " + blockSize + " byte blocks starting at byte " + dataStart;
+	}
+}
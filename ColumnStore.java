@@ -0,0 +1,372 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class ColumnStore
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a columnar copy of the .bin: one file per field
+ ||                  (lhl.idx.col.eid, lhl.idx.col.capAc, ...) holding that field of every record
+ ||                  in record order, so row i of every column is record i of the .bin. A scan that
+ ||                  only needs a few fields reads only their files, a total of capAc by state reads
+ ||                  10 bytes a record instead of the whole record with its padded name. Deleted
+ ||                  records keep their row(with ~EID in the eid column) so the columns stay aligned
+ ||                  with the record numbers, and a scan of a store holding any reads the eid column
+ ||                  to skip them. Every column records the length and fingerprint of the .bin it
+ ||                  was written from, so a stale one is never used.
+ ||
+ ||                  A column file is a header(MAGIC, the length and fingerprint of the .bin, the
+ ||                  width of one value, the rows and the deleted rows) followed by the values: an
+ ||                  int for the EID, a double for each number and the bytes of the field in the
+ ||                  .bin for each String.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  Sidecar.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  COLUMNS - the names of the columns, in the order of the fields in a record.
+ ||                  MAGIC - the first int of a column file.
+ ||                  HEADERSIZE - the bytes in front of the values of a column file.
+ ||                  BATCHROWS - the rows of each column a scan reads at once.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  None public. create() starts writing a store and open() opens a saved one.
+ ||
+ ||  Class Methods:  public static ColumnStore create()
+ ||                  public void append()
+ ||                  public void finish()
+ ||                  public static ColumnStore open()
+ ||                  public boolean describes()
+ ||                  public static int columnOf()
+ ||                  public void scan()
+ ||                  public long getRows()
+ ||                  public long getBytesRead()
+ ||                  public long getBytes()
+ ||                  public boolean write()
+ ||                  public boolean stale()
+ ||                  public ColumnStore writable()
+ ||                  public static void delete()
+ ||                  public void close()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class ColumnStore implements Sidecar<ColumnStore> {
+
+	public static String[] COLUMNS = { "eid", "name", "cod", "state", "lat", "lon", "ghi", "capAc", "capDc" }; //The order of the fields in a record.
+	private static int MAGIC = 0x434F4C53; //"COLS", marks a column file.
+	private static int HEADERSIZE = 40; //MAGIC, length, fingerprint, width, rows and deleted rows.
+	private static int BATCHROWS = 8192; //64 KiB of a double column per read.
+
+	private String prefix; //The path the column names are appended to.
+	private int[] widths; //The bytes of one value of each column.
+	private int[] offsets; //Where each field starts in a record of the .bin.
+	private FileOutputStream[] files; //The columns being written, null once finished or when opened.
+	private BufferedOutputStream[] outs;
+	private FileChannel[] channels; //The columns of an opened store, read by position.
+	private long rows; //The rows of every column, one per record of the .bin.
+	private long deleted; //The rows of deleted records.
+	private long binLength; //The length and fingerprint of the .bin the store was written from.
+	private long binFingerprint;
+	private LongAdder scans = new LongAdder(); //Calls of scan().
+	private LongAdder bytesRead = new LongAdder(); //The bytes of the columns those calls read.
+
+	//The field lengths are taken in the order they are stored in a record, like RecordView.
+	private ColumnStore(String prefix, int nameLength, int codLength, int stateLength) {
+		this.prefix = prefix;
+		this.widths = new int[] { 4, nameLength, codLength, stateLength, 8, 8, 8, 8, 8 };
+		this.offsets = new int[widths.length];
+		for (int c = 1; c < widths.length; c++) {
+			offsets[c] = offsets[c - 1] + widths[c - 1];
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method create(prefix, nameLength, codLength, stateLength)
+	|
+	|  Purpose:  Starts writing a store, replacing the column files at prefix. Each file
+	|            gets room for its header, which finish() fills in once the rows are known.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: Every column file is open for append().
+	|
+	|  Parameters: prefix - the path the column names are appended to, after a dot.
+	|              nameLength, codLength, stateLength - the field lengths in the .bin, in the
+	|                       order they are stored in a record.
+	|
+	|  Returns: the store being written.
+	*-------------------------------------------------------------------*/
+	public static ColumnStore create(String prefix, int nameLength, int codLength, int stateLength) {
+		ColumnStore store = new ColumnStore(prefix, nameLength, codLength, stateLength);
+		store.files = new FileOutputStream[COLUMNS.length];
+		store.outs = new BufferedOutputStream[COLUMNS.length];
+		try {
+			for (int c = 0; c < COLUMNS.length; c++) {
+				store.files[c] = new FileOutputStream(prefix + "." + COLUMNS[c]);
+				store.outs[c] = new BufferedOutputStream(store.files[c], 1 << 16);
+				store.outs[c].write(new byte[HEADERSIZE]);
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't create the columns " + prefix + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		return store;
+	}
+
+	//Adds the record as the next row of every column, the record's fields are copied byte for byte.
+	public void append(byte[] record) {
+		try {
+			for (int c = 0; c < COLUMNS.length; c++) {
+				outs[c].write(record, offsets[c], widths[c]);
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the columns " + prefix + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		//A deleted record is stored with ~EID, which is negative.
+		if (record[0] < 0) {
+			deleted++;
+		}
+		rows++;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method finish(length, fingerprint)
+	|
+	|  Purpose:  Writes the header of every column in front of its values and closes the
+	|            files.
+	|
+	|  Pre-condition:  Every record of the .bin was appended.
+	|
+	|  Post-condition: The store can be opened with open().
+	|
+	|  Parameters: length - the length of the .bin the rows come from.
+	|              fingerprint - its fingerprint(see IndexBin.fingerprintBin()).
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	public void finish(long length, long fingerprint) {
+		try {
+			for (int c = 0; c < COLUMNS.length; c++) {
+				outs[c].flush();
+				ByteBuffer header = ByteBuffer.allocate(HEADERSIZE);
+				header.putInt(MAGIC).putLong(length).putLong(fingerprint).putInt(widths[c]).putLong(rows).putLong(deleted);
+				header.flip();
+				files[c].getChannel().write(header, 0);
+				outs[c].close();
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the columns " + prefix + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		files = null;
+		outs = null;
+		binLength = length;
+		binFingerprint = fingerprint;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method open(prefix, nameLength, codLength, stateLength)
+	|
+	|  Purpose:  Opens the column files written by create(). Every column must be there,
+	|            have the width of its field and agree with the others on the rows and the .bin
+	|            they were written from, and be exactly as long as its header says.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: prefix - the path the column names are appended to, after a dot.
+	|              nameLength, codLength, stateLength - the field lengths in the .bin, in the
+	|                       order they are stored in a record.
+	|
+	|  Returns: the store, or null when a column is missing or does not match.
+	*-------------------------------------------------------------------*/
+	public static ColumnStore open(String prefix, int nameLength, int codLength, int stateLength) {
+		ColumnStore store = new ColumnStore(prefix, nameLength, codLength, stateLength);
+		store.channels = new FileChannel[COLUMNS.length];
+		try {
+			for (int c = 0; c < COLUMNS.length; c++) {
+				if (!new File(prefix + "." + COLUMNS[c]).isFile()) {
+					store.close();
+					return null;
+				}
+				RandomAccessFile raf = new RandomAccessFile(prefix + "." + COLUMNS[c], "r");
+				store.channels[c] = raf.getChannel();
+				if (raf.length() < HEADERSIZE || raf.readInt() != MAGIC) {
+					store.close();
+					return null;
+				}
+				long length = raf.readLong();
+				long fingerprint = raf.readLong();
+				int width = raf.readInt();
+				long rows = raf.readLong();
+				long deleted = raf.readLong();
+				if (c == 0) {
+					store.binLength = length;
+					store.binFingerprint = fingerprint;
+					store.rows = rows;
+					store.deleted = deleted;
+				}
+				if (width != store.widths[c] || length != store.binLength || fingerprint != store.binFingerprint
+						|| rows != store.rows || deleted != store.deleted || raf.length() != HEADERSIZE + rows * width) {
+					store.close();
+					return null;
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the columns " + prefix + ", they are ignored.");
+			store.close();
+			return null;
+		}
+		return store;
+	}
+
+	//True when the columns were written from a .bin of this length and fingerprint.
+	public boolean describes(long length, long fingerprint) {
+		return binLength == length && binFingerprint == fingerprint;
+	}
+
+	//The position of the named column in COLUMNS, ignoring case, or -1 when there is none.
+	public static int columnOf(String name) {
+		for (int c = 0; c < COLUMNS.length; c++) {
+			if (COLUMNS[c].equalsIgnoreCase(name)) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method scan(columns, action)
+	|
+	|  Purpose:  Hands every record that is not deleted to action through one ColumnView, in
+	|            record order, reading only the named columns. BATCHROWS rows of each named
+	|            column are read at a time and the view moves over those batches. When the
+	|            store holds deleted rows the eid column is read as well to skip them. An
+	|            unknown name is reported and ignored.
+	|
+	|  Pre-condition:  The store was opened with open().
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: columns - the names of the columns wanted(see COLUMNS).
+	|              action - called once per record. The view is only valid during the call, and
+	|                       only the getters of the named columns may be used.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	public void scan(String[] columns, Consumer<ColumnView> action) {
+		scans.increment();
+		ByteBuffer[] batches = new ByteBuffer[COLUMNS.length];
+		for (String name : columns) {
+			int c = columnOf(name);
+			if (c < 0) {
+				System.out.println("Ignoring unknown column " + name);
+			} else if (batches[c] == null) {
+				batches[c] = ByteBuffer.allocate(BATCHROWS * widths[c]);
+			}
+		}
+		if (deleted > 0 && batches[0] == null) {
+			batches[0] = ByteBuffer.allocate(BATCHROWS * widths[0]);
+		}
+		ColumnView view = new ColumnView(widths);
+		for (long first = 0; first < rows; first = first + BATCHROWS) {
+			int count = (int) Math.min(BATCHROWS, rows - first);
+			for (int c = 0; c < COLUMNS.length; c++) {
+				if (batches[c] == null) {
+					continue;
+				}
+				batches[c].clear();
+				batches[c].limit(count * widths[c]);
+				try {
+					IndexFile.readAt(channels[c], HEADERSIZE + first * widths[c], batches[c]);
+				} catch (IOException e) {
+					System.out.println("I/O ERROR: Couldn't read the column " + prefix + "." + COLUMNS[c] + ".");
+					System.exit(-1);
+				}
+				bytesRead.add(count * widths[c]);
+			}
+			for (int i = 0; i < count; i++) {
+				view.wrap(batches, i);
+				if (deleted == 0 || view.getEid() >= 0) {
+					action.accept(view);
+				}
+			}
+		}
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	//The bytes of every column file together.
+	public long getBytes() {
+		long bytes = 0;
+		for (int width : widths) {
+			bytes = bytes + HEADERSIZE + rows * width;
+		}
+		return bytes;
+	}
+
+	//Columns are only written by a pass over the .bin, so changed ones are written again.
+	public boolean write(String path, long length, long fingerprint) {
+		return false;
+	}
+
+	//Rows cannot be changed in the column files, so they are closed and deleted. Scans read the .bin until they are written again.
+	public boolean stale(String path) {
+		close();
+		delete(path);
+		return false;
+	}
+
+	//A store is never changed, a writable index drops it instead(see stale()).
+	public ColumnStore writable() {
+		return this;
+	}
+
+	//Deletes every column file at prefix, so stale columns are never paired with the index.
+	public static void delete(String prefix) {
+		for (String column : COLUMNS) {
+			new File(prefix + "." + column).delete();
+		}
+	}
+
+	//Closes the column files of an opened store.
+	public void close() {
+		if (channels == null) {
+			return;
+		}
+		for (FileChannel channel : channels) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					System.out.println("I/O ERROR: Couldn't close the columns " + prefix + ".");
+				}
+			}
+		}
+	}
+
+	public String toString() {
+		return "Column store: " + COLUMNS.length + " columns over " + rows + " rows, " + scans.sum() + " scans read "
+				+ bytesRead.sum() + " bytes.";
+	}
+}
@@ -0,0 +1,119 @@
+import java.nio.ByteBuffer;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class ColumnView
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a window onto one row of a scan, like RecordView
+ ||                  is onto one record. A ColumnStore scan points it at a row of the batches of the
+ ||                  columns it read, and each getter reads its value at the row's offset in its
+ ||                  column; a getter of a column the scan did not read throws an
+ ||                  IllegalStateException. A scan without columns points it at a RecordView instead, and then
+ ||                  every getter reads the record.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the width of one value of each column, in the order of
+ ||                  ColumnStore.COLUMNS.
+ ||
+ ||  Class Methods:  public ColumnView wrap()
+ ||                  public ColumnView wrap()
+ ||                  private ByteBuffer column()
+ ||                  public int getEid()
+ ||                  public String getName()
+ ||                  public String getCod()
+ ||                  public String getState()
+ ||                  public double getLat()
+ ||                  public double getLon()
+ ||                  public double getGhi()
+ ||                  public double getCapAc()
+ ||                  public double getCapDc()
+ ||                  private String field()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class ColumnView {
+
+	private int[] widths; //The bytes of one value of each column.
+	private ByteBuffer[] columns; //The batch of each column read by the scan, null for the others.
+	private int row; //The row of the batches the view is on.
+	private RecordView record; //The record the view reads instead, null when it reads columns.
+
+	public ColumnView(int[] widths) {
+		this.widths = widths;
+	}
+
+	//Points the view at a row of the batches, the buffers' positions and limits are never used or changed.
+	public ColumnView wrap(ByteBuffer[] columns, int row) {
+		this.columns = columns;
+		this.row = row;
+		this.record = null;
+		return this;
+	}
+
+	//Points the view at a whole record, for a scan of the .bin.
+	public ColumnView wrap(RecordView record) {
+		this.record = record;
+		return this;
+	}
+
+	//The batch holding column c, a column the scan was not asked for cannot be read.
+	private ByteBuffer column(int c) {
+		if (columns[c] == null) {
+			throw new IllegalStateException("The column " + ColumnStore.COLUMNS[c] + " was not read by this scan. Name it in the columns of the scan.");
+		}
+		return columns[c];
+	}
+
+	public int getEid() {
+		return record != null ? record.getEid() : column(0).getInt(row * 4);
+	}
+
+	public String getName() {
+		return record != null ? record.getName() : field(1);
+	}
+
+	public String getCod() {
+		return record != null ? record.getCod() : field(2);
+	}
+
+	public String getState() {
+		return record != null ? record.getState() : field(3);
+	}
+
+	public double getLat() {
+		return record != null ? record.getLat() : column(4).getDouble(row * 8);
+	}
+
+	public double getLon() {
+		return record != null ? record.getLon() : column(5).getDouble(row * 8);
+	}
+
+	public double getGhi() {
+		return record != null ? record.getGhi() : column(6).getDouble(row * 8);
+	}
+
+	public double getCapAc() {
+		return record != null ? record.getCapAc() : column(7).getDouble(row * 8);
+	}
+
+	public double getCapDc() {
+		return record != null ? record.getCapDc() : column(8).getDouble(row * 8);
+	}
+
+	//Builds the String of one String column the same way RecordView does.
+	private String field(int c) {
+		byte[] bytes = new byte[widths[c]];
+		column(c).get(row * widths[c], bytes);
+		return new String(bytes);
+	}
+}
@@ -0,0 +1,405 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class EIDTree
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a B+-tree over the EIDs of the .bin, saved next to
+ ||                  the index(lhl.idx.tree). Linear hashing scatters neighbouring EIDs over the
+ ||                  buckets, so a range of EIDs can only be found one probe per EID; the tree
+ ||                  keeps them in order instead. Its leaves hold (EID, record number) entries
+ ||                  sorted by EID(then record number) and are linked left to right, so a range
+ ||                  scan descends once to the first leaf of the range and then follows the links.
+ ||                  The tree is bulk loaded from the entries sorted by EID: the leaves are written
+ ||                  full in order, then every level of inner nodes above them, so it is never
+ ||                  split or merged. A writable index only changes the record number of an entry
+ ||                  in place(TOMBSTONE for a deleted record) and builds the tree again when it is
+ ||                  closed.
+ ||
+ ||                  Page 0 is the header: MAGIC, the height, the root page, the first leaf, the
+ ||                  entry count and the length and fingerprint of the .bin. Every other page is a
+ ||                  node: its level(0 for a leaf), its count and the next leaf(0 for the last
+ ||                  leaf and for inner nodes), then count pairs of ints: EID and record number in
+ ||                  a leaf, the first EID below a child and the child's page in an inner node.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  Sidecar.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  MAGIC - the first int of a saved tree.
+ ||                  PAGESIZE - the bytes of one node, one 4 KiB page.
+ ||                  NODEHEAD - the level, count and next leaf ints in front of the pairs.
+ ||                  FANOUT - the pairs one node holds.
+ ||                  TOMBSTONE - the record number of a deleted entry.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  None public. build() writes a tree and open() opens a saved one.
+ ||
+ ||  Class Methods:  public static void build()
+ ||                  private static void writeNode()
+ ||                  public static EIDTree open()
+ ||                  public boolean describes()
+ ||                  private int descend()
+ ||                  public long[] range()
+ ||                  public boolean setRecord()
+ ||                  public boolean write()
+ ||                  public boolean stale()
+ ||                  public EIDTree writable()
+ ||                  public long getEntries()
+ ||                  public int getHeight()
+ ||                  public void close()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class EIDTree implements Sidecar<EIDTree> {
+
+	private static int MAGIC = 0x42545245; //"BTRE", marks a saved tree.
+	private static int PAGESIZE = 4096; //One node per page, so a descent reads one page per level.
+	private static int NODEHEAD = 12; //The level, count and next leaf of a node.
+	private static int FANOUT = (PAGESIZE - NODEHEAD) / 8; //The pairs of ints that fit in one node.
+	public static int TOMBSTONE = -1; //The record number of an entry whose record was deleted.
+
+	private IndexFile file; //The saved tree, read by position.
+	private int height; //The levels of the tree, 1 when the root is the only leaf.
+	private int root; //The page of the root.
+	private long entries; //The entries in the leaves, tombstones included.
+	private long binLength; //The length and fingerprint of the .bin the tree was built for.
+	private long binFingerprint;
+	private ThreadLocal<ByteBuffer> node = ThreadLocal.withInitial(() -> ByteBuffer.allocate(PAGESIZE)); //Each thread's node buffer.
+	private LongAdder scans = new LongAdder(); //Calls of range().
+	private LongAdder pagesRead = new LongAdder(); //The nodes those calls read.
+
+	private EIDTree(IndexFile file, ByteBuffer header) {
+		this.file = file;
+		this.height = header.getInt(4);
+		this.root = header.getInt(8);
+		this.entries = header.getLong(16);
+		this.binLength = header.getLong(24);
+		this.binFingerprint = header.getLong(32);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method build(path, pairs, count, length, fingerprint)
+	|
+	|  Purpose:  Bulk loads a tree into the file at path with one sequential write. The
+	|            leaves are filled completely in order and chained, then each level of inner
+	|            nodes is written from the first EID of every node below it, until one node(the
+	|            root) is left. An empty .bin still gets one empty leaf.
+	|
+	|  Pre-condition:  The pairs are sorted.
+	|
+	|  Post-condition: The file holds the tree, any older one is replaced.
+	|
+	|  Parameters: path - the file to write.
+	|              pairs - the entries, each the EID in the high half and the record number in
+	|                      the low half.
+	|              count - the entries used at the front of pairs.
+	|              length - the length of the .bin the record numbers point into.
+	|              fingerprint - its fingerprint(see IndexBin.fingerprintBin()).
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	public static void build(String path, long[] pairs, int count, long length, long fingerprint) {
+		//The pages of every level are known up front, the root is the last page written.
+		int leaves = Math.max(1, (count + FANOUT - 1) / FANOUT);
+		int height = 1;
+		int pages = 1 + leaves;
+		for (int nodes = leaves; nodes > 1; nodes = (nodes + FANOUT - 1) / FANOUT) {
+			height++;
+			pages = pages + (nodes + FANOUT - 1) / FANOUT;
+		}
+		ByteBuffer page = ByteBuffer.allocate(PAGESIZE);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+			page.putInt(0, MAGIC);
+			page.putInt(4, height);
+			page.putInt(8, pages - 1);
+			page.putInt(12, 1);
+			page.putLong(16, count);
+			page.putLong(24, length);
+			page.putLong(32, fingerprint);
+			out.write(page.array());
+
+			int[] firstKeys = new int[leaves];
+			int[] children = new int[FANOUT];
+			int[] keys = new int[FANOUT];
+			for (int leaf = 0; leaf < leaves; leaf++) {
+				int first = leaf * FANOUT;
+				int used = Math.min(FANOUT, count - first);
+				for (int i = 0; i < used; i++) {
+					keys[i] = (int) (pairs[first + i] >>> 32);
+					children[i] = (int) pairs[first + i];
+				}
+				firstKeys[leaf] = used > 0 ? keys[0] : 0;
+				writeNode(out, page, 0, used, leaf + 1 < leaves ? leaf + 2 : 0, keys, children);
+			}
+
+			int level = 0;
+			int levelStart = 1;
+			while (firstKeys.length > 1) {
+				level++;
+				int below = levelStart;
+				levelStart = levelStart + firstKeys.length;
+				int[] upper = new int[(firstKeys.length + FANOUT - 1) / FANOUT];
+				for (int n = 0; n < upper.length; n++) {
+					int first = n * FANOUT;
+					int used = Math.min(FANOUT, firstKeys.length - first);
+					for (int i = 0; i < used; i++) {
+						keys[i] = firstKeys[first + i];
+						children[i] = below + first + i;
+					}
+					upper[n] = keys[0];
+					writeNode(out, page, level, used, 0, keys, children);
+				}
+				firstKeys = upper;
+			}
+			out.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the EID tree " + path + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+	}
+
+	//Writes one node of used pairs, the rest of its page zeroed.
+	private static void writeNode(DataOutputStream out, ByteBuffer page, int level, int used, int next, int[] keys,
+			int[] values) throws IOException {
+		Arrays.fill(page.array(), (byte) 0);
+		page.putInt(0, level);
+		page.putInt(4, used);
+		page.putInt(8, next);
+		for (int i = 0; i < used; i++) {
+			page.putInt(NODEHEAD + (i * 8), keys[i]);
+			page.putInt(NODEHEAD + (i * 8) + 4, values[i]);
+		}
+		out.write(page.array());
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method open(path, mapped, writable)
+	|
+	|  Purpose:  Opens a tree saved by build() through an IndexFile, so it is read with seeks
+	|            or through a memory mapping like lhl.idx.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: path - the saved tree.
+	|              mapped - read it through a memory mapping.
+	|              writable - open it for setRecord() and stale().
+	|
+	|  Returns: the tree, or null when the file is missing or is not a whole saved tree.
+	*-------------------------------------------------------------------*/
+	public static EIDTree open(String path, boolean mapped, boolean writable) {
+		if (!new File(path).isFile() || new File(path).length() < 2 * PAGESIZE) {
+			return null;
+		}
+		IndexFile file = new IndexFile(path, writable ? "rw" : "r", mapped);
+		ByteBuffer header = ByteBuffer.allocate(PAGESIZE);
+		file.read(0, header);
+		if (header.getInt(0) != MAGIC || file.length() != (long) (header.getInt(8) + 1) * PAGESIZE) {
+			file.close();
+			return null;
+		}
+		return new EIDTree(file, header);
+	}
+
+	//True when the tree was built for a .bin of this length and fingerprint.
+	public boolean describes(long length, long fingerprint) {
+		return binLength == length && binFingerprint == fingerprint;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method descend(EID, page)
+	|
+	|  Purpose:  Walks from the root to the leftmost leaf that can hold the EID. In each inner
+	|            node the child taken is the last one whose first EID is below the EID, since
+	|            equal EIDs may begin at the end of the child before the one starting with it.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: page holds the leaf.
+	|
+	|  Parameters: EID - the EID wanted.
+	|              page - this thread's node buffer.
+	|
+	|  Returns: the page of the leaf.
+	*-------------------------------------------------------------------*/
+	private int descend(int EID, ByteBuffer page) {
+		int at = root;
+		for (int level = height - 1; level >= 0; level--) {
+			page.clear();
+			file.read((long) at * PAGESIZE, page);
+			pagesRead.increment();
+			if (level == 0) {
+				break;
+			}
+			int child = 0;
+			int low = 1;
+			int high = page.getInt(4) - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (page.getInt(NODEHEAD + (mid * 8)) < EID) {
+					child = mid;
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			at = page.getInt(NODEHEAD + (child * 8) + 4);
+		}
+		return at;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method range(low, high)
+	|
+	|  Purpose:  Finds every live entry with an EID from low to high. The first leaf is found
+	|            by one descent and binary searched, then the leaves are read in order through
+	|            their links until an EID past high. Any number of threads may scan at once.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: low - the smallest EID wanted.
+	|              high - the largest EID wanted.
+	|
+	|  Returns: the entries in EID order(then record number), each the EID in the high half
+	|           and the record number in the low half.
+	*-------------------------------------------------------------------*/
+	public long[] range(int low, int high) {
+		scans.increment();
+		long[] found = new long[16];
+		int count = 0;
+		if (low > high) {
+			return new long[0];
+		}
+		ByteBuffer page = node.get();
+		int at = descend(low, page);
+		int first = 0;
+		int last = page.getInt(4) - 1;
+		while (first <= last) {
+			int mid = (first + last) >>> 1;
+			if (page.getInt(NODEHEAD + (mid * 8)) < low) {
+				first = mid + 1;
+			} else {
+				last = mid - 1;
+			}
+		}
+		while (true) {
+			for (int i = first; i < page.getInt(4); i++) {
+				int EID = page.getInt(NODEHEAD + (i * 8));
+				if (EID > high) {
+					return Arrays.copyOf(found, count);
+				}
+				int record = page.getInt(NODEHEAD + (i * 8) + 4);
+				if (record != TOMBSTONE) {
+					if (count == found.length) {
+						found = Arrays.copyOf(found, count * 2);
+					}
+					found[count] = ((long) EID << 32) | record;
+					count++;
+				}
+			}
+			at = page.getInt(8);
+			if (at == 0) {
+				return Arrays.copyOf(found, count);
+			}
+			page.clear();
+			file.read((long) at * PAGESIZE, page);
+			pagesRead.increment();
+			first = 0;
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method setRecord(EID, record, newRecord)
+	|
+	|  Purpose:  Changes the record number of the entry (EID, record) in place: to TOMBSTONE
+	|            when the record was deleted, or to its new slot when compaction moved it. The
+	|            EID stays, so the leaves stay sorted by EID. A moved entry may no longer be
+	|            sorted by record number among equal EIDs, which no scan relies on.
+	|
+	|  Pre-condition:  The tree was opened writable and stale() was called.
+	|
+	|  Post-condition: The entry points at newRecord.
+	|
+	|  Parameters: EID - the EID of the entry.
+	|              record - its record number now.
+	|              newRecord - the record number to give it.
+	|
+	|  Returns: true when the entry was found.
+	*-------------------------------------------------------------------*/
+	public boolean setRecord(int EID, int record, int newRecord) {
+		ByteBuffer page = node.get();
+		int at = descend(EID, page);
+		while (at != 0) {
+			for (int i = 0; i < page.getInt(4); i++) {
+				int key = page.getInt(NODEHEAD + (i * 8));
+				if (key > EID) {
+					return false;
+				}
+				if (key == EID && page.getInt(NODEHEAD + (i * 8) + 4) == record) {
+					file.writeInt((long) at * PAGESIZE + NODEHEAD + (i * 8) + 4, newRecord);
+					return true;
+				}
+			}
+			at = page.getInt(8);
+			if (at != 0) {
+				page.clear();
+				file.read((long) at * PAGESIZE, page);
+			}
+		}
+		return false;
+	}
+
+	//A changed tree holds tombstones and moved entries, so it is bulk loaded again for the .bin as it now is.
+	public boolean write(String path, long length, long fingerprint) {
+		return false;
+	}
+
+	//The entries are still changed in place, so the tree is marked as built for no .bin instead of deleted.
+	public boolean stale(String path) {
+		binLength = -1;
+		binFingerprint = 0;
+		file.writeLong(24, binLength);
+		file.writeLong(32, binFingerprint);
+		file.sync();
+		return true;
+	}
+
+	//A tree opened writable is changed in its file.
+	public EIDTree writable() {
+		return this;
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void close() {
+		file.close();
+	}
+
+	public String toString() {
+		return "EID tree: " + entries + " entries, height " + height + ", " + scans.sum() + " range scans read "
+				+ pagesRead.sum() + " nodes.";
+	}
+}
@@ -35,6 +35,8 @@ public class Entry {
 	 ||                  public void setEID()
 	 ||                  public void writeToIDX()
 	 ||                  public void readFromIDX()
+	 ||                  public void writeToIDX(IndexFile, position)
+	 ||                  public void readFromIDX(IndexFile, position)
 	 ||
 	 ++-----------------------------------------------------------------------*/
 	
@@ -131,4 +133,46 @@ public class Entry {
 		}
 		return (this.toString());
 	}
+	
+	/*---------------------------------------------------------------------
+	|  Method writeToIDX (file, position)
+	|
+	|  Purpose:  Writes the key and EID of this Entry at the byte position of the .idx
+	|            file, for either the RAF or the memory mapped storage mode.
+	|
+	|  Pre-condition:  The position must be the start of a slot in an EntryBlock.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters:
+	|      file - the opened .idx file.
+	|      position - the byte position of the slot.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void writeToIDX(IndexFile file, long position) {
+		file.writeInt(position, this.key);
+		file.writeInt(position + 4, this.EID);
+	}
+	
+	/*---------------------------------------------------------------------
+	|  Method readFromIDX (file, position)
+	|
+	|  Purpose:  Reads the key and EID stored at the byte position of the .idx file into
+	|            this Entry, for either the RAF or the memory mapped storage mode.
+	|
+	|  Pre-condition:  The position must be the start of a slot in an EntryBlock.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters:
+	|      file - the opened .idx file.
+	|      position - the byte position of the slot.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void readFromIDX(IndexFile file, long position) {
+		this.key = file.readInt(position);
+		this.EID = file.readInt(position + 4);
+	}
 }
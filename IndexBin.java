@@ -1,6 +1,24 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
 
 /*+----------------------------------------------------------------------
 ||
@@ -21,9 +39,11 @@ import java.util.ArrayList;
 ||
 |+-----------------------------------------------------------------------
 ||
-||   Constructors:  This method contains 2 constructors. The first is used in construction and takes only
-||                  the .bin file path. The second takes two arguments The filename for the index "lhl.idx"
-||                  and the path to the .bin file.
+||   Constructors:  This method contains constructors for construction and for opening. The first is used in
+||                  construction and takes only the .bin file path. The others also take a flag selecting true linear
+||                  hashing(split pointer) instead of whole file doubling, or the IndexSettings to build with. The
+||                  opening constructors take two arguments The filename for the index "lhl.idx" and the path to the
+||                  .bin file, and optionally the IndexSettings(storage mode) to open it with.
 ||
 ||  Class Methods:  private void openIndex();
 ||                  private void aquireMaxVals()
@@ -31,27 +51,155 @@ import java.util.ArrayList;
 ||                  private void aquireMaxVals()
 ||                  private void createIndex()
 ||                  private void openIndex()
-||                  private void readCounts()
+||                  void readCounts()
 ||                  private void writeToIDX()
+||                  private void startLog()
+||                  private void endChange()
+||                  private void closeLog()
 ||                  private void checkEID()
-||                  private void doubleBuckets()
+||                  void doubleBuckets()
 ||                  private void updatePosition()
+||                  private void splitBucket()
+||                  private void readHeader()
+||                  private void writeHeader()
+||                  private void useLayout()
+||                  private static long checksum()
+||                  private long fingerprintBin()
+||                  private byte[] trailer()
+||                  private void appendIndex()
+||                  private void moveTrailer()
+||                  private ByteBuffer loadHeader()
+||                  private boolean sameRecords()
+||                  private int getPage()
+||                  private int allocatePage()
+||                  private void freePage()
+||                  private void rehashChain()
+||                  private void writeChain()
+||                  private void bulkLoad()
+||                  private static int rangeStart()
+||                  private static void runRanges()
+||                  private void readEIDs()
+||                  private void readPoints()
+||                  private int newPage()
+||                  private int blockCount()
+||                  private int blockNext()
+||                  private void setBlockNext()
+||                  private void appendEntry()
+||                  private EntryBlock readBlockAt()
+||                  private void writeBlockAt()
+||                  public Record lookup()
+||                  public long findOffset()
+||                  private int searchBlock()
+||                  private static void sortEntries()
+||                  private void saveFilter()
+||                  private void loadFilter()
+||                  public EIDFilter getFilter()
+||                  private StateIndex buildStates()
+||                  public StateIndex getStateIndex()
+||                  private EIDTree buildTree()
+||                  public EIDTree getTree()
+||                  private SpatialGrid buildGrid()
+||                  public SpatialGrid getGrid()
+||                  private ColumnStore buildColumns()
+||                  public ColumnStore getColumns()
+||                  private void staleSidecars()
+||                  private void newRecordCache()
+||                  public RecordCache getRecordCache()
+||                  public RecordView view()
+||                  public void forEachRecord()
+||                  private RecordView newView()
+||                  private MappedByteBuffer[] mapBin()
+||                  public void forEachInState()
+||                  public void checkState()
+||                  public void forEachInRange()
+||                  private long[] scanRange()
+||                  private long[] probeRange()
+||                  public void checkRange()
+||                  private void forEachListed()
+||                  public void forEachInBox()
+||                  public void checkBox()
+||                  public void forEachWithin()
+||                  public void checkWithin()
+||                  public void forEachNearest()
+||                  public void checkNearest()
+||                  public void forEachRow()
+||                  public HashMap<Integer, Record> lookupAll()
+||                  private void readRecord()
+||                  private Lock readLock()
+||                  private static void unlock()
+||                  private void requireWritable()
+||                  public boolean delete()
+||                  public boolean update()
+||                  private long locateEntry()
+||                  private void writeBin()
+||                  private int readBinEID()
+||                  public boolean compactStep()
+||                  public void compact()
+||                  public Thread compactInBackground()
+||                  private void fillHole()
+||                  private void truncateBin()
+||                  private int compactBucket()
+||                  public long getTombstones()
+||                  public long getDeletedRecords()
+||                  public double tombstoneRatio()
+||                  long probeCost()
+||                  BlockLayout getLayout()
+||                  long getEntryCount()
+||                  int getHVal()
+||                  public void close()
 ||
 ++-----------------------------------------------------------------------*/
 public class IndexBin {
 	
 	//Constants
 	private static String IDXPATH = "lhl.idx"; //The given path to the .idx file.
-	private static int BUCKETSIZE = 20; //The size of one bucket measured in entries
 	private static int ENTRYSIZE = 8; //The size of one Entry measured in bytes.
-	private static int BLOCKSIZE = BUCKETSIZE * ENTRYSIZE + 4; //The total size for 1 Block
-	//used to traverse through the file.
+	private static int HEADERSIZE = 512; //Reserved bytes at the front of lhl.idx holding the hVal and split pointer.
+	private static double MAXLOAD = 0.8; //The fill factor of the whole index that triggers growth.
+	private static int SPARESLEN = 34; //One spares slot per possible bucket generation of an int bucket number.
+	private static int WRITEBLOCKS = 1024; //The number of blocks a bulk load writes at once.
+	private static int READWINDOW = 1 << 16; //The bytes of the .bin a batched lookup reads at once.
+	public static long NOTFOUND = -1; //What findOffset() returns for an EID that is not in the index.
+	private static long BINSEGMENT = 1L << 30; //The most bytes of the .bin in one mapped segment.
+	private static String FILTEREXT = ".bloom"; //Appended to the index path to name its saved EID filter.
+	private static int MAGIC = 0x4C484C58; //"LHLX", the first int of the description part of the header.
+	private static int VERSION = 2; //The header format written and the only one read, raised whenever the layout changes.
+	private static int DESCRIPTION = 256; //Where the description of the index and its .bin starts in the header.
+	private static int CHECKED = DESCRIPTION + 48; //The header bytes covered by the checksum that follows them.
+	private static int FINGERPRINT = 4096; //The bytes at each end of the .bin covered by its fingerprint.
+	private static int FLAGS = 20 + (SPARESLEN * 4); //The int of header flags, right after the spares.
+	private static int SORTEDFLAG = 1; //Set in the flags when every block is sorted by EID.
+	private static int INDEXED = FLAGS + 4; //The long count of .bin records indexed, where an append starts.
+	private static int TRAILERSIZE = 12; //The three max String length ints at the end of the .bin.
+	private static int TOMBSTONES = INDEXED + 8; //The long count of deleted entries still taking a slot in a block.
+	private static int DELETED = INDEXED + 16; //The long count of deleted records still taking a slot in the .bin.
+	public static int TOMBSTONE = -1; //The record number of a deleted entry, its EID is kept so the block stays sorted.
+	private static int COMPACTSTEP = 64; //The records moved or buckets rewritten by one step of background compaction.
+	private static String LOGEXT = ".wal"; //Appended to the index path to name its write-ahead log.
+	private static String STATEEXT = ".states"; //Appended to the index path to name its saved state index.
+	private static String TREEEXT = ".tree"; //Appended to the index path to name its B+-tree over the EIDs.
+	private static String GRIDEXT = ".grid"; //Appended to the index path to name its spatial grid.
+	private static String COLEXT = ".col"; //Appended to the index path, then a dot and the column, to name its column files.
 	
 	private String binPath; //The given path to the associated .bin file for reading.	
 	private Record current; //An object used generally to read in the current Record from the .bin
 	private RandomAccessFile fileBin; //the RAF currently accessing the .bin file.
-	private RandomAccessFile indexBin; //the RAF currently accessing lhl.idx file.
+	private FileChannel binChannel; //The channel of fileBin, read by position so lookups never seek.
+	private IndexFile indexBin; //the RAF or mapping currently accessing lhl.idx file.
+	private BlockLayout layout; //The size and place of the blocks, chosen when building and read from the header when opening.
+	private int bucketSize; //The size of one bucket measured in entries(from layout).
+	private int blockSize; //The total size for 1 Block(entries, count and overflow link) used to traverse through the file.
+	private boolean sorted; //Every block is sorted by EID(then record number), so a probe binary searches it.
 	private EntryBlock currBlock; //The currently used EntryBlock object.
+	private EntryBlock chainBlock; //The block writeChain() refills for every page it writes when there is no cache.
+	private BlockCache cache; //Write-back cache of blocks used while building, null when disabled.
+	private EIDFilter filter; //Checked before every lookup touches lhl.idx, null when disabled.
+	private RecordCache records; //The decoded Records of recent lookups by EID, null when disabled.
+	private ThreadLocal<ByteBuffer> probe = ThreadLocal.withInitial(() -> ByteBuffer.allocate(blockSize)); //Each thread's block buffer for findOffset().
+	private ThreadLocal<ByteBuffer> recordBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(this.recordLen)); //Each thread's record buffer for view().
+	private ThreadLocal<RecordView> views = ThreadLocal.withInitial(() -> newView()); //Each thread's view returned by view().
+	private volatile MappedByteBuffer[] binSegments; //The mapped .bin in mapped mode, null until first used.
+	private int segmentRecords; //The number of whole records in each mapped segment of the .bin.
 	
 	//The final line of the .bin will contain 3 int values representing the following 3 ints in order.
 	//The numRecords and recordLen are based on those values and the fileBin.length()/
@@ -60,36 +208,119 @@ public class IndexBin {
 	private int maxState; //The maximum found state String length in the .bin file.
 	private int hVal; //This is used to represent the current depth of the .idx bucket structure. This value is primarily used for
 	                  //hashing, but generally relates to the number of entries in the .bin file.
+	private int split; //The split pointer. Buckets below it have already been split with hVal + 1.
+	private IndexSettings settings; //The options the index is built or opened with.
+	private long entryCount; //The number of entries stored in the index, used to compute the load.
+	private int freeHead; //The first overflow page on the free list, 0 for none.
+	private int[] spares; //spares[g] is the number of overflow pages placed before the buckets of generation g.
 	private long numRecords; //The calculated number of records in the file. Based on the associated max size of Strings in the file.
 	private int recordLen; //The standard record length in the file. maxName+maxCOD+maxState+44(The remaining 5 doubles(8) + 1 int(4))
+	private long binLength; //The length of the .bin in bytes, trailer included.
+	private long binFingerprint; //The CRC32 of both ends of the .bin, stored in the header to catch a different .bin.
+	private long indexedRecords; //The records at the front of the .bin that are in the index, later ones can be appended.
+	private long tombstones; //Deleted entries left in the blocks until compaction rewrites their bucket.
+	private long deletedRecords; //Deleted records left in the .bin(stored with ~EID) until compaction fills their slot.
+	private long holeCursor; //Compaction: every record before it is live.
+	private long liveEnd; //Compaction: every record from it on is deleted.
+	private int bucketCursor; //Compaction: the next bucket to rid of its tombstones.
+	private int cleanBuckets; //Compaction: buckets in a row found without tombstones, a whole round means none are left.
+	private ReentrantReadWriteLock guard; //Lookups share it, changes take it alone. Null when the index is read only.
+	private volatile Thread compactor; //The background compaction started by a delete, null when none is running.
+	private IndexLog log; //The write-ahead log every change to lhl.idx(and the .bin) goes through, null when not logging.
+	private SidecarFile<StateIndex> states = new SidecarFile<StateIndex>(STATEEXT, () -> settings.isStateIndex(),
+			path -> buildStates(path), path -> StateIndex.read(path), path -> new File(path).delete()); //The record numbers of every state.
+	private SidecarFile<EIDTree> tree = new SidecarFile<EIDTree>(TREEEXT, () -> settings.isTree(), path -> buildTree(path),
+			path -> EIDTree.open(path, settings.isMapped(), guard != null), path -> new File(path).delete()); //The EIDs in order for range scans.
+	private SidecarFile<SpatialGrid> grid = new SidecarFile<SpatialGrid>(GRIDEXT, () -> settings.isGrid(),
+			path -> buildGrid(path), path -> SpatialGrid.read(path), path -> new File(path).delete()); //The record numbers by latitude and longitude.
+	private SidecarFile<ColumnStore> columns = new SidecarFile<ColumnStore>(COLEXT, () -> settings.isColumns(), path -> buildColumns(path),
+			path -> ColumnStore.open(path, maxName, maxCOD, maxState), path -> ColumnStore.delete(path)); //The .bin one file per field.
+	private List<SidecarFile<?>> sidecars = Arrays.asList(states, tree, grid, columns); //Every sidecar, in the order they are built.
 	
 	
 	public IndexBin(String path) {
+		this(path, new IndexSettings());
+	}
+	
+	//Builds the index with true linear hashing when linear is set, otherwise with whole file doubling.
+	public IndexBin(String path, boolean linear) {
+		this(path, linearSettings(linear));
+	}
+	
+	public IndexBin(String path, IndexSettings settings) {
 		this.binPath = path;
 		this.hVal = -1;
+		this.split = 0;
+		this.settings = settings;
+		this.spares = new int[SPARESLEN];
+		this.guard = settings.isWritable() ? new ReentrantReadWriteLock() : null;
+		useLayout(new BlockLayout(settings.getBucketSize(), settings.isAligned()));
+		this.sorted = settings.isSorted();
+		//The changes a crashed program committed are redone first, they may have changed the .bin too.
+		IndexLog.recover(IDXPATH + LOGEXT, IDXPATH);
 		validateFile();
-		aquireMaxVals();
-		createIndex();
+		//Appending needs an index to append to, without one the whole .bin is indexed as usual.
+		if (settings.isAppend() && new File(IDXPATH).isFile()) {
+			appendIndex();
+		} else {
+			aquireMaxVals();
+			createIndex();
+		}
+		//The build closed its log, a writable index logs its deletes, updates and compaction from here on.
+		if (settings.isWritable()) {
+			startLog(IDXPATH);
+		}
 		readCounts();
+		newRecordCache();
 	}
 	
 	//Overloaded constructor to handle Program 2b requirements.
 	public IndexBin(String path, String extension) {
+		this(path, extension, new IndexSettings());
+	}
+	
+	public IndexBin(String path, String extension, IndexSettings settings) {
 		this.binPath = path;
 		this.hVal = 0;
+		this.settings = settings;
+		this.spares = new int[SPARESLEN];
+		this.guard = settings.isWritable() ? new ReentrantReadWriteLock() : null;
+		IndexLog.recover(extension + LOGEXT, extension);
 		validateFile();
 		aquireMaxVals();
 		openIndex(extension);
 		readCounts();
+		newRecordCache();
+
+	}
+
+	//Sets the block layout and the sizes taken from it.
+	private void useLayout(BlockLayout layout) {
+		this.layout = layout;
+		this.bucketSize = layout.getBucketSize();
+		this.blockSize = layout.getBlockSize();
+	}
+
+	//The record cache starts empty with every build or open, so it never holds Records of another index.
+	private void newRecordCache() {
+		records = null;
+		if (settings.getRecordCacheSize() > 0) {
+			records = new RecordCache(settings.getRecordCacheSize());
+		}
+	}
 
+	private static IndexSettings linearSettings(boolean linear) {
+		IndexSettings settings = new IndexSettings();
+		settings.setLinear(linear);
+		return settings;
 	}
 
 	/*---------------------------------------------------------------------
     |  Method openIndex (extension)
     |
     |  Purpose:  This method is used to just open the .idx file passed from Prog22
-    |            Using the conditions of the .idx file bucket size, a Hval is determined
-    |            which will be used to access the buckets that exist within the .idx file.
+    |            The hVal and split pointer are read from the header of the .idx file
+    |            and will be used to access the buckets that exist within the .idx file.
     |
     |  Pre-condition:  RAF file must be ready for reading and seeking.
     |
@@ -102,20 +333,16 @@ public class IndexBin {
     *-------------------------------------------------------------------*/
 	private void openIndex(String extension) {
 		
-		try {
-			indexBin = new RandomAccessFile(extension, "r");
-			int toHVal = 0;
-			toHVal = (int) (indexBin.length()/BLOCKSIZE);
-			for(int i =0; i < toHVal; i++) {
-				if(toHVal == Math.pow(2, i+1)) {
-					hVal = i;
-					return;
-				}
-			}
-
-		} catch (IOException e) {
-			System.out.println("I/O ERROR: Something went wrong with the " + "opening of the RAF .idx file.");
-			System.exit(-1);
+		indexBin = new IndexFile(extension, settings.isWritable() ? "rw" : "r", settings.isMapped());
+		readHeader();
+		loadFilter(extension);
+		for (SidecarFile<?> each : sidecars) {
+			each.load(extension);
+		}
+		currBlock = new EntryBlock(layout);
+		chainBlock = new EntryBlock(layout);
+		if (settings.isWritable()) {
+			startLog(extension);
 		}
 		
 	}
@@ -146,7 +373,9 @@ public class IndexBin {
 			binPath = lastPart[i - 1];
 		}
 		try {
-            fileBin = new RandomAccessFile(binPath +".bin","r");
+            //Appending may move the trailer of the .bin behind the new records, deleting flags records.
+            fileBin = new RandomAccessFile(binPath +".bin", (settings.isAppend() || settings.isWritable()) ? "rw" : "r");
+            binChannel = fileBin.getChannel();
         } catch (IOException e) {
             System.out.println("I/O ERROR: Something went wrong with the "
                              + "opening of the RAF .bin file.");
@@ -159,8 +388,8 @@ public class IndexBin {
     |  Method aquireMaxVals()
     |
     |  Purpose:  This method is called to extract the final 3 records from the .bin file
-    |            these contain the 3 String lengths fore the associated maxName, maxState,
-    |            and maxCOD values. These values are used to determine the length of the actual
+    |            these contain the 3 String lengths fore the associated maxName, maxCOD,
+    |            and maxState values. These values are used to determine the length of the actual
     |            Record Object for printing/displaying/writing.
     |
     |  Pre-condition:  RAF file must be open and in any position.
@@ -183,10 +412,14 @@ public class IndexBin {
 
 			fileBin.seek(fileBin.length() - threeIntByteVal);
 			this.maxName = fileBin.readInt();
-			this.maxState = fileBin.readInt();
 			this.maxCOD = fileBin.readInt();
+			this.maxState = fileBin.readInt();
 			this.recordLen = maxName + maxCOD + maxState + numberColsByteVal;
 	        numRecords = fileBin.length() / recordLen; 
+			binLength = fileBin.length();
+			holeCursor = 0;
+			liveEnd = numRecords;
+			binFingerprint = fingerprintBin(binLength, trailer());
 			fileBin.seek(0);
 		} catch (IOException e) {
 			System.out.println("Unable to read the maximum String size values. Maybe you got your record byte lengths wrong.\n");
@@ -207,6 +440,8 @@ public class IndexBin {
     |            storage. Using the formula to derive keys k = EID mod(2^(H+1), with an H of zero
     |            which increases every time a full bucket needs to be added to. (E.G. after 21 even 
     |            or odd records there will be 4 bins with 80 buckets total.)
+    |            When the settings ask for a bulk load the records are not inserted one at a time,
+    |            see bulkLoad().
     |           
     |
     |  Pre-condition: The .bin file must be constructed with 9 fields matching the .csv structure
@@ -222,15 +457,43 @@ public class IndexBin {
     *-------------------------------------------------------------------*/
 		private void createIndex() {
 			int indexCount = 0;
+			indexedRecords = numRecords;
 
-			try {
-				indexBin = new RandomAccessFile(IDXPATH, "rw");
-			} catch (IOException e) {
-				System.out.println("I/O ERROR: Something went wrong with the " + "opening of the RAF .idx file.");
-				System.exit(-1);
+			indexBin = new IndexFile(IDXPATH, "rw", settings.isMapped());
+			//Until the first group is committed the old index stays as it was.
+			if (!settings.isBulk()) {
+				startLog(IDXPATH);
 			}
+			indexBin.setLength(0);
 
-			currBlock = new EntryBlock(indexBin);
+			currBlock = new EntryBlock(layout);
+			chainBlock = new EntryBlock(layout);
+			if (settings.getCacheSize() > 0 && !settings.isBulk()) {
+				cache = new BlockCache(indexBin, layout, settings.getCacheSize());
+			}
+			if (settings.getFilterRate() > 0) {
+				filter = new EIDFilter(numRecords, settings.getFilterRate());
+			}
+			for (SidecarFile<?> each : sidecars) {
+				each.at(IDXPATH);
+			}
+			//The postings are gathered as the records are indexed, the other sidecars are built from the .bin afterwards.
+			if (settings.isStateIndex()) {
+				states.current = new StateIndex();
+			}
+			if (settings.isBulk()) {
+				bulkLoad();
+				writeHeader();
+				indexBin.force();
+				saveFilter();
+				for (SidecarFile<?> each : sidecars) {
+					each.save();
+				}
+				return;
+			}
+			//The count grows with every record read, so a header committed mid build says where to append from.
+			indexedRecords = 0;
+			writeHeader();
 			writeBlank(indexBin);
 		
 
@@ -238,14 +501,171 @@ public class IndexBin {
 		try {
 			for (int i = 0; i < (fileBin.length() / recordLen); i++) {
 				current.readEntry(fileBin, maxName, maxState, maxCOD);
-				writeToIDX(current.getEid(), indexCount);
+				//A record deleted from the .bin keeps its slot until compaction, but is not indexed.
+				if (current.getEid() < 0) {
+					deletedRecords++;
+				} else {
+					writeToIDX(current.getEid(), indexCount);
+					if (states.current != null) {
+						states.current.add(current.getState(), indexCount);
+					}
+				}
 				indexCount++;
+				indexedRecords = indexCount;
+				endChange(false);
 			}
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
+		//Write back whatever the cache still holds. Lookups read lhl.idx directly afterwards.
+		if (cache != null) {
+			cache.flush();
+			System.out.println(cache.toString());
+			cache = null;
+		}
+		writeHeader();
+		closeLog();
+		indexBin.force();
+		saveFilter();
+		for (SidecarFile<?> each : sidecars) {
+			each.save();
+		}
+
+	}
+
+	//Saves the EID filter next to lhl.idx. Without one, an older filter is deleted so it is never paired with this index.
+	private void saveFilter() {
+		if (filter != null) {
+			filter.write(IDXPATH + FILTEREXT);
+		} else {
+			new File(IDXPATH + FILTEREXT).delete();
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method loadFilter(extension)
+    |
+    |  Purpose:  When the settings ask for an EID filter, the one saved with the index is loaded.
+    |            A missing filter, or one holding a different number of EIDs than the index, is
+    |            rebuilt in memory from the EIDs of the .bin instead.
+    |
+    |  Pre-condition: readHeader() has set entryCount.
+    |
+    |  Post-condition: filter is set, or left null when the settings do not ask for one.
+    |
+    |  Parameters: extension - the path of the opened index.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void loadFilter(String extension) {
+		if (settings.getFilterRate() <= 0) {
+			return;
+		}
+		filter = EIDFilter.read(extension + FILTEREXT);
+		if (filter != null && filter.getEntries() == entryCount) {
+			return;
+		}
+		filter = new EIDFilter(numRecords, settings.getFilterRate());
+		int[] eids = new int[(int) numRecords];
+		readEIDs(eids, 0, eids.length, null);
+		for (int EID : eids) {
+			if (EID >= 0) {
+				filter.add(EID);
+			}
+		}
+	}
+
+	//Builds the state index from the states of the .bin, read with one pass, and saves it at path unless it is null.
+	private StateIndex buildStates(String path) {
+		StateIndex built = new StateIndex();
+		readEIDs(new int[(int) numRecords], 0, (int) numRecords, built);
+		if (path != null) {
+			built.write(path, binLength, binFingerprint);
+		}
+		return built;
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method buildTree(path)
+    |
+    |  Purpose:  Bulk loads the B+-tree over the EIDs(see EIDTree.build()). The EIDs are read
+    |            with one sequential pass over the .bin and every record that is not deleted is
+    |            sorted by EID, then record number, as one long(see scanRange()), before the
+    |            tree is written and opened.
+    |
+    |  Pre-condition: The .bin is as the index describes it(binLength and binFingerprint).
+    |
+    |  Post-condition: The tree is saved at path.
+    |
+    |  Parameters: path - where the tree is saved, null when it must not be written.
+    |
+    |  Returns: the opened tree, or null when path is null since the tree only lives in its file.
+    *-------------------------------------------------------------------*/
+	private EIDTree buildTree(String path) {
+		if (path == null) {
+			return null;
+		}
+		long[] pairs = scanRange(0, Integer.MAX_VALUE);
+		EIDTree.build(path, pairs, pairs.length, binLength, binFingerprint);
+		return EIDTree.open(path, settings.isMapped(), guard != null);
+	}
+
+	//Builds the grid in memory from the coordinates of every record that is not deleted, read with one pass over the .bin, and saves it at path unless it is null.
+	private SpatialGrid buildGrid(String path) {
+		double[] lats = new double[(int) numRecords];
+		double[] lons = new double[(int) numRecords];
+		readPoints(lats, lons);
+		SpatialGrid built = SpatialGrid.build(lats, lons, lats.length);
+		if (path != null) {
+			built.write(path, binLength, binFingerprint);
+		}
+		return built;
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method buildColumns(path)
+    |
+    |  Purpose:  Writes the column files(see ColumnStore) with one sequential pass over the
+    |            .bin. Every record is copied, deleted ones too, so row i of each column is
+    |            record i of the .bin. The new files are then opened.
+    |
+    |  Pre-condition: The .bin is as the index describes it(binLength and binFingerprint).
+    |
+    |  Post-condition: The column files are saved at path.
+    |
+    |  Parameters: path - the path the column names are appended to, null when they must not
+    |                     be written.
+    |
+    |  Returns: the opened store, or null when path is null since the columns only live in
+    |           their files.
+    *-------------------------------------------------------------------*/
+	private ColumnStore buildColumns(String path) {
+		if (path == null) {
+			return null;
+		}
+		ColumnStore out = ColumnStore.create(path, maxName, maxCOD, maxState);
+		byte[] record = new byte[recordLen];
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binPath + ".bin"), 1 << 16));
+			for (long i = 0; i < numRecords; i++) {
+				in.readFully(record);
+				out.append(record);
+			}
+			in.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the records from the .bin file.");
+			System.exit(-1);
+		}
+		out.finish(binLength, binFingerprint);
+		return ColumnStore.open(path, maxName, maxCOD, maxState);
+	}
 
+	//The first change to the .bin marks every saved sidecar as stale, so a crash never leaves one looking current. close() saves them again.
+	private void staleSidecars() {
+		for (SidecarFile<?> each : sidecars) {
+			each.stale();
+		}
 	}
 	
 	
@@ -255,7 +675,8 @@ public class IndexBin {
 	|  Purpose:  This method acts as the requested stats method by Dr. McCann. The purpose of the method is to derive
 	|            and display the Minimum bucket count(occupancy), Maximum bucket count(occupancy), Mean occupancy of all buckets,
 	|            and the total count of buckets. This method will work through each of the stored capcity ints every 160 bytes one
-	|            exists eg 160, 324, ... So that minimal access can determine these values.
+	|            exists eg 160, 324, ... So that minimal access can determine these values. The occupancy of a bucket
+	|            includes every overflow block chained off it.
 	|           
 	|
 	|  Pre-condition: The .bin file can be in any state, however the stats will not be representative of the actual counts
@@ -269,44 +690,37 @@ public class IndexBin {
 	|
 	|  Returns: None
 	*-------------------------------------------------------------------*/
-	private void readCounts() {
+	void readCounts() {
 		ArrayList<Integer> counts = new ArrayList<Integer>();
-		int blockMax = (int) (Math.pow(2, hVal + 1));
+		int blockMax = (int) (Math.pow(2, hVal + 1)) + split;
 		int indexMax = blockMax - 1;//The position of the end of the .idx buckets.
-		long currentPos = 0; //Current position
 		int currCount = 0; //The current count in use.
 		//A value to be replaced and ultimately printed. Initial value is not in a valid range for this DB.
-		int lowCount = 21;//The low count
+		int lowCount = Integer.MAX_VALUE;//The low count
 		int lowBucket = -1;//the bucket containing the lowest count
 		int highBucket = 21212;//the bucket containing the highest count
 		int highCount = 0;//the count of the bucket with the most entries.
-		try {
-			currentPos = indexBin.getFilePointer();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-
+		int overflowPages = 0;//the number of overflow blocks chained off the buckets.
 		//This section is reading off each of the associated bucketCounts to determine
 		// The various values for the final print (max count,min count, avg, total buckets)
 		//These values are stored and used to compute a mean.
 		for (int i = 0; i <= indexMax; i++) {
-			int seekVal = (i * 160) + (160 + ((i) * 4));
-			try {
-				indexBin.seek(seekVal);
-				currCount = indexBin.readInt();
-				counts.add(currCount);
-				if (currCount < lowCount) {
-					lowCount = currCount;
-					lowBucket = i;
-				}
-				if (currCount > highCount) {
-					highCount = currCount;
-					highBucket = i;
-				}
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+			int page = getPage(i);
+			currCount = indexBin.readInt(layout.countStart(page));
+			page = indexBin.readInt(layout.nextStart(page));
+			while (page != 0) {
+				overflowPages++;
+				currCount = currCount + indexBin.readInt(layout.countStart(page));
+				page = indexBin.readInt(layout.nextStart(page));
+			}
+			counts.add(currCount);
+			if (currCount < lowCount) {
+				lowCount = currCount;
+				lowBucket = i;
+			}
+			if (currCount > highCount) {
+				highCount = currCount;
+				highBucket = i;
 			}
 			//System.out.println("Bucket" + i + " current occupancy is " + currCount);
 		}
@@ -319,16 +733,13 @@ public class IndexBin {
 
 		//Display all requested info for part 2a
 		System.out.println("There are " + blockMax + " buckets in the index.");
+		System.out.println("There are " + overflowPages + " overflow blocks chained off those buckets.");
 		System.out.println("The Lowest occupany bucket is " + lowBucket + " with just " + lowCount + " records.");
 		System.out.println("The Highest occupany bucket is " + highBucket + " with " + highCount + " records.");
 		System.out.println("The mean occupied capacity is " + avg + "\n\n");
-
-		//Returns to the current position. This let me use this method anywhere for testing.
-		try {
-			indexBin.seek(currentPos);
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		if (tombstones > 0 || deletedRecords > 0) {
+			System.out.println("There are " + tombstones + " tombstones(" + String.format("%.1f", 100 * tombstoneRatio())
+					+ "% of the entries) and " + deletedRecords + " deleted records in the .bin waiting for compaction.\n");
 		}
 
 	}
@@ -358,17 +769,96 @@ public class IndexBin {
     *-------------------------------------------------------------------*/
 	private void writeToIDX(int EID, int indexCount) {
 
+		if (filter != null) {
+			filter.add(EID);
+		}
 		int hash = getHash(EID);
 		// System.out.println("Current bucketCount for bin " + hash + " is " +
 		// getBinBucketCount(hash));
 
-		if (getBinBucketCount(hash) < 20) {
-			currBlock.writeEntry(indexBin, hash, current.getEid(), indexCount);
+		//Walk the chain of the bucket to its first block with room, chaining a new
+		//overflow block when every block is full.
+		int page = getPage(hash);
+		while (blockCount(page) >= bucketSize) {
+			int next = blockNext(page);
+			if (next == 0) {
+				next = allocatePage();
+				setBlockNext(page, next);
+			}
+			page = next;
+		}
+		appendEntry(page, EID, indexCount);
+		entryCount++;
 
-		} else {
-			doubleBuckets();
-			currBlock.writeEntry(indexBin, hash, current.getEid(), indexCount);
+		//Growth is driven by the load of the whole index rather than one full bucket. Linear hashing
+		//splits one bucket per step, the original scheme doubles the whole file.
+		while (entryCount > MAXLOAD * bucketSize * ((Math.pow(2, hVal + 1)) + split)) {
+			//An appended index that was grown linearly keeps splitting, doubling needs the split pointer at 0.
+			if (settings.isLinear() || split != 0) {
+				splitBucket();
+			} else {
+				doubleBuckets();
+			}
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method startLog(path)
+    |
+    |  Purpose:  When the settings ask for a write-ahead log, attaches one to lhl.idx, named
+    |            after it with LOGEXT. From then on every write to lhl.idx is staged, and so is
+    |            every write to the .bin made through writeBin() and truncateBin(), until
+    |            endChange() commits them(see IndexLog).
+    |
+    |  Pre-condition: indexBin is open for writing and any log left by a crash was recovered.
+    |
+    |  Post-condition: log is set, or left null when the settings do not ask for one.
+    |
+    |  Parameters: path - the path of the index.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void startLog(String path) {
+		if (settings.getLogGroup() > 0) {
+			log = new IndexLog(path + LOGEXT, binPath + ".bin", indexBin, fileBin, settings.getLogGroup());
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method endChange(now)
+    |
+    |  Purpose:  Called after every whole change: an insert with the splits or doubling it
+    |            caused, a delete, an update or a compaction step. Without a log it does nothing.
+    |            With one, the change is added to the open group, and once the group is full(or
+    |            at once when now is set) the cached blocks are written back, the header is
+    |            written with the counts as they are and the group is committed. A group never
+    |            ends inside a change, so the header of every committed group describes
+    |            the blocks it was committed with.
+    |
+    |  Pre-condition: None
+    |
+    |  Post-condition: With now set, every change made is in lhl.idx and the .bin.
+    |
+    |  Parameters: now - commit the group even if it is not full.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void endChange(boolean now) {
+		if (log != null && (log.endChange() || now)) {
+			if (cache != null) {
+				cache.flush();
+			}
+			writeHeader();
+			log.commit();
+		}
+	}
 
+	//Commits what the log still holds and deletes it, once both files are on disk.
+	private void closeLog() {
+		if (log != null) {
+			log.close();
+			System.out.println(log.toString());
+			log = null;
 		}
 	}
 
@@ -377,6 +867,8 @@ public class IndexBin {
     |
     |  Purpose:  This method simply returns a hash value based on the formula provided by Dr. McCann
     |            this hash method will allow us to access the correct bucket for the passed EID.
+    |            Buckets before the split pointer have already been split, so for those the
+    |            next level hash (hVal + 1) is used instead.
     |           
     |
     |  Pre-condition: The .bin file must be opened as a RAF.
@@ -390,6 +882,9 @@ public class IndexBin {
     *-------------------------------------------------------------------*/
 	private int getHash(int EID) {
 		int hash = (int) (EID % (Math.pow(2, (hVal + 1))));
+		if (hash < split) {
+			hash = getHash(EID, hVal + 1);
+		}
 		return hash;
 	}
 
@@ -416,10 +911,10 @@ public class IndexBin {
 	}
 
 	 /*---------------------------------------------------------------------
-    |  Method getBinBucketCount(hash)
+    |  Method getBinBucketCount(page)
     |
-    |  Purpose:  This method is used to retrieve a current bucketCount for the bin associated with the hash value.
-    |            This method is used more basically to ensure that the bucket we are trying to write to is not 
+    |  Purpose:  This method is used to retrieve a current bucketCount for the block stored at the page.
+    |            This method is used more basically to ensure that the block we are trying to write to is not 
     |            already full. 
     |           
     |
@@ -430,30 +925,12 @@ public class IndexBin {
     |                  file.
     |  
     |
-    |  Parameters: hash- The bucket of interest.
+    |  Parameters: page- The page of the block of interest(see getPage()).
     |
-    |  Returns: The current number of stored Records in the .idx file for the associated bucket.
+    |  Returns: The current number of stored Records in the .idx file for the associated block.
     *-------------------------------------------------------------------*/
-	private int getBinBucketCount(int hash) {
-		int currentCount = 0;
-		long currPos = 0;
-		try {
-			currPos = indexBin.getFilePointer();
-		} catch (IOException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}
-
-		try {
-			int seekVal = (hash * 160) + (160 + ((hash) * 4));
-			indexBin.seek(seekVal);
-			currentCount = indexBin.readInt();
-			indexBin.seek(currPos);
-		} catch (Exception e) {
-			e.toString();
-		}
-		return currentCount;
-
+	private int getBinBucketCount(int page) {
+		return indexBin.readInt(layout.countStart(page));
 	}
 	 
 
@@ -480,38 +957,15 @@ public class IndexBin {
     |
     |  Returns: None
     *-------------------------------------------------------------------*/
-	public void writeBlank(RandomAccessFile stream) {
-
-		// Sp
-		if (hVal == 0) {
-			for (int i = 0; i < 82; i++) {
-				try {
-					stream.writeInt(0);
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-			}
-		} else {
+	public void writeBlank(IndexFile stream) {
 
-			int blockMax = (int) ((Math.pow(2, hVal + 1)));
-			int blockPosition = (blockMax / 2);
-			try {
-				stream.seek(blockPosition * BLOCKSIZE);
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-			while (blockPosition != blockMax) {
-
-				for (int i = 0; i < 41; i++) {
-					try {
-						stream.writeInt(0);
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-				blockPosition++;
-			}
+		//Zero fill the new half of the buckets. With the initial hVal of -1 this is just bucket 0.
+		int blockMax = (int) ((Math.pow(2, hVal + 1)));
+		int blockPosition = (blockMax / 2);
+		byte[] blank = new byte[blockSize];
+		while (blockPosition != blockMax) {
+			stream.write(layout.blockStart(getPage(blockPosition)), blank);
+			blockPosition++;
 		}
 	}
 
@@ -541,114 +995,2551 @@ public class IndexBin {
     |
     |  Returns: None
     *-------------------------------------------------------------------*/
-	private void doubleBuckets() {
-		hVal++;
+	void doubleBuckets() {
+		nextLevel();
 		writeBlank(indexBin);
 		updatePositions(indexBin);
+		writeHeader();
 	}
 	
-
-
 	/*---------------------------------------------------------------------
-    |  Method updatePositions(stream)
+    |  Method splitBucket()
     |
-    |  Purpose:  This method is called to physically increase the storage on the HD by doubling the
-    |            capacity of the index. The hashing function used ensures that one of two buckets will
-    |            determine the position of an entry into a bucket. All current entries are updated to
-    |            new positions within the index bucket structure. These values are stored with an ordering
-    |            based on the .bin file from project 1(that is as a Record Class). The reference in the index
-    |            file will point to the position the bytes exist for that record in the .bin DB file. Maintaining
-    |            this structure will ultimately allow us to search quickly using only the bucket position. THis 
-    |            implementation is based on Dr. McCann's Linear Hashing lite algorithm. 
-    |           
+    |  Purpose:  This method is the growth step of true linear hashing. Only the bucket under the
+    |            split pointer is split: the entries of its whole chain are rehashed with hVal + 1 and
+    |            either stay or move to the single new bucket split + 2^(hVal+1). The split pointer
+    |            then advances, and once every bucket of the current round has been split the hVal
+    |            increases and the pointer returns to bucket 0. No other bucket is touched.
     |
-    |  Pre-condition: The bin file must be freshly expanded(from writeBlank(). The entire expansion process is handled from
-    |                 this method.
+    |  Pre-condition: The lhl.idx RAF must be open for writing.
     |
-    |  Post-condition: The .bin file for lhl.idx will be doubled in capacity and have all currently hashed values updated to
-    |                  new positions.
-    |  
+    |  Post-condition: The .idx file holds one more bucket and the header records the new
+    |                  hVal and split pointer.
     |
-    |  Parameters: stream- The RAF file stream containing the lhl.idx RAF.
+    |  Parameters: None
     |
     |  Returns: None
     *-------------------------------------------------------------------*/
-	private void updatePositions(RandomAccessFile stream) {
-
-		EntryBlock existing = new EntryBlock(stream);
-		EntryBlock adding = new EntryBlock(stream);
-		// This gives the total number of buckets
-		int blockMax = (int) (Math.pow(2, hVal + 1));
-		//This value acts as the end of the old
-		int indexMax = blockMax - 1;
-		int blockPosition = (indexMax / 2);
+	private void splitBucket() {
+		int roundSize = (int) (Math.pow(2, hVal + 1));
+		rehashChain(split, split + roundSize, hVal + 1);
 
-		//This section reads through each of the old half of the .idx file
-		//The values contained within are rehashed to either the current location
-		//or a new location.
-		while (blockPosition >= 0) {
-			existing = existing.readBlock(stream, blockPosition);
-			adding = adding.readBlock(stream, indexMax);
-			for (int i = 0; i < existing.getRecCount(); i++) {
-				Entry entry = existing.getList().get(i);
-				int hash = getHash(entry.getEID());
-				if (hash != blockPosition) {
-					existing.getList().remove(entry);
-					existing.setRecCount(existing.getRecCount() - 1);
-					adding.getList().add(entry);
-					adding.setRecCount(adding.getRecCount() + 1);
-				}
-			}
-			existing.writeBlock(stream, blockPosition);
-			adding.writeBlock(stream, indexMax);
-			blockPosition--;
-			indexMax--;
+		split++;
+		if (split == roundSize) {
+			nextLevel();
 		}
+		writeHeader();
 	}
-
+	
+	//Moves to the next hVal with the split pointer back on bucket 0. Overflow pages allocated from
+	//here on are placed after the generation of buckets this level will create.
+	private void nextLevel() {
+		hVal++;
+		split = 0;
+		spares[hVal + 3] = spares[hVal + 2];
+	}
+	
 	/*---------------------------------------------------------------------
-    |  Method checkEID()
+    |  Method getPage(bucket)
     |
-    |  Purpose:  This method combines all current functionality for the .bin DB file and .idx file
-    |            to allow searching via EID. This is a hash search which will find the correct bucket
-    |            (determined by the hash value). Note to grader: I broke the r
-    |           
+    |  Purpose:  Returns the page in lhl.idx holding the primary block of a bucket. Buckets are
+    |            created a generation at a time (bucket 0, bucket 1, then 2-3, 4-7, ...) and the
+    |            overflow pages allocated while a generation was being filled are stored after it,
+    |            so the primary page of a bucket is its number plus the overflow pages placed
+    |            before its generation. This keeps overflow pages in the index file without
+    |            ever having to move them when a new bucket is created.
     |
-    |  Pre-condition: The bin file must be freshly expanded(from writeBlank(). The entire expansion process is handled from
-    |                 this method.
+    |  Pre-condition: None
     |
-    |  Post-condition: The .bin file for lhl.idx will be doubled in capacity and have all currently hashed values updated to
-    |                  new positions.
-    |  
+    |  Post-condition: None
     |
-    |  Parameters: stream The RAF file stream containing the lhl.idx RAF.
+    |  Parameters: bucket - the bucket number returned by getHash().
+    |
+    |  Returns: the page number of the bucket's primary block.
+    *-------------------------------------------------------------------*/
+	private int getPage(int bucket) {
+		int generation = 32 - Integer.numberOfLeadingZeros(bucket);
+		return bucket + spares[generation];
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method allocatePage()
+    |
+    |  Purpose:  Returns an unused page for an overflow block. Pages released by splits are
+    |            reused first, otherwise the page after the generation currently being created
+    |            is handed out.
+    |
+    |  Pre-condition: The lhl.idx RAF must be open for writing.
+    |
+    |  Post-condition: The caller owns the page and must write a block to it.
+    |
+    |  Parameters: None
+    |
+    |  Returns: the page number of the overflow block.
+    *-------------------------------------------------------------------*/
+	private int allocatePage() {
+		int page;
+		if (freeHead != 0) {
+			page = freeHead;
+			freeHead = blockNext(page);
+		} else {
+			page = newPage();
+		}
+		EntryBlock blank = new EntryBlock(layout);
+		writeBlockAt(page, blank);
+		return page;
+	}
+	
+	//Hands out the next never used overflow page, after the generation currently being created.
+	private int newPage() {
+		int page = (int) (Math.pow(2, hVal + 2)) + spares[hVal + 3];
+		spares[hVal + 3]++;
+		return page;
+	}
+	
+	//Puts an overflow page that is no longer part of any chain on the free list.
+	private void freePage(int page) {
+		EntryBlock blank = new EntryBlock(layout);
+		blank.setNext(freeHead);
+		writeBlockAt(page, blank);
+		freeHead = page;
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method rehashChain(oldBucket, newBucket, newH)
+    |
+    |  Purpose:  Reads every block chained off oldBucket and divides the entries between
+    |            oldBucket and newBucket using the hash for newH, in one pass that copies each
+    |            entry's two ints into the staying or moving arrays. Both chains are rewritten
+    |            in full, reusing the old overflow pages, and pages left over are freed.
+    |
+    |  Pre-condition: newBucket must be the sibling of oldBucket at newH.
+    |
+    |  Post-condition: Both buckets hold only entries that hash to them at newH.
+    |
+    |  Parameters: oldBucket - the bucket being split.
+    |              newBucket - the bucket receiving the entries that move.
+    |              newH - the hVal the entries are rehashed with.
     |
     |  Returns: None
     *-------------------------------------------------------------------*/
-	public void checkEID(int EID) {
+	private void rehashChain(int oldBucket, int newBucket, int newH) {
+		//Staying entries fill the arrays from the front, moving entries from the back.
+		int[] keys = new int[2 * bucketSize];
+		int[] eids = new int[2 * bucketSize];
+		int staying = 0;
+		int moving = 0;
+		ArrayList<Integer> overflow = new ArrayList<Integer>();
 
-		int hash = getHash(EID, hVal);
-		EntryBlock toCheck = new EntryBlock(indexBin);
-		toCheck.readBlock(indexBin, hash);
-		for (Entry each : toCheck.getList()) {
-			if (each.getEID() == EID) {
-				System.out.println("The EID was found!\n");
-				//System.out.println("THe EID is located in bucket " + hash);
-				Record current = new Record(0);
-				try {
-					fileBin.seek(each.getKey() * recordLen);
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-					System.out.println("Tried to seek and failed.\n");
+		//Page 0 is always bucket 0, so a link of 0 marks the end of a chain.
+		int page = getPage(oldBucket);
+		do {
+			EntryBlock existing = readBlockAt(page);
+			int count = existing.getRecCount();
+			if (staying + moving + count > keys.length) {
+				int[] grownKeys = new int[keys.length * 2];
+				int[] grownEIDs = new int[eids.length * 2];
+				System.arraycopy(keys, 0, grownKeys, 0, staying);
+				System.arraycopy(eids, 0, grownEIDs, 0, staying);
+				System.arraycopy(keys, keys.length - moving, grownKeys, grownKeys.length - moving, moving);
+				System.arraycopy(eids, eids.length - moving, grownEIDs, grownEIDs.length - moving, moving);
+				keys = grownKeys;
+				eids = grownEIDs;
+			}
+			for (int i = 0; i < count; i++) {
+				int EID = existing.getEID(i);
+				if (getHash(EID, newH) == oldBucket) {
+					keys[staying] = existing.getKey(i);
+					eids[staying] = EID;
+					staying++;
+				} else {
+					moving++;
+					keys[keys.length - moving] = existing.getKey(i);
+					eids[eids.length - moving] = EID;
 				}
-				current.readEntry(fileBin, maxName, maxState, maxCOD);
-				System.out.println(current.toString());
-				return;
 			}
-		}
+			page = existing.getNext();
+			if (page != 0) {
+				overflow.add(page);
+			}
+		} while (page != 0);
 
-		System.out.println("No record associated with the EID= " + EID + " was found.\n");
+		//The moving entries were stored back to front, reverse them to keep their order.
+		for (int low = keys.length - moving, high = keys.length - 1; low < high; low++, high--) {
+			int swap = keys[low];
+			keys[low] = keys[high];
+			keys[high] = swap;
+			swap = eids[low];
+			eids[low] = eids[high];
+			eids[high] = swap;
+		}
+		if (sorted) {
+			sortEntries(keys, eids, 0, staying);
+			sortEntries(keys, eids, keys.length - moving, keys.length);
+		}
+		writeChain(getPage(oldBucket), keys, eids, 0, staying, overflow);
+		writeChain(getPage(newBucket), keys, eids, keys.length - moving, moving, overflow);
+		for (int leftover : overflow) {
+			freePage(leftover);
+		}
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method sortEntries(keys, eids, from, to)
+    |
+    |  Purpose:  Sorts the entries from to to - 1 by EID and equal EIDs by record number, the
+    |            order of a sorted block. Each entry is packed into one long(EID high, record
+    |            number low) so a primitive sort keeps the two arrays together. A TOMBSTONE sorts
+    |            after the live entries of its EID.
+    |
+    |  Pre-condition: The EIDs are not negative.
+    |
+    |  Post-condition: The entries in the range are sorted.
+    |
+    |  Parameters: keys, eids - the record numbers and EIDs.
+    |              from - the first entry of the range.
+    |              to - one past the last entry of the range.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private static void sortEntries(int[] keys, int[] eids, int from, int to) {
+		long[] packed = new long[to - from];
+		for (int i = from; i < to; i++) {
+			packed[i - from] = ((long) eids[i] << 32) | (keys[i] & 0xFFFFFFFFL);
 		}
+		Arrays.sort(packed);
+		for (int i = from; i < to; i++) {
+			eids[i] = (int) (packed[i - from] >> 32);
+			keys[i] = (int) packed[i - from];
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method writeChain(page, keys, eids, from, count, overflow)
+    |
+    |  Purpose:  Writes the entries as a chain of full blocks starting at the primary page.
+    |            Additional blocks take pages from the overflow list before allocating.
+    |
+    |  Pre-condition: The lhl.idx RAF must be open for writing.
+    |
+    |  Post-condition: Pages used are removed from the overflow list.
+    |
+    |  Parameters: page - the primary page of the bucket.
+    |              keys, eids - the record numbers and EIDs of the entries.
+    |              from - the array index of the bucket's first entry.
+    |              count - the number of entries belonging to the bucket.
+    |              overflow - pages that may be reused for the chain.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void writeChain(int page, int[] keys, int[] eids, int from, int count, ArrayList<Integer> overflow) {
+		int written = 0;
+		do {
+			//The cache keeps the blocks it is given, so it needs a new one every time.
+			EntryBlock block = chainBlock;
+			if (cache != null) {
+				block = new EntryBlock(layout);
+			}
+			block.setRecCount(0);
+			while (written < count && block.getRecCount() < bucketSize) {
+				block.add(eids[from + written], keys[from + written]);
+				written++;
+			}
+			int next = 0;
+			if (written < count) {
+				next = overflow.isEmpty() ? allocatePage() : overflow.remove(0);
+			}
+			block.setNext(next);
+			writeBlockAt(page, block);
+			page = next;
+		} while (page != 0);
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method writeHeader()
+    |
+    |  Purpose:  Writes the current hVal, split pointer, entry count, free list and overflow
+    |            placement(spares) to the header at the front of lhl.idx so the structure can be
+    |            reopened without guessing from the file length, then the flags(SORTEDFLAG), the
+    |            number of .bin records indexed and the deleted entries and records waiting for
+    |            compaction. It is followed by the
+    |            description of the index and its .bin: MAGIC, VERSION, the bucket and block
+    |            sizes, the record length, the three String lengths as the .bin trailer holds
+    |            them, the .bin length and its fingerprint, then a CRC32 of everything before
+    |            it. The whole header is built in memory and written at once.
+    |
+    |  Pre-condition: The lhl.idx RAF must be open for writing.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: None
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void writeHeader() {
+		ByteBuffer header = ByteBuffer.allocate(HEADERSIZE);
+		header.putInt(0, hVal);
+		header.putInt(4, split);
+		header.putLong(8, entryCount);
+		header.putInt(16, freeHead);
+		for (int i = 0; i < SPARESLEN; i++) {
+			header.putInt(20 + (i * 4), spares[i]);
+		}
+		header.putInt(FLAGS, sorted ? SORTEDFLAG : 0);
+		header.putLong(INDEXED, indexedRecords);
+		header.putLong(TOMBSTONES, tombstones);
+		header.putLong(DELETED, deletedRecords);
+		header.putInt(DESCRIPTION, MAGIC);
+		header.putInt(DESCRIPTION + 4, VERSION);
+		header.putInt(DESCRIPTION + 8, bucketSize);
+		header.putInt(DESCRIPTION + 12, blockSize);
+		header.putInt(DESCRIPTION + 16, recordLen);
+		header.putInt(DESCRIPTION + 20, maxName);
+		header.putInt(DESCRIPTION + 24, maxCOD);
+		header.putInt(DESCRIPTION + 28, maxState);
+		header.putLong(DESCRIPTION + 32, binLength);
+		header.putLong(DESCRIPTION + 40, binFingerprint);
+		header.putLong(CHECKED, checksum(header.array()));
+		indexBin.write(0, header.array());
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method readHeader()
+    |
+    |  Purpose:  Reads the values written by writeHeader() from the front of lhl.idx(see
+    |            loadHeader()), then checks before any lookup is served that the .bin opened is
+    |            the one the index was built from(same record layout, length and fingerprint)
+    |            and that the index covers all of it. Any mismatch is reported and ends the
+    |            program, like every other bad file.
+    |
+    |  Pre-condition: The lhl.idx RAF must be open and at least HEADERSIZE bytes long, and
+    |                 aquireMaxVals() has read the .bin.
+    |
+    |  Post-condition: hVal, split and the overflow placement are set for hashing.
+    |
+    |  Parameters: None
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void readHeader() {
+		ByteBuffer header = loadHeader();
+		if (!sameRecords(header) || header.getLong(DESCRIPTION + 32) != binLength
+				|| header.getLong(DESCRIPTION + 40) != binFingerprint) {
+			System.out.println("The .idx file was built from a different .bin(" + header.getLong(DESCRIPTION + 32)
+					+ " bytes of " + header.getInt(DESCRIPTION + 16) + " byte records). Rebuild it with Prog21.");
+			System.exit(-1);
+		}
+		//A logged build that was cut short keeps the records it indexed, the rest are appended.
+		if (indexedRecords < numRecords) {
+			System.out.println("The .idx file indexes only " + indexedRecords + " of the " + numRecords
+					+ " records, its build was interrupted. Finish it with Prog21 and the \"append\" option.");
+			System.exit(-1);
+		}
+	}
+
+	//True when the header describes records of the same length and String fields as the opened .bin.
+	private boolean sameRecords(ByteBuffer header) {
+		return header.getInt(DESCRIPTION + 16) == recordLen && header.getInt(DESCRIPTION + 20) == maxName
+				&& header.getInt(DESCRIPTION + 24) == maxCOD && header.getInt(DESCRIPTION + 28) == maxState;
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method loadHeader()
+    |
+    |  Purpose:  Reads the header of lhl.idx with one read and checks what does not depend on
+    |            the .bin: the magic number and version, the checksum and the bucket layout. The
+    |            hashing state, flags and indexed record count are then taken from it.
+    |
+    |  Pre-condition: The lhl.idx RAF must be open.
+    |
+    |  Post-condition: The layout, hVal, split pointer, overflow placement and flags are set.
+    |
+    |  Parameters: None
+    |
+    |  Returns: the header, for the caller to check the .bin against.
+    *-------------------------------------------------------------------*/
+	private ByteBuffer loadHeader() {
+		if (indexBin.length() < HEADERSIZE) {
+			System.out.println("The .idx file is too short to contain a header. Rebuild it with Prog21.");
+			System.exit(-1);
+		}
+		byte[] bytes = new byte[HEADERSIZE];
+		indexBin.read(0, bytes);
+		ByteBuffer header = ByteBuffer.wrap(bytes);
+		if (header.getInt(DESCRIPTION) != MAGIC) {
+			System.out.println("The .idx file has no index header, it was written by an older version. Rebuild it with Prog21.");
+			System.exit(-1);
+		}
+		//Version 1 headers may lack the flags, the indexed count or the deleted counts, nothing tells which.
+		if (header.getInt(DESCRIPTION + 4) < VERSION) {
+			System.out.println("The .idx file is version " + header.getInt(DESCRIPTION + 4)
+					+ ", it was written by an older version. Rebuild it with Prog21.");
+			System.exit(-1);
+		}
+		if (header.getInt(DESCRIPTION + 4) > VERSION) {
+			System.out.println("The .idx file is version " + header.getInt(DESCRIPTION + 4)
+					+ ", this program only reads version " + VERSION + ".");
+			System.exit(-1);
+		}
+		if (header.getLong(CHECKED) != checksum(bytes)) {
+			System.out.println("The .idx header is damaged(its checksum does not match). Rebuild it with Prog21.");
+			System.exit(-1);
+		}
+		//The bucket size the index was built with decides the whole layout, the block size is checked against it.
+		BlockLayout stored = new BlockLayout(header.getInt(DESCRIPTION + 8), false);
+		if (stored.getBucketSize() != header.getInt(DESCRIPTION + 8) || stored.getBlockSize() != header.getInt(DESCRIPTION + 12)) {
+			System.out.println("The .idx file claims buckets of " + header.getInt(DESCRIPTION + 8) + " entries in "
+					+ header.getInt(DESCRIPTION + 12) + " byte blocks, which is not a layout this program writes.");
+			System.exit(-1);
+		}
+		useLayout(stored);
+		hVal = header.getInt(0);
+		split = header.getInt(4);
+		entryCount = header.getLong(8);
+		freeHead = header.getInt(16);
+		for (int i = 0; i < SPARESLEN; i++) {
+			spares[i] = header.getInt(20 + (i * 4));
+		}
+		//An unsorted index is scanned linearly. A sorted index is still readable by a linear scan.
+		sorted = (header.getInt(FLAGS) & SORTEDFLAG) != 0;
+		indexedRecords = header.getLong(INDEXED);
+		tombstones = header.getLong(TOMBSTONES);
+		deletedRecords = header.getLong(DELETED);
+		return header;
+	}
+
+	//The CRC32 of the header bytes before the checksum.
+	private static long checksum(byte[] header) {
+		CRC32 crc = new CRC32();
+		crc.update(header, 0, CHECKED);
+		return crc.getValue();
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method fingerprintBin(length, trailer)
+    |
+    |  Purpose:  Computes a CRC32 of the first and last FINGERPRINT bytes of the first length
+    |            bytes of the .bin(the trailer included). Reading the whole .bin would make
+    |            opening as slow as building, while both ends are enough to tell apart two .bin
+    |            files of the same length, for example two years of the EIA data. The trailer
+    |            passed is used for the last TRAILERSIZE bytes, so a .bin that had records
+    |            written over its old trailer still gives the fingerprint it had when indexed.
+    |            Writes to the .bin still staged in the log are laid over it as well.
+    |
+    |  Pre-condition: fileBin is open and at least length bytes long.
+    |
+    |  Post-condition: The file pointer of fileBin is not used.
+    |
+    |  Parameters: length - the length of the .bin to fingerprint.
+    |              trailer - the trailer that ends it.
+    |
+    |  Returns: the fingerprint.
+    *-------------------------------------------------------------------*/
+	private long fingerprintBin(long length, byte[] trailer) throws IOException {
+		CRC32 crc = new CRC32();
+		int size = (int) Math.min(FINGERPRINT, length);
+		for (long start : new long[] { 0, length - size }) {
+			ByteBuffer bytes = ByteBuffer.allocate(size);
+			IndexFile.readAt(binChannel, start, bytes);
+			if (log != null) {
+				log.overlay(start, bytes);
+			}
+			for (int i = 0; i < trailer.length; i++) {
+				long at = length - trailer.length + i - start;
+				if (at >= 0 && at < size) {
+					bytes.put((int) at, trailer[i]);
+				}
+			}
+			crc.update(bytes.array());
+		}
+		return crc.getValue();
+	}
+
+	//The trailer of the .bin, the String lengths in the order aquireMaxVals() reads them.
+	private byte[] trailer() {
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILERSIZE);
+		trailer.putInt(maxName);
+		trailer.putInt(maxCOD);
+		trailer.putInt(maxState);
+		return trailer.array();
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method appendIndex()
+    |
+    |  Purpose:  Adds the records appended to the .bin since lhl.idx was written, instead of
+    |            rebuilding it. The index is opened for writing and the .bin it was built from
+    |            is taken from its header: the .bin must still start with it(same fingerprint
+    |            over the old length). The trailer is then moved behind the new records(see
+    |            moveTrailer()) and only the records from the indexed count on are inserted,
+    |            through the same path and growth as a record by record build. The bucket
+    |            layout and sorting are the ones the index was built with. A saved EID filter
+    |            holding every indexed EID gets the new EIDs too(resized when they would double
+    |            its false positive rate), a stale one is deleted.
+    |
+    |  Pre-condition: lhl.idx exists and fileBin is open for writing.
+    |
+    |  Post-condition: lhl.idx indexes every record of the .bin and its header describes the
+    |                  .bin as it now is.
+    |
+    |  Parameters: None
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void appendIndex() {
+		indexBin = new IndexFile(IDXPATH, "rw", settings.isMapped());
+		ByteBuffer header = loadHeader();
+		recordLen = header.getInt(DESCRIPTION + 16);
+		maxName = header.getInt(DESCRIPTION + 20);
+		maxCOD = header.getInt(DESCRIPTION + 24);
+		maxState = header.getInt(DESCRIPTION + 28);
+		binLength = header.getLong(DESCRIPTION + 32);
+		try {
+			if (fileBin.length() < binLength || fingerprintBin(binLength, trailer()) != header.getLong(DESCRIPTION + 40)) {
+				System.out.println("The .bin does not start with the .bin lhl.idx was built from, so nothing can be appended. Rebuild it with Prog21.");
+				System.exit(-1);
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the .bin file.");
+			System.exit(-1);
+		}
+		moveTrailer();
+		aquireMaxVals();
+		if (!sameRecords(header) || numRecords * recordLen + TRAILERSIZE != binLength) {
+			System.out.println("The records appended to the .bin do not have the layout of its first " + indexedRecords
+					+ " records(" + recordLen + " bytes each).");
+			System.exit(-1);
+		}
+
+		currBlock = new EntryBlock(layout);
+		chainBlock = new EntryBlock(layout);
+		startLog(IDXPATH);
+		if (settings.getCacheSize() > 0) {
+			cache = new BlockCache(indexBin, layout, settings.getCacheSize());
+		}
+		filter = EIDFilter.read(IDXPATH + FILTEREXT);
+		if (filter != null && filter.getEntries() != entryCount) {
+			filter = null;
+		}
+
+		long first = indexedRecords;
+		int[] eids = new int[(int) numRecords];
+		for (SidecarFile<?> each : sidecars) {
+			each.at(IDXPATH);
+		}
+		//A saved state index of the old .bin gets the new records too, the settings can ask for a new one.
+		StateIndex saved = StateIndex.read(states.path);
+		if (saved != null && saved.describes(header.getLong(DESCRIPTION + 32), header.getLong(DESCRIPTION + 40))) {
+			states.current = saved.writable();
+		} else if (settings.isStateIndex()) {
+			states.current = new StateIndex();
+			readEIDs(eids, 0, (int) first, states.current);
+		}
+		if (saved != null) {
+			saved.close();
+		}
+		readEIDs(eids, (int) first, eids.length, states.current);
+		//An append that resumes an interrupted build can meet records deleted since.
+		for (int i = (int) first; i < eids.length; i++) {
+			if (eids[i] < 0) {
+				deletedRecords++;
+			} else {
+				writeToIDX(eids[i], i);
+			}
+			indexedRecords = i + 1;
+			endChange(false);
+		}
+		indexedRecords = numRecords;
+		//A filter sized for the old records is rebuilt at the rate it was sized for once the new ones would double it.
+		if (filter != null && filter.expectedRate() > 2 * filter.getRate()) {
+			filter = new EIDFilter(numRecords, filter.getRate());
+			readEIDs(eids, 0, (int) first, null);
+			for (int EID : eids) {
+				if (EID >= 0) {
+					filter.add(EID);
+				}
+			}
+		}
+		if (cache != null) {
+			cache.flush();
+			System.out.println(cache.toString());
+			cache = null;
+		}
+		writeHeader();
+		closeLog();
+		indexBin.force();
+		saveFilter();
+		//The other saved sidecars are built again with the new records, that keeps every leaf of a tree full and the cells of a grid sized for the records they hold.
+		for (SidecarFile<?> each : sidecars) {
+			if (each.current != null || each.wanted() || each.exists()) {
+				each.write();
+			}
+		}
+		System.out.println("Appended " + (numRecords - first) + " records to the " + first + " already indexed.");
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method moveTrailer()
+    |
+    |  Purpose:  Puts the trailer of the .bin back at its end after records were appended to
+    |            it. Records appended behind the old trailer(with or without a trailer of their
+    |            own, as when a second .bin is added to the end) are moved TRAILERSIZE bytes
+    |            forward over the old trailer a window at a time, the trailer is written after
+    |            them and any second trailer is cut off. When the old trailer is no longer where
+    |            the index left it, the records were already written in place and nothing moves.
+    |
+    |  Pre-condition: appendIndex() has checked that the .bin starts with the indexed .bin and
+    |                 set binLength and the String lengths from the header.
+    |
+    |  Post-condition: The .bin is records followed by one trailer.
+    |
+    |  Parameters: None
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void moveTrailer() {
+		byte[] trailer = trailer();
+		long oldTrailer = binLength - TRAILERSIZE;
+		try {
+			long length = fileBin.length();
+			byte[] found = new byte[TRAILERSIZE];
+			fileBin.seek(oldTrailer);
+			fileBin.readFully(found);
+			if (length == binLength || !Arrays.equals(found, trailer)) {
+				return;
+			}
+			long appended = length - binLength;
+			if (appended % recordLen == TRAILERSIZE) {
+				fileBin.seek(length - TRAILERSIZE);
+				fileBin.readFully(found);
+				if (Arrays.equals(found, trailer)) {
+					appended = appended - TRAILERSIZE;
+				}
+			}
+			if (appended % recordLen != 0) {
+				System.out.println("The " + appended + " bytes appended to the .bin are not whole " + recordLen
+						+ " byte records.");
+				System.exit(-1);
+			}
+			//Moving toward the front one window at a time never overwrites bytes still to be moved.
+			ByteBuffer window = ByteBuffer.allocate(READWINDOW);
+			for (long moved = 0; moved < appended; moved = moved + window.capacity()) {
+				window.clear();
+				window.limit((int) Math.min(window.capacity(), appended - moved));
+				IndexFile.readAt(binChannel, binLength + moved, window);
+				window.flip();
+				while (window.hasRemaining()) {
+					binChannel.write(window, oldTrailer + moved + window.position());
+				}
+			}
+			fileBin.seek(oldTrailer + appended);
+			fileBin.write(trailer);
+			fileBin.setLength(oldTrailer + appended + TRAILERSIZE);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't move the trailer of the .bin file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+	}
+	
+
+	/*---------------------------------------------------------------------
+    |  Method updatePositions(stream)
+    |
+    |  Purpose:  This method is called to physically increase the storage on the HD by doubling the
+    |            capacity of the index. The hashing function used ensures that one of two buckets will
+    |            determine the position of an entry into a bucket. All current entries are updated to
+    |            new positions within the index bucket structure. These values are stored with an ordering
+    |            based on the .bin file from project 1(that is as a Record Class). The reference in the index
+    |            file will point to the position the bytes exist for that record in the .bin DB file. Maintaining
+    |            this structure will ultimately allow us to search quickly using only the bucket position. THis 
+    |            implementation is based on Dr. McCann's Linear Hashing lite algorithm. Each old bucket's
+    |            whole overflow chain is rehashed with its sibling in the new half.
+    |           
+    |
+    |  Pre-condition: The bin file must be freshly expanded(from writeBlank(). The entire expansion process is handled from
+    |                 this method.
+    |
+    |  Post-condition: The .bin file for lhl.idx will be doubled in capacity and have all currently hashed values updated to
+    |                  new positions.
+    |  
+    |
+    |  Parameters: stream- The RAF file stream containing the lhl.idx RAF.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void updatePositions(IndexFile stream) {
+
+		// This gives the total number of buckets
+		int blockMax = (int) (Math.pow(2, hVal + 1));
+		//This value acts as the end of the old
+		int indexMax = blockMax - 1;
+		int blockPosition = (indexMax / 2);
+
+		//This section reads through each of the old half of the .idx file
+		//The values contained within are rehashed to either the current location
+		//or a new location.
+		while (blockPosition >= 0) {
+			rehashChain(blockPosition, indexMax, hVal);
+			blockPosition--;
+			indexMax--;
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method blockCount(page) and the other block accessors
+    |
+    |  Purpose:  Every block access made while building goes through these methods. With the
+    |            block cache enabled they work on the cached, decoded block and only mark it
+    |            dirty; without it they read and write just the ints involved, as before.
+    |
+    |  Pre-condition: The page must hold a block.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: page - the page of the block.
+    |
+    |  Returns: blockCount the number of entries, blockNext the overflow link.
+    *-------------------------------------------------------------------*/
+	private int blockCount(int page) {
+		if (cache != null) {
+			return cache.get(page).getRecCount();
+		}
+		return getBinBucketCount(page);
+	}
+	
+	private int blockNext(int page) {
+		if (cache != null) {
+			return cache.get(page).getNext();
+		}
+		return currBlock.readNext(indexBin, page);
+	}
+	
+	private void setBlockNext(int page, int next) {
+		if (cache != null) {
+			cache.get(page).setNext(next);
+			cache.markDirty(page);
+			return;
+		}
+		currBlock.writeNext(indexBin, page, next);
+	}
+	
+	private void appendEntry(int page, int EID, int key) {
+		//A sorted block is rewritten whole with the entry in its place.
+		if (sorted) {
+			EntryBlock block = readBlockAt(page);
+			block.insert(EID, key);
+			writeBlockAt(page, block);
+			return;
+		}
+		if (cache != null) {
+			cache.get(page).add(EID, key);
+			cache.markDirty(page);
+			return;
+		}
+		currBlock.writeEntry(indexBin, page, EID, key);
+	}
+	
+	private EntryBlock readBlockAt(int page) {
+		if (cache != null) {
+			return cache.get(page);
+		}
+		//Callers copy what they need before the next read, so one block is reused.
+		return currBlock.readBlock(indexBin, page);
+	}
+	
+	private void writeBlockAt(int page, EntryBlock block) {
+		if (cache != null) {
+			cache.put(page, block);
+			return;
+		}
+		block.writeBlock(indexBin, page);
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method bulkLoad()
+    |
+    |  Purpose:  Builds the whole index in two passes instead of inserting record by record.
+    |            The bucket count is chosen up front from numRecords and the fill factor in the
+    |            settings, which fixes hVal and the split pointer(rounded up to a power of two
+    |            when the index doubles). The first pass reads every EID from the .bin and
+    |            counting sorts the record numbers by bucket in memory(16 bytes per record). The
+    |            second pass writes the primary blocks in page order, WRITEBLOCKS at a time, and
+    |            then the overflow blocks of any bucket holding more than bucketSize entries, so
+    |            every block is written exactly once and the writes are sequential.
+    |
+    |            The first pass runs on settings.getThreads() contiguous record ranges at once.
+    |            Each range reads and hashes its own records and counts its own buckets. The
+    |            counts are merged bucket by bucket with the ranges in record order, so every
+    |            bucket lists its records in record order and the index is byte for byte the
+    |            one a single thread builds. The blocks are still written by one thread as one
+    |            sequential stream.
+    |
+    |  Pre-condition: lhl.idx is open and empty, aquireMaxVals() has set numRecords.
+    |
+    |  Post-condition: Every record of the .bin has an entry in its bucket.
+    |
+    |  Parameters: None
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void bulkLoad() {
+		int[] eids = new int[(int) numRecords];
+
+		//Pick the bucket count, then the hVal and split pointer that describe it.
+		int buckets = (int) Math.max(1, Math.ceil(eids.length / (bucketSize * settings.getFillFactor())));
+		hVal = 30 - Integer.numberOfLeadingZeros(buckets);
+		split = buckets - (int) (Math.pow(2, hVal + 1));
+		if (!settings.isLinear() && split != 0) {
+			hVal++;
+			split = 0;
+			buckets = (int) (Math.pow(2, hVal + 1));
+		}
+		spares[hVal + 3] = spares[hVal + 2];
+
+		//First pass: every range reads its EIDs and counts the entries of each bucket.
+		int ranges = Math.max(1, Math.min(settings.getThreads(), eids.length));
+		int[] bucketOf = new int[eids.length];
+		int[][] fill = new int[ranges][buckets];
+		StateIndex[] rangeStates = new StateIndex[ranges];
+		runRanges(ranges, range -> {
+			int first = rangeStart(range, ranges, eids.length);
+			int last = rangeStart(range + 1, ranges, eids.length);
+			rangeStates[range] = states.current != null ? new StateIndex() : null;
+			readEIDs(eids, first, last, rangeStates[range]);
+			for (int i = first; i < last; i++) {
+				//Deleted records(negative EIDs) get no bucket.
+				bucketOf[i] = eids[i] < 0 ? -1 : getHash(eids[i]);
+				if (bucketOf[i] >= 0) {
+					fill[range][bucketOf[i]]++;
+				}
+			}
+		});
+		if (filter != null) {
+			for (int EID : eids) {
+				if (EID >= 0) {
+					filter.add(EID);
+				}
+			}
+		}
+		//The ranges are merged in record order, so every posting list stays ascending.
+		if (states.current != null) {
+			for (StateIndex part : rangeStates) {
+				states.current.addAll(part);
+			}
+		}
+
+		//Turn the counts into where each range starts writing inside each bucket.
+		int[] start = new int[buckets + 1];
+		int placed = 0;
+		for (int b = 0; b < buckets; b++) {
+			start[b] = placed;
+			for (int range = 0; range < ranges; range++) {
+				int count = fill[range][b];
+				fill[range][b] = placed;
+				placed = placed + count;
+			}
+		}
+		start[buckets] = placed;
+
+		//Place the record numbers in bucket order, every range into its own slots.
+		int[] keys = new int[eids.length];
+		int[] sortedEIDs = new int[eids.length];
+		runRanges(ranges, range -> {
+			int last = rangeStart(range + 1, ranges, eids.length);
+			for (int i = rangeStart(range, ranges, eids.length); i < last; i++) {
+				if (bucketOf[i] < 0) {
+					continue;
+				}
+				int at = fill[range][bucketOf[i]]++;
+				keys[at] = i;
+				sortedEIDs[at] = eids[i];
+			}
+		});
+
+		//Every bucket is one sorted run, so each of its blocks is sorted too.
+		if (sorted) {
+			int bucketCount = buckets;
+			runRanges(ranges, range -> {
+				int last = rangeStart(range + 1, ranges, bucketCount);
+				for (int b = rangeStart(range, ranges, bucketCount); b < last; b++) {
+					sortEntries(keys, sortedEIDs, start[b], start[b + 1]);
+				}
+			});
+		}
+
+		//Second pass: the primary blocks are pages 0 to buckets - 1 since nothing has overflowed yet.
+		ByteBuffer chunk = ByteBuffer.allocate(blockSize * WRITEBLOCKS);
+		int[] firstOverflow = new int[buckets];
+		int chunkPage = 0;
+		for (int b = 0; b < buckets; b++) {
+			int count = start[b + 1] - start[b];
+			int next = 0;
+			if (count > bucketSize) {
+				next = newPage();
+				firstOverflow[b] = next;
+				for (int extra = count - (2 * bucketSize); extra > 0; extra = extra - bucketSize) {
+					newPage();
+				}
+			}
+			if (!chunk.hasRemaining()) {
+				chunkPage = writeChunk(chunk, chunkPage);
+			}
+			layout.encode(chunk, keys, sortedEIDs, start[b], Math.min(count, bucketSize), next);
+		}
+		chunkPage = writeChunk(chunk, chunkPage);
+
+		//The overflow pages were handed out in bucket order, so they are written in page order too.
+		for (int b = 0; b < buckets; b++) {
+			int page = firstOverflow[b];
+			if (page == 0) {
+				continue;
+			}
+			if (chunk.position() == 0) {
+				chunkPage = page;
+			}
+			for (int from = start[b] + bucketSize; from < start[b + 1]; from = from + bucketSize) {
+				int count = Math.min(bucketSize, start[b + 1] - from);
+				int next = (from + bucketSize < start[b + 1]) ? page + 1 : 0;
+				if (!chunk.hasRemaining()) {
+					chunkPage = writeChunk(chunk, chunkPage);
+				}
+				layout.encode(chunk, keys, sortedEIDs, from, count, next);
+				page++;
+			}
+		}
+		writeChunk(chunk, chunkPage);
+		entryCount = placed;
+		deletedRecords = eids.length - placed;
+	}
+	
+	//Writes the blocks buffered in chunk starting at firstPage and returns the page after them.
+	private int writeChunk(ByteBuffer chunk, int firstPage) {
+		int blocks = chunk.position() / blockSize;
+		if (blocks > 0) {
+			indexBin.write(layout.blockStart(firstPage), chunk.array(), chunk.position());
+		}
+		chunk.clear();
+		return firstPage + blocks;
+	}
+	
+	//The first record of a range when the records are divided into nearly equal ranges.
+	private static int rangeStart(int range, int ranges, int records) {
+		return (int) ((long) records * range / ranges);
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method runRanges(ranges, work)
+    |
+    |  Purpose:  Runs work once for every range number, each on its own thread, and waits for
+    |            all of them. A single range runs on the calling thread.
+    |
+    |  Pre-condition: The work of different ranges must only write to their own slots.
+    |
+    |  Post-condition: Every range has finished.
+    |
+    |  Parameters: ranges - the number of ranges.
+    |              work - the work to do for one range number.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private static void runRanges(int ranges, IntConsumer work) {
+		if (ranges == 1) {
+			work.accept(0);
+			return;
+		}
+		Thread[] workers = new Thread[ranges];
+		for (int range = 0; range < ranges; range++) {
+			int mine = range;
+			workers[range] = new Thread(() -> work.accept(mine));
+			workers[range].start();
+		}
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			System.out.println("ERROR: Interrupted while waiting for the index build.");
+			System.exit(-1);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method readEIDs(eids, first, last, states)
+    |
+    |  Purpose:  Reads only the EID of the records first to last - 1 in the .bin with one
+    |            buffered sequential pass through its own stream, skipping the rest of each
+    |            record, so several ranges can be read at the same time. When states is
+    |            given the state of every record that is not deleted is read in the same
+    |            pass and added to it.
+    |
+    |  Pre-condition: aquireMaxVals() has set recordLen and numRecords.
+    |
+    |  Post-condition: fileBin is not moved.
+    |
+    |  Parameters: eids - the EIDs indexed by record number, filled for the range.
+    |              first - the first record of the range.
+    |              last - one past the last record of the range.
+    |              states - gets the record numbers of the range by state, null to skip the states.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void readEIDs(int[] eids, int first, int last, StateIndex states) {
+		byte[] state = new byte[maxState];
+		try {
+			FileInputStream file = new FileInputStream(binPath + ".bin");
+			file.getChannel().position((long) first * recordLen);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16));
+			for (int i = first; i < last; i++) {
+				eids[i] = in.readInt();
+				if (states == null) {
+					in.skipBytes(recordLen - 4);
+					continue;
+				}
+				in.skipBytes(maxName + maxCOD);
+				in.readFully(state);
+				in.skipBytes(recordLen - 4 - maxName - maxState - maxCOD);
+				if (eids[i] >= 0) {
+					states.add(new String(state), i);
+				}
+			}
+			in.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the EIDs from the .bin file.");
+			System.exit(-1);
+		}
+	}
+
+	//Reads only the latitude and longitude of every record with one buffered pass like readEIDs(), NaN for a deleted record.
+	private void readPoints(double[] lats, double[] lons) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binPath + ".bin"), 1 << 16));
+			for (int i = 0; i < lats.length; i++) {
+				boolean deleted = in.readInt() < 0;
+				in.skipBytes(maxName + maxState + maxCOD);
+				lats[i] = deleted ? Double.NaN : in.readDouble();
+				lons[i] = deleted ? Double.NaN : in.readDouble();
+				in.skipBytes(recordLen - 4 - maxName - maxState - maxCOD - (deleted ? 0 : 16));
+			}
+			in.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the coordinates from the .bin file.");
+			System.exit(-1);
+		}
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method checkEID()
+    |
+    |  Purpose:  This method combines all current functionality for the .bin DB file and .idx file
+    |            to allow searching via EID. This is a hash search which will find the correct bucket
+    |            (determined by the hash value). Note to grader: I broke the r
+    |           
+    |
+    |  Pre-condition: The bin file must be freshly expanded(from writeBlank(). The entire expansion process is handled from
+    |                 this method.
+    |
+    |  Post-condition: The .bin file for lhl.idx will be doubled in capacity and have all currently hashed values updated to
+    |                  new positions.
+    |  
+    |
+    |  Parameters: stream The RAF file stream containing the lhl.idx RAF.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void checkEID(int EID) {
+
+		//With a record cache the decoded Record is kept for next time, otherwise nothing is decoded past what is printed.
+		String found = null;
+		if (records != null) {
+			Record record = lookup(EID);
+			if (record != null) {
+				found = record.toString();
+			}
+		} else {
+			RecordView view = view(EID);
+			if (view != null) {
+				found = view.toString();
+			}
+		}
+		if (found != null) {
+			System.out.println("The EID was found!\n");
+			System.out.println(found);
+			return;
+		}
+
+		System.out.println("No record associated with the EID= " + EID + " was found.\n");
+		}
+	
+	/*---------------------------------------------------------------------
+    |  Method lookup(EID)
+    |
+    |  Purpose:  The hash search behind checkEID without any printing. findOffset() finds where
+    |            the record is, then the Record is read from the .bin at that offset. With a
+    |            record cache, a copy of the cached Record is returned without either step and a
+    |            Record that was read is cached, so a caller changing what it got(to pass it to
+    |            update(), say) never changes the cache.
+    |            Every block and record is read by position(see readRecord()), so any number of
+    |            threads may look up at the same time once the index is built or opened. A
+    |            thread interrupted during a read closes the channels, as with any FileChannel.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: EID - the EID to search for.
+    |
+    |  Returns: the Record with the EID, or null when the EID is not in the index.
+    *-------------------------------------------------------------------*/
+	public Record lookup(int EID) {
+		Lock held = readLock();
+		try {
+			if (records != null) {
+				Record cached = records.get(EID);
+				if (cached != null) {
+					return cached.copy();
+				}
+			}
+			long offset = findOffset(EID);
+			if (offset == NOTFOUND) {
+				return null;
+			}
+			ByteBuffer bytes = ByteBuffer.allocate(recordLen);
+			readRecord(offset, bytes);
+			bytes.flip();
+			Record found = new Record(0);
+			found.readEntry(bytes, maxName, maxState, maxCOD);
+			if (records != null) {
+				records.put(EID, found.copy());
+			}
+			return found;
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method findOffset(EID)
+    |
+    |  Purpose:  The bucket for the EID is found with getHash() and its overflow chain is followed
+    |            until the EID is found. The blocks are read into this thread's own reusable buffer
+    |            and the EIDs are compared straight from it, so after the first call of a thread
+    |            nothing is allocated: no EntryBlock, Entry, Record or String.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: EID - the EID to search for.
+    |
+    |  Returns: the byte offset of the record in the .bin, or NOTFOUND(always for a negative EID).
+    *-------------------------------------------------------------------*/
+	public long findOffset(int EID) {
+		//Negative EIDs are never indexed, deleted slots hold ~EID.
+		if (EID < 0) {
+			return NOTFOUND;
+		}
+		if (filter != null && !filter.mightContain(EID)) {
+			return NOTFOUND;
+		}
+		Lock held = readLock();
+		try {
+			ByteBuffer block = probe.get();
+			int page = getPage(getHash(EID));
+			//Follow the bucket's overflow chain until the EID is found or the chain ends.
+			do {
+				block.clear();
+				indexBin.read(layout.blockStart(page), block);
+				int found = searchBlock(block, EID);
+				if (found >= 0) {
+					return (long) block.getInt(found * ENTRYSIZE) * recordLen;
+				}
+				page = block.getInt(bucketSize * ENTRYSIZE + 4);
+			} while (page != 0);
+
+			if (filter != null) {
+				filter.falsePositive();
+			}
+			return NOTFOUND;
+		} finally {
+			unlock(held);
+		}
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method searchBlock(block, EID)
+    |
+    |  Purpose:  Finds the EID among the entries of one block as stored in lhl.idx. A sorted
+    |            block is binary searched for the first entry with the EID(the lowest record
+    |            number, the one a linear scan of an unsorted block finds first), any other
+    |            block is scanned. Deleted entries(TOMBSTONE) never match.
+    |
+    |  Pre-condition: block holds a whole block read from lhl.idx.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: block - the block.
+    |              EID - the EID to search for.
+    |
+    |  Returns: the index of the entry in the block, or -1 when the EID is not in it.
+    *-------------------------------------------------------------------*/
+	private int searchBlock(ByteBuffer block, int EID) {
+		int count = block.getInt(bucketSize * ENTRYSIZE);
+		if (!sorted) {
+			for (int i = 0; i < count; i++) {
+				if (block.getInt(i * ENTRYSIZE + 4) == EID && block.getInt(i * ENTRYSIZE) != TOMBSTONE) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (block.getInt(middle * ENTRYSIZE + 4) < EID) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		//Deleted entries keep their EID, the first live one of the run is the match.
+		for (; low < count && block.getInt(low * ENTRYSIZE + 4) == EID; low++) {
+			if (block.getInt(low * ENTRYSIZE) != TOMBSTONE) {
+				return low;
+			}
+		}
+		return -1;
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method lookupAll(eids)
+    |
+    |  Purpose:  Looks up many EIDs at once. The requested EIDs are sorted by bucket so the
+    |            chain of each bucket is read only once no matter how many of its EIDs were
+    |            asked for. The record numbers found are then sorted so the .bin is read in
+    |            ascending offset order, through a window of READWINDOW bytes that is only
+    |            refilled when the next record is past its end.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: eids - the EIDs to search for, in any order and possibly repeated.
+    |
+    |  Returns: the Records found keyed by EID. EIDs that are not in the index(negative ones
+    |           included) are absent.
+    *-------------------------------------------------------------------*/
+	public HashMap<Integer, Record> lookupAll(int[] eids) {
+		Lock held = readLock();
+		try {
+			HashMap<Integer, Record> results = new HashMap<Integer, Record>();
+
+			//Bucket in the high half and the request position in the low half sorts requests by bucket.
+			//Negative EIDs(never indexed) and EIDs the filter rules out are dropped here and never cost a block read.
+			long[] byBucket = new long[eids.length];
+			int requests = 0;
+			for (int i = 0; i < eids.length; i++) {
+				if (eids[i] >= 0 && (filter == null || filter.mightContain(eids[i]))) {
+					byBucket[requests] = ((long) getHash(eids[i]) << 32) | i;
+					requests++;
+				}
+			}
+			Arrays.sort(byBucket, 0, requests);
+
+			//Record number in the high half and EID in the low half sorts the hits by .bin offset.
+			long[] found = new long[eids.length];
+			int resolved = 0;
+			EntryBlock toCheck = new EntryBlock(layout);
+			int first = 0;
+			while (first < requests) {
+				int bucket = (int) (byBucket[first] >>> 32);
+				HashSet<Integer> wanted = new HashSet<Integer>();
+				int last = first;
+				while (last < requests && (int) (byBucket[last] >>> 32) == bucket) {
+					wanted.add(eids[(int) byBucket[last]]);
+					last++;
+				}
+
+				int page = getPage(bucket);
+				do {
+					toCheck.readBlock(indexBin, page);
+					for (int i = 0; i < toCheck.getRecCount(); i++) {
+						if (toCheck.getKey(i) != TOMBSTONE && wanted.remove(toCheck.getEID(i))) {
+							found[resolved] = ((long) toCheck.getKey(i) << 32) | (toCheck.getEID(i) & 0xFFFFFFFFL);
+							resolved++;
+						}
+					}
+					page = toCheck.getNext();
+				} while (page != 0 && !wanted.isEmpty());
+				first = last;
+			}
+
+			Arrays.sort(found, 0, resolved);
+			byte[] window = new byte[Math.max(READWINDOW, recordLen)];
+			ByteBuffer records = ByteBuffer.wrap(window);
+			long windowStart = 0;
+			int windowLength = 0;
+			for (int i = 0; i < resolved; i++) {
+				long offset = (found[i] >>> 32) * recordLen;
+				if (windowLength == 0 || offset + recordLen > windowStart + windowLength) {
+					windowStart = offset;
+					windowLength = (int) Math.min(window.length, (numRecords * recordLen) - offset);
+					records.clear();
+					records.limit(windowLength);
+					readRecord(offset, records);
+					records.clear();
+				}
+				Record record = new Record(0);
+				records.position((int) (offset - windowStart));
+				record.readEntry(records, maxName, maxState, maxCOD);
+				results.put((int) found[i], record);
+			}
+			return results;
+		} finally {
+			unlock(held);
+		}
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method readRecord(offset, bytes)
+    |
+    |  Purpose:  Fills bytes from the .bin starting at offset with a positional read, leaving the
+    |            file pointer of fileBin alone so concurrent lookups do not interfere.
+    |
+    |  Pre-condition: The range must be inside the .bin file.
+    |
+    |  Post-condition: bytes is full.
+    |
+    |  Parameters: offset - the byte offset of the first record wanted.
+    |              bytes - the buffer to fill, up to its limit.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void readRecord(long offset, ByteBuffer bytes) {
+		try {
+			IndexFile.readAt(binChannel, offset, bytes);
+		} catch (IOException e) {
+			System.out.println(
+					"I/O ERROR: Couldn't read from the file;\n\t" + "The record at " + offset + " might be past the end.");
+			System.exit(-1);
+		}
+	}
+	
+	/*---------------------------------------------------------------------
+    |  Method view(EID)
+    |
+    |  Purpose:  Looks the EID up like lookup() but returns this thread's RecordView on the
+    |            record instead of decoding a Record, so the caller only pays for the fields it
+    |            reads. In mapped mode the view sits directly on the mapping of the .bin,
+    |            otherwise on this thread's record buffer filled by one positional read.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: The view returned by this thread's previous call now shows this record.
+    |
+    |  Parameters: EID - the EID to search for.
+    |
+    |  Returns: the view on the record, or null when the EID is not in the index.
+    *-------------------------------------------------------------------*/
+	public RecordView view(int EID) {
+		Lock held = readLock();
+		try {
+			long offset = findOffset(EID);
+			if (offset == NOTFOUND) {
+				return null;
+			}
+			long record = offset / recordLen;
+			if (settings.isMapped()) {
+				MappedByteBuffer[] segments = mapBin();
+				return views.get().wrap(segments[(int) (record / segmentRecords)], (int) (record % segmentRecords) * recordLen);
+			}
+			ByteBuffer bytes = recordBuffer.get();
+			bytes.clear();
+			readRecord(offset, bytes);
+			return views.get().wrap(bytes, 0);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachRecord(action)
+    |
+    |  Purpose:  Scans the .bin in record order, handing every record that is not deleted to
+    |            action through one RecordView. In mapped mode the view moves over the mapping, otherwise over a
+    |            buffer refilled with READWINDOW bytes of whole records at a time.
+    |
+    |  Pre-condition: The .bin must be open.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: action - called once per record. The view is only valid during the call.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void forEachRecord(Consumer<RecordView> action) {
+		Lock held = readLock();
+		try {
+			RecordView view = newView();
+			if (settings.isMapped()) {
+				for (MappedByteBuffer segment : mapBin()) {
+					for (int base = 0; base < segment.capacity(); base = base + recordLen) {
+						if (view.wrap(segment, base).getEid() >= 0) {
+							action.accept(view);
+						}
+					}
+				}
+				return;
+			}
+			int windowRecords = Math.max(1, READWINDOW / recordLen);
+			ByteBuffer window = ByteBuffer.allocate(windowRecords * recordLen);
+			for (long first = 0; first < numRecords; first = first + windowRecords) {
+				int count = (int) Math.min(windowRecords, numRecords - first);
+				window.clear();
+				window.limit(count * recordLen);
+				readRecord(first * recordLen, window);
+				for (int i = 0; i < count; i++) {
+					if (view.wrap(window, i * recordLen).getEid() >= 0) {
+						action.accept(view);
+					}
+				}
+			}
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachInState(state, action)
+    |
+    |  Purpose:  Hands every record of the state to action through one RecordView, in record
+    |            order. With the state index only the records on its posting list are read:
+    |            one read covers the postings that fit in READWINDOW bytes from the first of
+    |            them to the last, so the .bin is read in ascending offset order and the
+    |            records between states are skipped. In mapped mode the view moves over the
+    |            mapping. Without the state index the whole .bin is scanned(see forEachRecord()).
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: state - the state code wanted, padded or not.
+    |              action - called once per record. The view is only valid during the call.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void forEachInState(String state, Consumer<RecordView> action) {
+		String wanted = StateIndex.key(state);
+		if (states.current == null) {
+			forEachRecord(view -> {
+				if (StateIndex.key(view.getState()).equals(wanted)) {
+					action.accept(view);
+				}
+			});
+			return;
+		}
+		Lock held = readLock();
+		try {
+			forEachListed(states.current.postings(wanted), action);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	//Prints every record of the state like checkEID() prints one, then how many there were.
+	public void checkState(String state) {
+		int[] found = new int[1];
+		forEachInState(state, view -> {
+			System.out.println(view.toString());
+			found[0]++;
+		});
+		if (found[0] == 0) {
+			System.out.println("No record with the state " + StateIndex.key(state) + " was found.\n");
+		} else {
+			System.out.println(found[0] + " records with the state " + StateIndex.key(state) + " were found.\n");
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachInRange(low, high, action)
+    |
+    |  Purpose:  Hands every record with an EID from low to high to action through one
+    |            RecordView, in EID order(then record number), every record with the EID
+    |            included. With the tree one descent finds the first leaf and the leaves are
+    |            followed from there(see EIDTree.range()). Without it a range that is narrower
+    |            than the .bin holds records costs one probe per EID, found or not(see
+    |            probeRange()), and a wider one one pass over the EIDs(see scanRange()). Records
+    |            that follow each other in the .bin are read together, up to READWINDOW bytes,
+    |            so forEachInRange(0, Integer.MAX_VALUE) iterates the whole .bin in EID order.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: low - the smallest EID wanted.
+    |              high - the largest EID wanted.
+    |              action - called once per record. The view is only valid during the call.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void forEachInRange(int low, int high, Consumer<RecordView> action) {
+		Lock held = readLock();
+		try {
+			long[] found;
+			if (tree.current != null) {
+				found = tree.current.range(low, high);
+			} else if ((long) high - Math.max(0, low) + 1 > numRecords) {
+				found = scanRange(low, high);
+			} else {
+				found = probeRange(low, high);
+			}
+			RecordView view = newView();
+			MappedByteBuffer[] segments = settings.isMapped() ? mapBin() : null;
+			//A short range never needs a whole READWINDOW, and the mapping needs no window at all.
+			int windowRecords = Math.max(1, Math.min(READWINDOW / recordLen, found.length));
+			ByteBuffer window = segments != null ? null : ByteBuffer.allocate(windowRecords * recordLen);
+			int first = 0;
+			while (first < found.length) {
+				int start = (int) found[first];
+				if (segments != null) {
+					if (view.wrap(segments[start / segmentRecords], (start % segmentRecords) * recordLen).getEid() >= 0) {
+						action.accept(view);
+					}
+					first++;
+					continue;
+				}
+				//The entries after this one whose records come next in the .bin share its read.
+				int last = first;
+				while (last + 1 < found.length && (int) found[last + 1] == (int) found[last] + 1 && last + 1 - first < windowRecords) {
+					last++;
+				}
+				window.clear();
+				window.limit((last - first + 1) * recordLen);
+				readRecord((long) start * recordLen, window);
+				for (int i = first; i <= last; i++) {
+					if (view.wrap(window, (i - first) * recordLen).getEid() >= 0) {
+						action.accept(view);
+					}
+				}
+				first = last + 1;
+			}
+		} finally {
+			unlock(held);
+		}
+	}
+
+	//Every record with an EID from low to high found with one pass over the EIDs of the .bin, as forEachInRange() wants them.
+	private long[] scanRange(int low, int high) {
+		int[] eids = new int[(int) numRecords];
+		readEIDs(eids, 0, eids.length, null);
+		long[] pairs = new long[eids.length];
+		int count = 0;
+		for (int i = 0; i < eids.length; i++) {
+			//Deleted records hold a negative EID.
+			if (eids[i] >= 0 && eids[i] >= low && eids[i] <= high) {
+				pairs[count] = ((long) eids[i] << 32) | i;
+				count++;
+			}
+		}
+		Arrays.sort(pairs, 0, count);
+		return Arrays.copyOf(pairs, count);
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method probeRange(low, high)
+    |
+    |  Purpose:  Finds every record with an EID from low to high in the hash index. The chain
+    |            of the bucket of each EID is read to its end like findOffset() reads it, and
+    |            every live entry with the EID is kept, not just the first one.
+    |
+    |  Pre-condition: The caller holds readLock().
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: low - the smallest EID wanted.
+    |              high - the largest EID wanted.
+    |
+    |  Returns: the records in EID order(then record number), each the EID in the high half
+    |           and the record number in the low half.
+    *-------------------------------------------------------------------*/
+	private long[] probeRange(int low, int high) {
+		ByteBuffer block = probe.get();
+		long[] found = new long[16];
+		int count = 0;
+		for (long EID = Math.max(0, low); EID <= high; EID++) {
+			if (filter != null && !filter.mightContain((int) EID)) {
+				continue;
+			}
+			int first = count;
+			int page = getPage(getHash((int) EID));
+			do {
+				block.clear();
+				indexBin.read(layout.blockStart(page), block);
+				int entries = block.getInt(bucketSize * ENTRYSIZE);
+				for (int i = 0; i < entries; i++) {
+					int record = block.getInt(i * ENTRYSIZE);
+					if (block.getInt(i * ENTRYSIZE + 4) == EID && record != TOMBSTONE) {
+						if (count == found.length) {
+							found = Arrays.copyOf(found, 2 * count);
+						}
+						found[count] = (EID << 32) | record;
+						count++;
+					}
+				}
+				page = block.getInt(bucketSize * ENTRYSIZE + 4);
+			} while (page != 0);
+			Arrays.sort(found, first, count);
+			if (filter != null && count == first) {
+				filter.falsePositive();
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	//Prints every record with an EID from low to high like checkEID() prints one, then how many there were.
+	public void checkRange(int low, int high) {
+		int[] found = new int[1];
+		forEachInRange(low, high, view -> {
+			System.out.println(view.toString());
+			found[0]++;
+		});
+		if (found[0] == 0) {
+			System.out.println("No record with an EID from " + low + " to " + high + " was found.\n");
+		} else {
+			System.out.println(found[0] + " records with an EID from " + low + " to " + high + " were found.\n");
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachListed(found, action)
+    |
+    |  Purpose:  Hands the records of the listed record numbers to action through one
+    |            RecordView, in record order. One read covers the records that fit in
+    |            READWINDOW bytes from the first of them to the last, so the .bin is read in
+    |            ascending offset order and the records between them are skipped. In mapped
+    |            mode the view moves over the mapping.
+    |
+    |  Pre-condition: The record numbers are ascending and the caller holds readLock().
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: found - the record numbers wanted.
+    |              action - called once per record. The view is only valid during the call.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	private void forEachListed(int[] found, Consumer<RecordView> action) {
+		RecordView view = newView();
+		if (settings.isMapped()) {
+			MappedByteBuffer[] segments = mapBin();
+			for (int record : found) {
+				if (view.wrap(segments[record / segmentRecords], (record % segmentRecords) * recordLen).getEid() >= 0) {
+					action.accept(view);
+				}
+			}
+			return;
+		}
+		int windowRecords = Math.max(1, READWINDOW / recordLen);
+		ByteBuffer window = ByteBuffer.allocate(windowRecords * recordLen);
+		int first = 0;
+		while (first < found.length) {
+			int last = first;
+			while (last + 1 < found.length && found[last + 1] - found[first] < windowRecords) {
+				last++;
+			}
+			window.clear();
+			window.limit((found[last] - found[first] + 1) * recordLen);
+			readRecord((long) found[first] * recordLen, window);
+			for (int i = first; i <= last; i++) {
+				if (view.wrap(window, (found[i] - found[first]) * recordLen).getEid() >= 0) {
+					action.accept(view);
+				}
+			}
+			first = last + 1;
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachInBox(south, west, north, east, action)
+    |
+    |  Purpose:  Hands every record whose plant lies inside the box(edges included) to action
+    |            through one RecordView, in record order. With the spatial grid only the cells
+    |            the box overlaps are tested(see SpatialGrid.box()) and only the records inside
+    |            are read from the .bin(see forEachListed()). Without the grid the whole .bin is
+    |            scanned. A west edge greater than the east edge is a box across the 180th
+    |            meridian.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: south, west, north, east - the edges of the box in degrees.
+    |              action - called once per record. The view is only valid during the call.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void forEachInBox(double south, double west, double north, double east, Consumer<RecordView> action) {
+		if (grid.current == null) {
+			forEachRecord(view -> {
+				double lat = view.getLat();
+				double lon = view.getLon();
+				if (lat >= south && lat <= north && (west <= east ? lon >= west && lon <= east : lon >= west || lon <= east)) {
+					action.accept(view);
+				}
+			});
+			return;
+		}
+		Lock held = readLock();
+		try {
+			forEachListed(grid.current.box(south, west, north, east), action);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	//Prints every record inside the box like checkEID() prints one, then how many there were.
+	public void checkBox(double south, double west, double north, double east) {
+		int[] found = new int[1];
+		forEachInBox(south, west, north, east, view -> {
+			System.out.println(view.toString());
+			found[0]++;
+		});
+		System.out.println(found[0] + " records from latitude " + south + " to " + north + " and longitude " + west + " to "
+				+ east + " were found.\n");
+	}
+
+	//Hands every record no more than km from the point to action like forEachInBox(), see SpatialGrid.within().
+	public void forEachWithin(double lat, double lon, double km, Consumer<RecordView> action) {
+		if (grid.current == null) {
+			forEachRecord(view -> {
+				if (SpatialGrid.distance(lat, lon, view.getLat(), view.getLon()) <= km) {
+					action.accept(view);
+				}
+			});
+			return;
+		}
+		Lock held = readLock();
+		try {
+			forEachListed(grid.current.within(lat, lon, km), action);
+		} finally {
+			unlock(held);
+		}
+	}
+
+	//Prints every record no more than km from the point like checkEID() prints one, then how many there were.
+	public void checkWithin(double lat, double lon, double km) {
+		int[] found = new int[1];
+		forEachWithin(lat, lon, km, view -> {
+			System.out.println(view.toString());
+			found[0]++;
+		});
+		System.out.println(found[0] + " records within " + km + " km of " + lat + ", " + lon + " were found.\n");
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachNearest(lat, lon, k, action)
+    |
+    |  Purpose:  Hands the k records closest to the point to action through one RecordView,
+    |            closest first. With the spatial grid the k record numbers come from it(see
+    |            SpatialGrid.nearest()) and only those k records are read. Without the grid the
+    |            coordinates of every record are read with one pass over the .bin and put in a
+    |            grid in memory for this query.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: lat - the latitude of the point.
+    |              lon - its longitude.
+    |              k - the records wanted.
+    |              action - called once per record. The view is only valid during the call.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void forEachNearest(double lat, double lon, int k, Consumer<RecordView> action) {
+		Lock held = readLock();
+		try {
+			int[] found;
+			if (grid.current != null) {
+				found = grid.current.nearest(lat, lon, k);
+			} else {
+				double[] lats = new double[(int) numRecords];
+				double[] lons = new double[(int) numRecords];
+				readPoints(lats, lons);
+				found = SpatialGrid.build(lats, lons, lats.length).nearest(lat, lon, k);
+			}
+			//The records are wanted in order of distance, so each one is read by itself.
+			RecordView view = newView();
+			MappedByteBuffer[] segments = settings.isMapped() ? mapBin() : null;
+			ByteBuffer bytes = ByteBuffer.allocate(recordLen);
+			for (int record : found) {
+				if (segments != null) {
+					view.wrap(segments[record / segmentRecords], (record % segmentRecords) * recordLen);
+				} else {
+					bytes.clear();
+					readRecord((long) record * recordLen, bytes);
+					view.wrap(bytes, 0);
+				}
+				if (view.getEid() >= 0) {
+					action.accept(view);
+				}
+			}
+		} finally {
+			unlock(held);
+		}
+	}
+
+	//Prints the k records closest to the point like checkEID() prints one, each with its distance.
+	public void checkNearest(double lat, double lon, int k) {
+		int[] found = new int[1];
+		forEachNearest(lat, lon, k, view -> {
+			System.out.printf("%.2f km: ", SpatialGrid.distance(lat, lon, view.getLat(), view.getLon()));
+			System.out.println(view.toString());
+			found[0]++;
+		});
+		System.out.println("The " + found[0] + " records closest to " + lat + ", " + lon + " were found.\n");
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method forEachRow(names, action)
+    |
+    |  Purpose:  Hands every record that is not deleted to action through one ColumnView, in
+    |            record order, for scans that only need some fields. With the column files only
+    |            the named columns are read(see ColumnStore.scan()), so a total of capAc by
+    |            state reads the state and capAc of each record and none of its name or COD.
+    |            Without them(or once a change has made them stale) the .bin is scanned as
+    |            forEachRecord() does and the view reads each whole record.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: names - the columns wanted, see ColumnStore.COLUMNS.
+    |              action - called once per record. The view is only valid during the call, and
+    |                       only the getters of the named columns may be used.
+    |
+    |  Returns: None
+    *-------------------------------------------------------------------*/
+	public void forEachRow(String[] names, Consumer<ColumnView> action) {
+		Lock held = readLock();
+		try {
+			if (columns.current != null) {
+				columns.current.scan(names, action);
+				return;
+			}
+		} finally {
+			unlock(held);
+		}
+		ColumnView view = new ColumnView(null);
+		forEachRecord(record -> action.accept(view.wrap(record)));
+	}
+
+	//A view of the records of this .bin.
+	private RecordView newView() {
+		return new RecordView(maxName, maxCOD, maxState);
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method mapBin()
+    |
+    |  Purpose:  Maps the records of the .bin read only the first time it is needed. Every
+    |            segment holds whole records, so a record never spans two segments.
+    |
+    |  Pre-condition: aquireMaxVals() has set recordLen and numRecords.
+    |
+    |  Post-condition: binSegments covers every record.
+    |
+    |  Parameters: None
+    |
+    |  Returns: the mapped segments.
+    *-------------------------------------------------------------------*/
+	private MappedByteBuffer[] mapBin() {
+		MappedByteBuffer[] segments = binSegments;
+		if (segments != null) {
+			return segments;
+		}
+		synchronized (this) {
+			if (binSegments == null) {
+				segmentRecords = (int) Math.max(1, BINSEGMENT / recordLen);
+				long segmentBytes = (long) segmentRecords * recordLen;
+				long dataBytes = numRecords * recordLen;
+				MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((dataBytes + segmentBytes - 1) / segmentBytes)];
+				try {
+					for (int i = 0; i < mapped.length; i++) {
+						long start = i * segmentBytes;
+						mapped[i] = binChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, dataBytes - start));
+					}
+				} catch (IOException e) {
+					System.out.println("I/O ERROR: Couldn't map the .bin file.");
+					System.exit(-1);
+				}
+				binSegments = mapped;
+			}
+			return binSegments;
+		}
+	}
+
+	//The B+-tree behind forEachInRange(), null when the index has none or is read only without a current saved one. Its counters show the nodes read.
+	public EIDTree getTree() {
+		return tree.current;
+	}
+
+	//The grid behind forEachInBox(), forEachWithin() and forEachNearest(), null when the index has none. Its counters show the entries tested.
+	public SpatialGrid getGrid() {
+		return grid.current;
+	}
+
+	//The column files behind forEachRow(), null when the index has none, a change made them stale or it is read only without current saved ones. Its counters show the bytes read.
+	public ColumnStore getColumns() {
+		return columns.current;
+	}
+
+	//The record numbers by state behind forEachInState(), null when the index has none. Its counters show the postings read.
+	public StateIndex getStateIndex() {
+		return states.current;
+	}
+
+	//The EID filter checked before lookups, null when the index has none. Its counters show the probes it saved.
+	public EIDFilter getFilter() {
+		return filter;
+	}
+
+	//The record cache used by lookup() and checkEID(), null when the index has none. Its counters show the hit rate.
+	public RecordCache getRecordCache() {
+		return records;
+	}
+
+	//Takes the shared lock of a writable index for a lookup, returns null for a read only index.
+	private Lock readLock() {
+		if (guard == null) {
+			return null;
+		}
+		Lock held = guard.readLock();
+		held.lock();
+		return held;
+	}
+
+	private static void unlock(Lock held) {
+		if (held != null) {
+			held.unlock();
+		}
+	}
+
+	//Deleting, updating and compacting rewrite the files, which a read only index cannot.
+	private void requireWritable() {
+		if (guard == null) {
+			System.out.println("The index was opened read only. Open it with the \"write\" option to change records.");
+			System.exit(-1);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method delete(EID)
+    |
+    |  Purpose:  Deletes the record lookup() would return for the EID. Its entry stays in the
+    |            block as a TOMBSTONE(the EID is kept so a sorted block stays sorted) and the
+    |            record keeps its slot in the .bin with its EID stored as ~EID, which marks it
+    |            deleted for scans and rebuilds. Nothing is moved, compact() reclaims both
+    |            slots later. When the settings give a compaction ratio and the tombstones reach
+    |            it, compaction is started in the background.
+    |
+    |  Pre-condition: The index was built or opened with the "write" option.
+    |
+    |  Post-condition: The header counts the new tombstone and deleted record.
+    |
+    |  Parameters: EID - the EID to delete.
+    |
+    |  Returns: true when a record was deleted, false when the EID is not in the index.
+    *-------------------------------------------------------------------*/
+	public boolean delete(int EID) {
+		requireWritable();
+		guard.writeLock().lock();
+		try {
+			long entry = locateEntry(EID, TOMBSTONE);
+			if (entry < 0) {
+				return false;
+			}
+			int page = (int) (entry >>> 32);
+			long entryStart = layout.blockStart(page) + ((int) entry * ENTRYSIZE);
+			long offset = (long) indexBin.readInt(entryStart) * recordLen;
+			indexBin.writeInt(entryStart, TOMBSTONE);
+			ByteBuffer flag = ByteBuffer.allocate(4);
+			flag.putInt(0, ~EID);
+			writeBin(offset, flag);
+			staleSidecars();
+			if (states.current != null) {
+				states.current.remove((int) (offset / recordLen));
+			}
+			if (tree.current != null) {
+				tree.current.setRecord(EID, (int) (offset / recordLen), EIDTree.TOMBSTONE);
+			}
+			if (grid.current != null) {
+				grid.current.remove((int) (offset / recordLen));
+			}
+			tombstones++;
+			deletedRecords++;
+			if (records != null) {
+				records.invalidate(EID);
+			}
+			writeHeader();
+			endChange(true);
+		} finally {
+			guard.writeLock().unlock();
+		}
+		if (settings.getCompactAt() > 0 && tombstoneRatio() >= settings.getCompactAt() && compactor == null) {
+			compactInBackground();
+		}
+		return true;
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method update(record)
+    |
+    |  Purpose:  Rewrites the record with the same EID in place. Only the slot in the .bin
+    |            changes, so the index is untouched. A String longer than its field in the .bin
+    |            cannot be padded into the slot and the update is refused. The record is written
+    |            from a copy, so the caller's Strings are left unpadded.
+    |
+    |  Pre-condition: The index was built or opened with the "write" option.
+    |
+    |  Post-condition: The cached Record of the EID is dropped, even when the update is refused.
+    |
+    |  Parameters: record - the new values, found by its EID.
+    |
+    |  Returns: true when the record was rewritten, false when the EID is not in the index or
+    |           a field does not fit.
+    *-------------------------------------------------------------------*/
+	public boolean update(Record record) {
+		requireWritable();
+		//Dropped first, so a refused update never leaves the cache holding what was not written.
+		if (records != null) {
+			records.invalidate(record.getEid());
+		}
+		if (record.getName().length() > maxName || record.getCod().length() > maxCOD
+				|| record.getState().length() > maxState) {
+			return false;
+		}
+		guard.writeLock().lock();
+		try {
+			long offset = findOffset(record.getEid());
+			if (offset == NOTFOUND) {
+				return false;
+			}
+			ByteBuffer bytes = ByteBuffer.allocate(recordLen);
+			record.copy().writeToBin(bytes, maxName, maxState, maxCOD);
+			bytes.flip();
+			writeBin(offset, bytes);
+			//The EID and slot stay the same, so the tree keeps its entry.
+			staleSidecars();
+			//The state may have changed, so the record is listed again under the new one.
+			if (states.current != null) {
+				states.current.remove((int) (offset / recordLen));
+				states.current.add(record.getState(), (int) (offset / recordLen));
+			}
+			//The plant may have moved, so the record is placed again by its new coordinates.
+			if (grid.current != null) {
+				grid.current.remove((int) (offset / recordLen));
+				grid.current.add((int) (offset / recordLen), record.getLat(), record.getLon());
+			}
+			endChange(true);
+			if (records != null) {
+				records.invalidate(record.getEid());
+			}
+			return true;
+		} finally {
+			guard.writeLock().unlock();
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method locateEntry(EID, key)
+    |
+    |  Purpose:  Walks the chain of the EID's bucket for the entry with the EID and record
+    |            number, or for TOMBSTONE the first live entry with the EID(the one findOffset()
+    |            returns).
+    |
+    |  Pre-condition: The caller holds the write lock.
+    |
+    |  Post-condition: currBlock holds the block of the entry.
+    |
+    |  Parameters: EID - the EID of the entry.
+    |              key - its record number, or TOMBSTONE for any live one.
+    |
+    |  Returns: the page in the high half and the entry's index in its block in the low half,
+    |           or -1 when there is no such entry.
+    *-------------------------------------------------------------------*/
+	private long locateEntry(int EID, int key) {
+		int page = getPage(getHash(EID));
+		do {
+			currBlock.readBlock(indexBin, page);
+			for (int i = 0; i < currBlock.getRecCount(); i++) {
+				if (currBlock.getEID(i) == EID && currBlock.getKey(i) != TOMBSTONE
+						&& (key == TOMBSTONE || currBlock.getKey(i) == key)) {
+					return ((long) page << 32) | i;
+				}
+			}
+			page = currBlock.getNext();
+		} while (page != 0);
+		return -1;
+	}
+
+	//Writes bytes to the .bin at offset, refreshing the fingerprint when they land in one of the ends it covers.
+	//With a log the write is staged, the caller commits it with endChange() before the .bin is read again.
+	private void writeBin(long offset, ByteBuffer bytes) {
+		try {
+			long end = offset + bytes.remaining();
+			if (log != null) {
+				log.write(IndexLog.BIN, offset, bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+				bytes.position(bytes.limit());
+				if (offset < FINGERPRINT || end > binLength - FINGERPRINT) {
+					binFingerprint = fingerprintBin(binLength, trailer());
+				}
+				return;
+			}
+			while (bytes.hasRemaining()) {
+				binChannel.write(bytes, end - bytes.remaining());
+			}
+			if (offset < FINGERPRINT || end > binLength - FINGERPRINT) {
+				binFingerprint = fingerprintBin(binLength, trailer());
+				writeHeader();
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write to the .bin file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+	}
+
+	//Reads the EID of one record slot of the .bin, negative for a deleted record.
+	private int readBinEID(long record) {
+		ByteBuffer bytes = ByteBuffer.allocate(4);
+		readRecord(record * recordLen, bytes);
+		return bytes.getInt(0);
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method compactStep(work)
+    |
+    |  Purpose:  Does up to work units of compaction while holding the write lock, so lookups
+    |            only wait for one short step. First the deleted slots of the .bin are filled:
+    |            the last live record is moved into the first deleted slot and its entry is
+    |            pointed at it, and once no live record is left after a deleted one the deleted
+    |            tail is cut off the .bin. Then the buckets are rewritten one at a time without
+    |            their tombstones, freeing the overflow blocks no longer needed. The header is
+    |            written after every step, so the files are consistent between steps.
+    |
+    |  Pre-condition: The index was built or opened with the "write" option.
+    |
+    |  Post-condition: Up to work records were moved or buckets rewritten.
+    |
+    |  Parameters: work - the most records to move plus buckets to rewrite.
+    |
+    |  Returns: true while there is compaction left to do.
+    *-------------------------------------------------------------------*/
+	public boolean compactStep(int work) {
+		requireWritable();
+		guard.writeLock().lock();
+		try {
+			for (; work > 0 && deletedRecords > 0; work--) {
+				fillHole();
+			}
+			int buckets = (int) (Math.pow(2, hVal + 1)) + split;
+			for (; work > 0 && tombstones > 0; work--) {
+				if (bucketCursor >= buckets) {
+					bucketCursor = 0;
+				}
+				//A count left too high(an interrupted delete) must not keep compaction going forever.
+				if (compactBucket(bucketCursor) > 0) {
+					cleanBuckets = 0;
+				} else if (++cleanBuckets >= buckets) {
+					tombstones = 0;
+				}
+				bucketCursor++;
+			}
+			writeHeader();
+			endChange(true);
+			return deletedRecords > 0 || tombstones > 0;
+		} finally {
+			guard.writeLock().unlock();
+		}
+	}
+
+	//Compacts until no tombstone or deleted record is left, in the calling thread.
+	public void compact() {
+		while (compactStep(COMPACTSTEP)) {
+		}
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method compactInBackground()
+    |
+    |  Purpose:  Starts a daemon thread that compacts in steps of COMPACTSTEP, releasing the
+    |            lock between steps so lookups, deletes and updates go on meanwhile. Only one
+    |            compaction runs at a time; close() waits for it.
+    |
+    |  Pre-condition: The index was built or opened with the "write" option.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: None
+    |
+    |  Returns: the compacting thread, for callers that want to join it.
+    *-------------------------------------------------------------------*/
+	public synchronized Thread compactInBackground() {
+		requireWritable();
+		if (compactor != null) {
+			return compactor;
+		}
+		compactor = new Thread(() -> {
+			while (compactStep(COMPACTSTEP)) {
+				Thread.yield();
+			}
+			compactor = null;
+		}, "lhl-compactor");
+		compactor.setDaemon(true);
+		compactor.start();
+		return compactor;
+	}
+
+	//Moves the last live record of the .bin into its first deleted slot, or cuts off the deleted tail.
+	private void fillHole() {
+		while (holeCursor < liveEnd && readBinEID(holeCursor) >= 0) {
+			holeCursor++;
+		}
+		while (liveEnd > holeCursor && readBinEID(liveEnd - 1) < 0) {
+			liveEnd--;
+		}
+		if (liveEnd <= holeCursor) {
+			truncateBin(holeCursor);
+			return;
+		}
+		long from = liveEnd - 1;
+		ByteBuffer bytes = ByteBuffer.allocate(recordLen);
+		readRecord(from * recordLen, bytes);
+		int EID = bytes.getInt(0);
+		long entry = locateEntry(EID, (int) from);
+		if (entry < 0) {
+			System.out.println("The record " + from + " of the .bin(EID " + EID + ") is not in the index. Rebuild it with Prog21.");
+			System.exit(-1);
+		}
+		//The copy is written and the entry moved before the old slot is marked, so no step loses the record.
+		bytes.flip();
+		writeBin(holeCursor * recordLen, bytes);
+		indexBin.writeInt(layout.blockStart((int) (entry >>> 32)) + ((int) entry * ENTRYSIZE), (int) holeCursor);
+		ByteBuffer flag = ByteBuffer.allocate(4);
+		flag.putInt(0, ~EID);
+		writeBin(from * recordLen, flag);
+		staleSidecars();
+		if (states.current != null) {
+			String state = states.current.remove((int) from);
+			if (state != null) {
+				states.current.add(state, (int) holeCursor);
+			}
+		}
+		if (tree.current != null) {
+			tree.current.setRecord(EID, (int) from, (int) holeCursor);
+		}
+		if (grid.current != null) {
+			grid.current.move((int) from, (int) holeCursor);
+		}
+		holeCursor++;
+		liveEnd = from;
+	}
+
+	//Cuts the .bin after its first records, all later ones being deleted, and moves the trailer after them.
+	private void truncateBin(long records) {
+		try {
+			if (log != null) {
+				log.write(IndexLog.BIN, records * recordLen, trailer(), 0, TRAILERSIZE);
+				log.setLength(IndexLog.BIN, records * recordLen + TRAILERSIZE);
+			} else {
+				fileBin.seek(records * recordLen);
+				fileBin.write(trailer());
+				fileBin.setLength(records * recordLen + TRAILERSIZE);
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't shorten the .bin file.");
+			System.exit(-1);
+		}
+		//Every record before the cut is live, whatever the count said.
+		deletedRecords = 0;
+		numRecords = records;
+		indexedRecords = records;
+		liveEnd = records;
+		binLength = records * recordLen + TRAILERSIZE;
+		binSegments = null;
+		try {
+			binFingerprint = fingerprintBin(binLength, trailer());
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the .bin file.");
+			System.exit(-1);
+		}
+	}
+
+	//Rewrites the chain of one bucket without its tombstones, freeing the overflow blocks it no longer needs. Returns the tombstones removed.
+	private int compactBucket(int bucket) {
+		int[] keys = new int[bucketSize];
+		int[] eids = new int[bucketSize];
+		int live = 0;
+		int removed = 0;
+		ArrayList<Integer> overflow = new ArrayList<Integer>();
+		int page = getPage(bucket);
+		do {
+			EntryBlock existing = readBlockAt(page);
+			for (int i = 0; i < existing.getRecCount(); i++) {
+				if (existing.getKey(i) == TOMBSTONE) {
+					removed++;
+					continue;
+				}
+				if (live == keys.length) {
+					keys = Arrays.copyOf(keys, keys.length * 2);
+					eids = Arrays.copyOf(eids, eids.length * 2);
+				}
+				keys[live] = existing.getKey(i);
+				eids[live] = existing.getEID(i);
+				live++;
+			}
+			page = existing.getNext();
+			if (page != 0) {
+				overflow.add(page);
+			}
+		} while (page != 0);
+		if (removed == 0) {
+			return 0;
+		}
+		if (sorted) {
+			sortEntries(keys, eids, 0, live);
+		}
+		writeChain(getPage(bucket), keys, eids, 0, live, overflow);
+		for (int leftover : overflow) {
+			freePage(leftover);
+		}
+		entryCount = entryCount - removed;
+		tombstones = Math.max(0, tombstones - removed);
+		return removed;
+	}
+
+	//Deleted entries still in the blocks and deleted records still in the .bin, both reclaimed by compaction.
+	public long getTombstones() {
+		return tombstones;
+	}
+
+	public long getDeletedRecords() {
+		return deletedRecords;
+	}
+
+	//The share of the entries in the blocks that are tombstones, 0 for an empty index.
+	public double tombstoneRatio() {
+		return entryCount == 0 ? 0 : (double) tombstones / entryCount;
+	}
+
+	/*---------------------------------------------------------------------
+    |  Method probeCost(EID)
+    |
+    |  Purpose:  Walks the chain of the EID's bucket like findOffset() and counts what a probe
+    |            with nothing cached would read: the blocks, and the 4 KiB pages of lhl.idx
+    |            those blocks lie on(a page shared by two blocks read in a row counts once).
+    |            Package private so ProgBench can compare bucket layouts.
+    |
+    |  Pre-condition: The index must be built or opened.
+    |
+    |  Post-condition: None
+    |
+    |  Parameters: EID - the EID to probe for.
+    |
+    |  Returns: the blocks read in the high half and the pages read in the low half.
+    *-------------------------------------------------------------------*/
+	long probeCost(int EID) {
+		ByteBuffer block = probe.get();
+		long blocks = 0;
+		long pages = 0;
+		long lastPage = -1;
+		int page = getPage(getHash(EID));
+		do {
+			blocks++;
+			pages = pages + layout.lastPage(page) - layout.firstPage(page) + 1;
+			if (layout.firstPage(page) == lastPage) {
+				pages--;
+			}
+			lastPage = layout.lastPage(page);
+			block.clear();
+			indexBin.read(layout.blockStart(page), block);
+			if (searchBlock(block, EID) >= 0) {
+				return (blocks << 32) | pages;
+			}
+			page = block.getInt(bucketSize * ENTRYSIZE + 4);
+		} while (page != 0);
+		return (blocks << 32) | pages;
+	}
+
+	//The block layout of the index. Package private, like probeCost(), for ProgBench.
+	BlockLayout getLayout() {
+		return layout;
+	}
+
+	//The number of entries in the index, for ProgBench.
+	long getEntryCount() {
+		return entryCount;
+	}
+
+	//The current hash level. Package private, like readCounts() and doubleBuckets(), so ProgBench can time them.
+	int getHVal() {
+		return hVal;
+	}
+	
+	//Releases the .bin and .idx files once a background compaction has finished. A mapped index is flushed and trimmed first.
+	public void close() {
+		Thread running = compactor;
+		if (running != null) {
+			try {
+				running.join();
+			} catch (InterruptedException e) {
+				System.out.println("ERROR: Interrupted while waiting for compaction.");
+				System.exit(-1);
+			}
+		}
+		closeLog();
+		for (SidecarFile<?> each : sidecars) {
+			each.close();
+		}
+		indexBin.close();
+		binSegments = null;
+		if (records != null) {
+			records.clear();
+		}
+		try {
+			fileBin.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't close the .bin file.");
+		}
+	}
+
+	/*+----------------------------------------------------------------------
+	||
+	||  Class SidecarFile
+	||
+	||        Purpose:  One sidecar of the index(see Sidecar): where it is saved next to lhl.idx,
+	||                  whether the saved copy still matches the .bin, and the one open, null when
+	||                  there is none. How it is built from the .bin, opened and deleted is passed
+	||                  in, the rest of its lifecycle is the same for every sidecar.
+	||
+	++-----------------------------------------------------------------------*/
+	private class SidecarFile<T extends Sidecar<T>> {
+
+		private String extension; //Appended to the index path to name the saved file(s).
+		private BooleanSupplier asked; //True when the settings ask for it.
+		private Function<String, T> builder; //Builds it from the .bin and saves it at the path given, in memory only for null(null when it cannot be).
+		private Function<String, T> opener; //Opens the one saved at the path given, null when there is none.
+		private Consumer<String> remover; //Deletes the one saved at the path given.
+		private String path; //Where it is saved.
+		private T current; //The one this index uses, null when there is none.
+		private boolean saved; //The saved one matches the .bin, false once a change has made it stale.
+
+		private SidecarFile(String extension, BooleanSupplier asked, Function<String, T> builder, Function<String, T> opener,
+				Consumer<String> remover) {
+			this.extension = extension;
+			this.asked = asked;
+			this.builder = builder;
+			this.opener = opener;
+			this.remover = remover;
+		}
+
+		//Names where it is saved, next to the index at the path given.
+		private void at(String index) {
+			path = index + extension;
+		}
+
+		private boolean wanted() {
+			return asked.getAsBoolean();
+		}
+
+		//True when one is saved, whatever .bin it was built for.
+		private boolean exists() {
+			T old = opener.apply(path);
+			if (old != null) {
+				old.close();
+			}
+			return old != null;
+		}
+
+		//Saves it when the settings ask for it. Without them, an older one is deleted so it is never paired with this index.
+		private void save() {
+			if (wanted()) {
+				write();
+			} else {
+				remover.accept(path);
+			}
+		}
+
+		//Saves the one in memory, or builds it again from the .bin when it only lives in its files.
+		private void write() {
+			if (current == null || !current.write(path, binLength, binFingerprint)) {
+				if (current != null) {
+					current.close();
+				}
+				current = builder.apply(path);
+			}
+			saved = true;
+		}
+
+		/*---------------------------------------------------------------------
+		|  Method load(index)
+		|
+		|  Purpose:  When the settings ask for it, the one saved with the index is opened. A
+		|            missing one, or one saved for a different .bin, is built again and saved by
+		|            a writable index. A read-only index writes nothing, so it builds it in memory
+		|            only, or goes without one that only lives in its files and scans the .bin.
+		|
+		|  Pre-condition: readHeader() has checked the .bin.
+		|
+		|  Post-condition: current is set, or left null.
+		|
+		|  Parameters: index - the path of the opened index.
+		|
+		|  Returns: None
+		*-------------------------------------------------------------------*/
+		private void load(String index) {
+			if (!wanted()) {
+				return;
+			}
+			at(index);
+			T found = opener.apply(path);
+			if (found != null && found.describes(binLength, binFingerprint)) {
+				saved = true;
+				current = guard != null ? found.writable() : found;
+				if (current != found) {
+					found.close();
+				}
+				return;
+			}
+			if (found != null) {
+				found.close();
+			}
+			if (guard != null) {
+				write();
+			} else {
+				current = builder.apply(null);
+			}
+		}
+
+		//Marks the saved one as stale before a change(see Sidecar.stale()).
+		private void stale() {
+			if (saved) {
+				saved = false;
+				if (!current.stale(path)) {
+					current = null;
+				}
+			}
+		}
+
+		//A writable index saves what its changes made stale, now that the .bin is final.
+		private void close() {
+			if (guard != null && !saved && (current != null || wanted())) {
+				write();
+			}
+			if (current != null) {
+				current.close();
+			}
+		}
+	}
 
 }
@@ -0,0 +1,565 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class IndexFile
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class gives positional access to the lhl.idx file. It either
+ ||                  seeks a RandomAccessFile for every access(the original behavior) or works on
+ ||                  the file through FileChannel.map so that bucket probes and entry appends are
+ ||                  plain memory reads and writes. A mapped file is divided into 1 GiB segments
+ ||                  and the mapping is grown(remapped) when a write goes past its end.
+ ||                  Whole block reads(read()) never use the file pointer: they are positional
+ ||                  channel reads or absolute reads of the mapping, so any number of threads may
+ ||                  read at once. Everything else assumes a single thread.
+ ||                  With a write-ahead log attached(setLog()) nothing is written to the file: every
+ ||                  write goes to the log and is laid over a copy of the pages it changes, and
+ ||                  reads are served through those pages until the log commits its group.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  SEGMENTSIZE - the largest single mapping, a multiple of 4 so no int straddles two.
+ ||                  MINMAP - the first mapping size for a file opened for writing.
+ ||                  STAGEPAGE - the size of the pages staged writes are kept in.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the path, the RandomAccessFile mode("r" or "rw") and whether the
+ ||                  file should be memory mapped.
+ ||
+ ||  Class Methods:  public int readInt()
+ ||                  public void writeInt()
+ ||                  public long readLong()
+ ||                  public void writeLong()
+ ||                  public void read()
+ ||                  public void write()
+ ||                  public long length()
+ ||                  public void setLength()
+ ||                  public boolean isMapped()
+ ||                  public void setLog()
+ ||                  public void force()
+ ||                  public void sync()
+ ||                  public void close()
+ ||                  public static void readAt()
+ ||                  private void ensureMapped()
+ ||                  private void growMapping()
+ ||                  private void seek()
+ ||                  private void readFile()
+ ||                  private void stage()
+ ||                  private byte[] stagedPage()
+ ||                  private void readStaged()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class IndexFile {
+
+	private static long SEGMENTSIZE = 1L << 30; //The size of one mapped segment.
+	private static long MINMAP = 1L << 20; //The first mapping size of a writable file.
+	private static int STAGEPAGE = 512; //The pages staged writes are laid over.
+
+	private RandomAccessFile stream; //The underlying file.
+	private FileChannel channel; //The channel of the file, used for mapping.
+	private boolean mapped; //True when accesses go through the mapped segments.
+	private boolean writable; //True when the file was opened "rw".
+	private volatile MappedByteBuffer[] segments; //The mapped segments, segment i starts at i * SEGMENTSIZE.
+	private volatile long capacity; //The number of bytes currently mapped, published after segments.
+	private long length; //The logical length of the file(the mapping may extend past it), staged writes included.
+	private long pointer; //Where the RAF file pointer is, so sequential accesses skip the seek.
+	private IndexLog log; //Takes every write until it commits them, null when writes go to the file.
+	private HashMap<Long, byte[]> staged; //The pages changed by staged writes, as they will be once committed.
+	private long floor; //The bytes of the file that staged writes have not cut off.
+
+	public IndexFile(String path, String mode, boolean mapped) {
+		this.mapped = mapped;
+		this.writable = mode.contains("w");
+		this.segments = new MappedByteBuffer[0];
+		this.capacity = 0;
+		try {
+			stream = new RandomAccessFile(path, mode);
+			channel = stream.getChannel();
+			length = stream.length();
+			pointer = 0;
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Something went wrong with the " + "opening of the RAF .idx file.");
+			System.exit(-1);
+		}
+	}
+
+	public boolean isMapped() {
+		return mapped;
+	}
+
+	public long length() {
+		return length;
+	}
+
+	//Stages every write in the log from now on, or with null writes to the file again. Either way nothing is staged yet.
+	public void setLog(IndexLog log) {
+		this.log = log;
+		this.staged = new HashMap<Long, byte[]>();
+		this.floor = length;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method setLength(newLength)
+	|
+	|  Purpose:  Sets the logical length of the file. Shrinking a mapped file drops the
+	|            current mapping so it is rebuilt from the new length on the next access.
+	|            With a log attached the new length is staged like a write.
+	|
+	|  Pre-condition:  The file must be open for writing.
+	|
+	|  Post-condition: The file on disk has the new length(once committed, with a log).
+	|
+	|  Parameters: newLength - the length in bytes.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void setLength(long newLength) {
+		if (log != null) {
+			log.setLength(IndexLog.INDEX, newLength);
+			staged.keySet().removeIf(page -> page * STAGEPAGE >= newLength);
+			byte[] last = staged.get(newLength / STAGEPAGE);
+			if (last != null) {
+				Arrays.fill(last, (int) (newLength % STAGEPAGE), STAGEPAGE, (byte) 0);
+			}
+			floor = Math.min(floor, newLength);
+			length = newLength;
+			return;
+		}
+		try {
+			if (mapped && newLength < capacity) {
+				forceSegments();
+				capacity = 0;
+				segments = new MappedByteBuffer[0];
+			}
+			stream.setLength(newLength);
+			length = newLength;
+			pointer = stream.getFilePointer();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't resize the .idx file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+	}
+
+	public int readInt(long position) {
+		if (log != null) {
+			ByteBuffer bytes = ByteBuffer.allocate(4);
+			readStaged(position, bytes);
+			return bytes.getInt(0);
+		}
+		int value = 0;
+		try {
+			if (mapped) {
+				ensureMapped(position + 4);
+				value = segments[(int) (position / SEGMENTSIZE)].getInt((int) (position % SEGMENTSIZE));
+			} else {
+				seek(position);
+				value = stream.readInt();
+				pointer = position + 4;
+			}
+		} catch (IOException e) {
+			System.out.println(
+					"I/O ERROR: Couldn't read from the file;\n\t" + "The position " + position + " might be past the end.");
+			System.exit(-1);
+		}
+		return value;
+	}
+
+	public void writeInt(long position, int value) {
+		if (log != null) {
+			byte[] bytes = { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+			stage(position, bytes, 4);
+			return;
+		}
+		try {
+			if (mapped) {
+				ensureMapped(position + 4);
+				segments[(int) (position / SEGMENTSIZE)].putInt((int) (position % SEGMENTSIZE), value);
+			} else {
+				seek(position);
+				stream.writeInt(value);
+				pointer = position + 4;
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write to the file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		length = Math.max(length, position + 4);
+	}
+
+	//Longs are stored high int first, the same as RandomAccessFile.writeLong().
+	public long readLong(long position) {
+		long high = readInt(position);
+		long low = readInt(position + 4);
+		return (high << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	public void writeLong(long position, long value) {
+		writeInt(position, (int) (value >>> 32));
+		writeInt(position + 4, (int) value);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method read(position, bytes)
+	|
+	|  Purpose:  Reads bytes.length bytes starting at the position. The file pointer is not
+	|            used, so concurrent calls from several threads are safe.
+	|
+	|  Pre-condition:  The range must be inside the file.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: position - the byte position in the file.
+	|              bytes - the array to fill.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void read(long position, byte[] bytes) {
+		if (log != null) {
+			readStaged(position, ByteBuffer.wrap(bytes));
+			return;
+		}
+		try {
+			if (mapped) {
+				ensureMapped(position + bytes.length);
+				MappedByteBuffer[] current = segments;
+				int done = 0;
+				while (done < bytes.length) {
+					long at = position + done;
+					MappedByteBuffer segment = current[(int) (at / SEGMENTSIZE)];
+					int offset = (int) (at % SEGMENTSIZE);
+					int amount = (int) Math.min(bytes.length - done, SEGMENTSIZE - offset);
+					segment.get(offset, bytes, done, amount);
+					done = done + amount;
+				}
+			} else {
+				readAt(channel, position, ByteBuffer.wrap(bytes));
+			}
+		} catch (IOException e) {
+			System.out.println(
+					"I/O ERROR: Couldn't read from the file;\n\t" + "The position " + position + " might be past the end.");
+			System.exit(-1);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method read(position, buffer)
+	|
+	|  Purpose:  Fills the buffer(from its position to its limit) starting at the position in
+	|            the file. Nothing is allocated, so a caller reusing its buffer can probe blocks
+	|            without garbage. Safe to call from several threads, like read(position, bytes).
+	|
+	|  Pre-condition:  The range must be inside the file and the buffer must have an array.
+	|
+	|  Post-condition: The buffer's position is at its limit.
+	|
+	|  Parameters: position - the byte position in the file.
+	|              buffer - the buffer to fill.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void read(long position, ByteBuffer buffer) {
+		if (log != null) {
+			readStaged(position, buffer);
+		} else {
+			readFile(position, buffer);
+		}
+	}
+
+	//Reads the buffer from the file itself, see read(position, buffer).
+	private void readFile(long position, ByteBuffer buffer) {
+		try {
+			if (mapped) {
+				int wanted = buffer.remaining();
+				ensureMapped(position + wanted);
+				MappedByteBuffer[] current = segments;
+				int done = 0;
+				while (done < wanted) {
+					long at = position + done;
+					MappedByteBuffer segment = current[(int) (at / SEGMENTSIZE)];
+					int offset = (int) (at % SEGMENTSIZE);
+					int amount = (int) Math.min(wanted - done, SEGMENTSIZE - offset);
+					segment.get(offset, buffer.array(), buffer.arrayOffset() + buffer.position() + done, amount);
+					done = done + amount;
+				}
+				buffer.position(buffer.limit());
+			} else {
+				readAt(channel, position, buffer);
+			}
+		} catch (IOException e) {
+			System.out.println(
+					"I/O ERROR: Couldn't read from the file;\n\t" + "The position " + position + " might be past the end.");
+			System.exit(-1);
+		}
+	}
+
+	//Writes all of the bytes starting at the position.
+	public void write(long position, byte[] bytes) {
+		write(position, bytes, bytes.length);
+	}
+
+	//Writes the first count bytes starting at the position.
+	public void write(long position, byte[] bytes, int count) {
+		if (log != null) {
+			stage(position, bytes, count);
+			return;
+		}
+		try {
+			if (mapped) {
+				ensureMapped(position + count);
+				int done = 0;
+				while (done < count) {
+					long at = position + done;
+					MappedByteBuffer segment = segments[(int) (at / SEGMENTSIZE)];
+					int offset = (int) (at % SEGMENTSIZE);
+					int amount = (int) Math.min(count - done, SEGMENTSIZE - offset);
+					segment.put(offset, bytes, done, amount);
+					done = done + amount;
+				}
+			} else {
+				seek(position);
+				stream.write(bytes, 0, count);
+				pointer = position + count;
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write to the file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		length = Math.max(length, position + count);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method stage(position, bytes, count)
+	|
+	|  Purpose:  Hands a write to the log and lays it over the staged pages it changes. A page
+	|            is copied from the file the first time it is changed(only the bytes before
+	|            floor, the rest of a cut off file reads as 0).
+	|
+	|  Pre-condition:  A log is attached.
+	|
+	|  Post-condition: Reads see the write, the file does not.
+	|
+	|  Parameters: position - the byte position in the file.
+	|              bytes - the array holding the bytes.
+	|              count - the number of bytes from the start of the array.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	private void stage(long position, byte[] bytes, int count) {
+		log.write(IndexLog.INDEX, position, bytes, 0, count);
+		long end = position + count;
+		for (long page = position / STAGEPAGE; page * STAGEPAGE < end; page++) {
+			long start = page * STAGEPAGE;
+			long from = Math.max(position, start);
+			int amount = (int) (Math.min(end, start + STAGEPAGE) - from);
+			System.arraycopy(bytes, (int) (from - position), stagedPage(page), (int) (from - start), amount);
+		}
+		length = Math.max(length, end);
+	}
+
+	//The staged copy of a page, made from the file the first time.
+	private byte[] stagedPage(long page) {
+		byte[] bytes = staged.get(page);
+		if (bytes == null) {
+			bytes = new byte[STAGEPAGE];
+			long start = page * STAGEPAGE;
+			int valid = (int) Math.max(0, Math.min(STAGEPAGE, floor - start));
+			if (valid > 0) {
+				readFile(start, ByteBuffer.wrap(bytes, 0, valid));
+			}
+			staged.put(page, bytes);
+		}
+		return bytes;
+	}
+
+	//Fills the buffer like read(position, buffer), with the staged pages laid over the file.
+	private void readStaged(long position, ByteBuffer buffer) {
+		int at = buffer.arrayOffset() + buffer.position();
+		int wanted = buffer.remaining();
+		int valid = (int) Math.max(0, Math.min(wanted, floor - position));
+		if (valid > 0) {
+			ByteBuffer part = buffer.duplicate();
+			part.limit(part.position() + valid);
+			readFile(position, part);
+		}
+		Arrays.fill(buffer.array(), at + valid, at + wanted, (byte) 0);
+		long end = position + wanted;
+		for (long page = position / STAGEPAGE; page * STAGEPAGE < end; page++) {
+			byte[] bytes = staged.get(page);
+			if (bytes != null) {
+				long start = page * STAGEPAGE;
+				long from = Math.max(position, start);
+				int amount = (int) (Math.min(end, start + STAGEPAGE) - from);
+				System.arraycopy(bytes, (int) (from - start), buffer.array(), at + (int) (from - position), amount);
+			}
+		}
+		buffer.position(buffer.limit());
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method readAt(channel, position, buffer)
+	|
+	|  Purpose:  Fills the buffer from the channel starting at the position without moving the
+	|            channel's position, so several threads can read the same channel at once.
+	|
+	|  Pre-condition:  The range must be inside the file.
+	|
+	|  Post-condition: The buffer is full.
+	|
+	|  Parameters: channel - the file to read.
+	|              position - the byte position in the file.
+	|              buffer - the buffer to fill.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public static void readAt(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			int amount = channel.read(buffer, position);
+			if (amount < 0) {
+				throw new EOFException("Read past the end of the file.");
+			}
+			position = position + amount;
+		}
+	}
+
+	//Moves the RAF file pointer only when it is not already on the position.
+	private void seek(long position) throws IOException {
+		if (pointer != position) {
+			stream.seek(position);
+			pointer = position;
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method ensureMapped(end)
+	|
+	|  Purpose:  Makes sure every byte before end is mapped. A read only file is mapped
+	|            once over its whole length. A writable file is remapped with double the
+	|            capacity(at least MINMAP), which extends the file on disk; force() trims
+	|            the file back to its logical length.
+	|
+	|  Pre-condition:  The file is open in mapped mode.
+	|
+	|  Post-condition: segments covers [0, end).
+	|
+	|  Parameters: end - one past the last byte that will be accessed.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	private void ensureMapped(long end) throws IOException {
+		if (end <= capacity) {
+			return;
+		}
+		synchronized (this) {
+			growMapping(end);
+		}
+	}
+
+	//Remaps the file so [0, end) is covered. Called with the lock held so readers map it once.
+	private void growMapping(long end) throws IOException {
+		if (end <= capacity) {
+			return;
+		}
+		long newCapacity;
+		FileChannel.MapMode mode;
+		if (writable) {
+			newCapacity = Math.max(Math.max(capacity * 2, MINMAP), end);
+			mode = FileChannel.MapMode.READ_WRITE;
+		} else {
+			newCapacity = stream.length();
+			mode = FileChannel.MapMode.READ_ONLY;
+			if (end > newCapacity) {
+				throw new IOException("Read past the end of the mapped file.");
+			}
+		}
+
+		int count = (int) ((newCapacity + SEGMENTSIZE - 1) / SEGMENTSIZE);
+		MappedByteBuffer[] grown = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long start = i * SEGMENTSIZE;
+			long size = Math.min(SEGMENTSIZE, newCapacity - start);
+			//Full segments that are already mapped are kept, only the last one is remapped.
+			if (i < segments.length && segments[i].capacity() == size) {
+				grown[i] = segments[i];
+			} else {
+				grown[i] = channel.map(mode, start, size);
+			}
+		}
+		segments = grown;
+		capacity = newCapacity;
+	}
+
+	private void forceSegments() {
+		if (writable) {
+			for (MappedByteBuffer segment : segments) {
+				segment.force();
+			}
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method force()
+	|
+	|  Purpose:  Flushes the mapped segments to disk and trims a writable file back to its
+	|            logical length. The mapping is dropped and rebuilt on the next access.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: The file on disk is exactly length() bytes long.
+	|
+	|  Parameters: None.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void force() {
+		if (!mapped) {
+			return;
+		}
+		try {
+			forceSegments();
+			capacity = 0;
+			segments = new MappedByteBuffer[0];
+			if (writable) {
+				stream.setLength(length);
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't flush the mapped .idx file.");
+			System.exit(-1);
+		}
+	}
+
+	//Forces every write made to the file(not the staged ones) to disk, so it outlives a crash of the machine.
+	public void sync() {
+		try {
+			if (mapped) {
+				forceSegments();
+			}
+			channel.force(true);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't flush the .idx file to disk.");
+			System.exit(-1);
+		}
+	}
+
+	public void close() {
+		force();
+		try {
+			stream.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't close the .idx file.");
+		}
+	}
+}
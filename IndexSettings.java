@@ -0,0 +1,387 @@
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class IndexSettings
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class holds the options used to build or open an index
+ ||                  with IndexBin. Every option has a default matching the original behavior, so
+ ||                  new IndexSettings() builds the index exactly as Prog21 always has.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  The constructor sets every option to its default.
+ ||
+ ||  Class Methods:  public boolean isLinear()
+ ||                  public void setLinear()
+ ||                  public boolean isMapped()
+ ||                  public void setMapped()
+ ||                  public boolean isBulk()
+ ||                  public void setBulk()
+ ||                  public double getFillFactor()
+ ||                  public void setFillFactor()
+ ||                  public int getCacheSize()
+ ||                  public void setCacheSize()
+ ||                  public int getThreads()
+ ||                  public void setThreads()
+ ||                  public double getFilterRate()
+ ||                  public void setFilterRate()
+ ||                  public int getRecordCacheSize()
+ ||                  public void setRecordCacheSize()
+ ||                  public int getBucketSize()
+ ||                  public void setBucketSize()
+ ||                  public boolean isAligned()
+ ||                  public void setAligned()
+ ||                  public boolean isSorted()
+ ||                  public void setSorted()
+ ||                  public boolean isAppend()
+ ||                  public void setAppend()
+ ||                  public boolean isWritable()
+ ||                  public void setWritable()
+ ||                  public double getCompactAt()
+ ||                  public void setCompactAt()
+ ||                  public int getLogGroup()
+ ||                  public void setLogGroup()
+ ||                  public boolean isStateIndex()
+ ||                  public void setStateIndex()
+ ||                  public boolean isTree()
+ ||                  public void setTree()
+ ||                  public boolean isGrid()
+ ||                  public void setGrid()
+ ||                  public boolean isColumns()
+ ||                  public void setColumns()
+ ||                  public static IndexSettings fromArgs()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class IndexSettings {
+
+	private boolean linear; //Grow one bucket at a time(true linear hashing) instead of doubling.
+	private boolean mapped; //Access lhl.idx through FileChannel.map instead of RAF seeks.
+	private boolean bulk; //Size the index from the record count and write each bucket once.
+	private double fillFactor; //The target occupancy of the buckets after a bulk load.
+	private int cacheSize; //The number of blocks the write-back cache keeps while building, 0 for none.
+	private int threads; //The number of record ranges the bulk loader hashes and sorts in parallel.
+	private double filterRate; //The false positive rate of the EID filter checked before lookups, 0 for no filter.
+	private int recordCacheSize; //The number of decoded Records kept for lookups, 0 for none.
+	private int bucketSize; //The entries per block of a new index, recorded in its header.
+	private boolean aligned; //Round the blocks of a new index up to a power of two(4 KiB pages hold whole blocks).
+	private boolean sorted; //Keep the entries of every block of a new index sorted by EID for binary search.
+	private boolean append; //Index only the records added to the .bin since lhl.idx was last written.
+	private boolean writable; //Open the .bin and lhl.idx for writing so records can be deleted, updated and compacted.
+	private double compactAt; //The tombstone ratio at which a delete starts compaction in the background, 0 for never.
+	private int logGroup; //The changes the write-ahead log commits together, 0 for no log.
+	private boolean stateIndex; //Keep the secondary index of record numbers by state(lhl.idx.states).
+	private boolean tree; //Keep the B+-tree over the EIDs for range scans(lhl.idx.tree).
+	private boolean grid; //Keep the spatial grid over the latitude and longitude(lhl.idx.grid).
+	private boolean columns; //Keep a copy of the .bin one file per field for scans of a few fields(lhl.idx.col.*).
+
+	public IndexSettings() {
+		this.linear = false;
+		this.mapped = false;
+		this.bulk = false;
+		this.fillFactor = 0.7;
+		this.cacheSize = 0;
+		this.threads = 1;
+		this.filterRate = 0;
+		this.recordCacheSize = 0;
+		this.bucketSize = 20;
+		this.aligned = false;
+		this.sorted = false;
+		this.append = false;
+		this.writable = false;
+		this.compactAt = 0;
+		this.logGroup = 0;
+		this.stateIndex = false;
+		this.tree = false;
+		this.grid = false;
+		this.columns = false;
+	}
+
+	//Setters and Getters for the class.
+	public boolean isLinear() {
+		return linear;
+	}
+
+	public void setLinear(boolean linear) {
+		this.linear = linear;
+	}
+
+	public boolean isMapped() {
+		return mapped;
+	}
+
+	public void setMapped(boolean mapped) {
+		this.mapped = mapped;
+	}
+
+	public boolean isBulk() {
+		return bulk;
+	}
+
+	public void setBulk(boolean bulk) {
+		this.bulk = bulk;
+	}
+
+	public double getFillFactor() {
+		return fillFactor;
+	}
+
+	//The fill factor must leave room in the buckets, values outside (0, 1] are rejected.
+	public void setFillFactor(double fillFactor) {
+		if (fillFactor <= 0 || fillFactor > 1) {
+			System.out.println("The fill factor must be greater than 0 and at most 1, keeping " + this.fillFactor);
+			return;
+		}
+		this.fillFactor = fillFactor;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = Math.max(0, cacheSize);
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public double getFilterRate() {
+		return filterRate;
+	}
+
+	//0 turns the filter off, a rate of 1 or more would let every EID through and is rejected.
+	public void setFilterRate(double filterRate) {
+		if (filterRate < 0 || filterRate >= 1) {
+			System.out.println("The filter false positive rate must be at least 0 and below 1, keeping " + this.filterRate);
+			return;
+		}
+		this.filterRate = filterRate;
+	}
+
+	public int getRecordCacheSize() {
+		return recordCacheSize;
+	}
+
+	public void setRecordCacheSize(int recordCacheSize) {
+		this.recordCacheSize = Math.max(0, recordCacheSize);
+	}
+
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	//Only used when building, an opened index always uses the bucket size in its header.
+	public void setBucketSize(int bucketSize) {
+		if (bucketSize < 1 || bucketSize > BlockLayout.MAXBUCKET) {
+			System.out.println("The bucket size must be between 1 and " + BlockLayout.MAXBUCKET + " entries, keeping " + this.bucketSize);
+			return;
+		}
+		this.bucketSize = bucketSize;
+	}
+
+	public boolean isAligned() {
+		return aligned;
+	}
+
+	public void setAligned(boolean aligned) {
+		this.aligned = aligned;
+	}
+
+	//Only used when building, an opened index is searched the way its header says it was built.
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	public void setSorted(boolean sorted) {
+		this.sorted = sorted;
+	}
+
+	//The layout, sorting and filter come from the existing index, so only the growth and storage options apply.
+	public boolean isAppend() {
+		return append;
+	}
+
+	public void setAppend(boolean append) {
+		this.append = append;
+	}
+
+	public boolean isWritable() {
+		return writable;
+	}
+
+	public void setWritable(boolean writable) {
+		this.writable = writable;
+	}
+
+	public double getCompactAt() {
+		return compactAt;
+	}
+
+	public void setCompactAt(double compactAt) {
+		if (compactAt < 0 || compactAt > 1) {
+			System.out.println("The compaction tombstone ratio must be between 0 and 1, keeping " + this.compactAt);
+			return;
+		}
+		this.compactAt = compactAt;
+	}
+
+	//Only record by record builds, appends and writable indexes are logged, a bulk load is written whole.
+	public int getLogGroup() {
+		return logGroup;
+	}
+
+	public void setLogGroup(int logGroup) {
+		this.logGroup = Math.max(0, logGroup);
+	}
+
+	public boolean isStateIndex() {
+		return stateIndex;
+	}
+
+	public void setStateIndex(boolean stateIndex) {
+		this.stateIndex = stateIndex;
+	}
+
+	public boolean isTree() {
+		return tree;
+	}
+
+	public void setTree(boolean tree) {
+		this.tree = tree;
+	}
+
+	public boolean isGrid() {
+		return grid;
+	}
+
+	public void setGrid(boolean grid) {
+		this.grid = grid;
+	}
+
+	public boolean isColumns() {
+		return columns;
+	}
+
+	public void setColumns(boolean columns) {
+		this.columns = columns;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method fromArgs(args, first)
+	|
+	|  Purpose:  Builds settings from the optional command line words used by Prog21 and
+	|            Prog22, for example "linear", "mapped", "bulk", "fill=0.7", "cache=4096", "threads=8" or
+	|            "bloom=0.01", "recordcache=512", "bucket=500", "aligned", "sorted", "append", "write",
+	|            "compact=0.2", "wal=256", "state", "tree", "grid" or "columns". Only the bulk
+	|            loader builds in parallel, so "threads=" also selects it, and only a writable
+	|            index compacts, so "compact=" also selects "write".
+	|            "wal" alone logs with groups of 1024 changes. Unknown words are reported and ignored
+	|            so a typo never silently changes the index.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: args - the command line arguements.
+	|              first - the index of the first optional arguement.
+	|
+	|  Returns: the settings described by the arguements.
+	*-------------------------------------------------------------------*/
+	public static IndexSettings fromArgs(String[] args, int first) {
+		IndexSettings settings = new IndexSettings();
+		for (int i = first; i < args.length; i++) {
+			if (args[i].equalsIgnoreCase("linear")) {
+				settings.setLinear(true);
+			} else if (args[i].equalsIgnoreCase("mapped")) {
+				settings.setMapped(true);
+			} else if (args[i].equalsIgnoreCase("bulk")) {
+				settings.setBulk(true);
+			} else if (args[i].equalsIgnoreCase("aligned")) {
+				settings.setAligned(true);
+			} else if (args[i].equalsIgnoreCase("sorted")) {
+				settings.setSorted(true);
+			} else if (args[i].equalsIgnoreCase("append")) {
+				settings.setAppend(true);
+			} else if (args[i].equalsIgnoreCase("write")) {
+				settings.setWritable(true);
+			} else if (args[i].equalsIgnoreCase("state")) {
+				settings.setStateIndex(true);
+			} else if (args[i].equalsIgnoreCase("tree")) {
+				settings.setTree(true);
+			} else if (args[i].equalsIgnoreCase("grid")) {
+				settings.setGrid(true);
+			} else if (args[i].equalsIgnoreCase("columns")) {
+				settings.setColumns(true);
+			} else if (args[i].equalsIgnoreCase("wal")) {
+				settings.setLogGroup(1024);
+			} else if (args[i].toLowerCase().startsWith("wal=")) {
+				try {
+					settings.setLogGroup(Integer.parseInt(args[i].substring(4)));
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring write-ahead log group size " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("compact=")) {
+				try {
+					settings.setCompactAt(Double.parseDouble(args[i].substring(8)));
+					settings.setWritable(true);
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring compaction ratio " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("fill=")) {
+				try {
+					settings.setFillFactor(Double.parseDouble(args[i].substring(5)));
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring fill factor " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("cache=")) {
+				try {
+					settings.setCacheSize(Integer.parseInt(args[i].substring(6)));
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring cache size " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("threads=")) {
+				try {
+					settings.setThreads(Integer.parseInt(args[i].substring(8)));
+					settings.setBulk(true);
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring thread count " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("bloom=")) {
+				try {
+					settings.setFilterRate(Double.parseDouble(args[i].substring(6)));
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring filter rate " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("bucket=")) {
+				try {
+					settings.setBucketSize(Integer.parseInt(args[i].substring(7)));
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring bucket size " + args[i]);
+				}
+			} else if (args[i].toLowerCase().startsWith("recordcache=")) {
+				try {
+					settings.setRecordCacheSize(Integer.parseInt(args[i].substring(12)));
+				} catch (NumberFormatException e) {
+					System.out.println("Ignoring record cache size " + args[i]);
+				}
+			} else {
+				System.out.println("Ignoring unknown option " + args[i]);
+			}
+		}
+		return settings;
+	}
+}
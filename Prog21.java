@@ -45,8 +45,18 @@ public static void main(String[] args) {
 	}
 	// 2021-utility-scale-solar-plants
 
+	//Optional arguements after the path: "linear" selects true linear hashing (one bucket split per growth step)
+	//instead of doubling the whole index, "mapped" accesses lhl.idx through a memory mapping, "append"
+	//only indexes the records added to the end of the .bin since lhl.idx was written, "wal" logs the
+	//build so a crashed one is finished by running again with "append", "state" also saves the record numbers
+	//of every state in lhl.idx.states, "tree" saves a B+-tree over the EIDs in lhl.idx.tree, "grid" saves a
+	//spatial grid over the latitude and longitude in lhl.idx.grid and "columns" saves each field of the .bin
+	//in its own file, lhl.idx.col.eid to lhl.idx.col.capDc.
+	IndexSettings settings = IndexSettings.fromArgs(args, 1);
+
 	System.out.println("Reading file " + args[0]);
-	IndexBin binRead = new IndexBin(args[0]);
+	IndexBin binRead = new IndexBin(args[0], settings);
+	binRead.close();
 
 }
 }
@@ -1,3 +1,4 @@
+import java.util.ArrayList;
 import java.util.Scanner;
 
 /*+----------------------------------------------------------------------
@@ -35,7 +36,7 @@ public class Prog22 {
 
 	public static void main(String[] args) {
 
-			if(args.length < 2 || args.length > 3) {
+			if(args.length < 2) {
 				System.out.println("Error the program needs exactly two arguements. These should be lhl.idx and 2021-utility-scale-solar-plants");
 				System.exit(-1);
 			}
@@ -44,7 +45,13 @@ public class Prog22 {
 			
 			System.out.println("Reading from " + arg2 + " and " + arg1 + "\n");
 
-			IndexBin inBin = new IndexBin(arg2, arg1);
+			//Optional arguements after the two files, "mapped" reads lhl.idx through a memory mapping and
+			//"bloom=0.01" checks an EID filter before reading lhl.idx and "recordcache=512" keeps recent Records.
+			//"state" opens lhl.idx.states so a state code can be entered instead of an EID, "tree"
+			//opens lhl.idx.tree so a range of EIDs like 60000-61000 can, and "grid" opens lhl.idx.grid
+			//so a place can: 35.2,-118.1,5 for the 5 closest plants, 35.2,-118.1,50km for the plants
+			//within 50 km and 34,-119,36,-117 for the plants in the box between two corners.
+			IndexBin inBin = new IndexBin(arg2, arg1, IndexSettings.fromArgs(args, 2));
 			checkEIDs(inBin);
 
 	}
@@ -76,16 +83,65 @@ public class Prog22 {
 		while (EIDsearched != -1) {
 			// Inner loop to handle bad inputs
 			do {
-				System.out.print("\nPlease enter an EID value between 1-99999\n");
+				ArrayList<String> others = new ArrayList<String>();
+				if (binRead.getTree() != null) {
+					others.add("a range of EIDs like 60000-61000");
+				}
+				if (binRead.getStateIndex() != null) {
+					others.add("a state code");
+				}
+				if (binRead.getGrid() != null) {
+					others.add("a place like 35.2,-118.1,5");
+				}
+				String prompt = "\nPlease enter an EID value between 1-99999";
+				if (others.size() > 1) {
+					prompt = prompt + ", " + String.join(", ", others.subList(0, others.size() - 1));
+				}
+				if (others.size() > 0) {
+					prompt = prompt + " or " + others.get(others.size() - 1);
+				}
+				System.out.print(prompt + "\n");
 				while (!input.hasNextInt()) {
 					String wrong = input.next();
-					System.out.println(wrong + " is not a valid EID.\n");
+					//With the tree two EIDs joined by a dash are a range, with the grid numbers joined by
+					//commas are a place, with the state index a word is a state code. Every record of the
+					//range, place or state is printed.
+					if (binRead.getTree() != null && wrong.matches("\\d{1,9}-\\d{1,9}")) {
+						String[] ends = wrong.split("-");
+						binRead.checkRange(Integer.parseInt(ends[0]), Integer.parseInt(ends[1]));
+					} else if (binRead.getGrid() != null && wrong.contains(",")) {
+						checkPlace(binRead, wrong);
+					} else if (binRead.getStateIndex() != null) {
+						binRead.checkState(wrong.toUpperCase());
+					} else {
+						System.out.println(wrong + " is not a valid EID.\n");
+					}
 				}
 				EIDsearched = input.nextInt();
 			} while (EIDsearched < -1);
 
 			// The search has been ended.
 			if (EIDsearched == -1) {
+				//With "bloom=" the filter reports how many index probes it saved.
+				if (binRead.getFilter() != null) {
+					System.out.println(binRead.getFilter().toString());
+				}
+				//With "recordcache=" the cache reports its hit rate.
+				if (binRead.getRecordCache() != null) {
+					System.out.println(binRead.getRecordCache().toString());
+				}
+				//With "state" the state index reports the postings it read.
+				if (binRead.getStateIndex() != null) {
+					System.out.println(binRead.getStateIndex().toString());
+				}
+				//With "tree" the tree reports the nodes its range scans read.
+				if (binRead.getTree() != null) {
+					System.out.println(binRead.getTree().toString());
+				}
+				//With "grid" the grid reports the entries its queries tested.
+				if (binRead.getGrid() != null) {
+					System.out.println(binRead.getGrid().toString());
+				}
 				System.out.println("Have a great day.\nThanks for grading!\n");
 				System.exit(0);
 			}
@@ -100,4 +156,43 @@ public class Prog22 {
 
 		}
 	}
+
+	/*---------------------------------------------------------------------
+	|  Method checkPlace(binRead, place)
+	|
+	|  Purpose:  Searches the spatial grid for the place entered and prints every record
+	|            found. Three numbers are a point and either how many of its closest plants
+	|            are wanted(35.2,-118.1,5) or a distance in km(35.2,-118.1,50km), four numbers
+	|            are two corners of a box(34,-119,36,-117).
+	|
+	|  Pre-condition: The index was opened with "grid".
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: IndexBin binRead- the associated bin to be used to access the files within.
+	|              String place- the place as it was entered.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void checkPlace(IndexBin binRead, String place) {
+		String[] parts = place.split(",");
+		try {
+			if (parts.length == 4) {
+				double lat1 = Double.parseDouble(parts[0]);
+				double lon1 = Double.parseDouble(parts[1]);
+				double lat2 = Double.parseDouble(parts[2]);
+				double lon2 = Double.parseDouble(parts[3]);
+				binRead.checkBox(Math.min(lat1, lat2), Math.min(lon1, lon2), Math.max(lat1, lat2), Math.max(lon1, lon2));
+			} else if (parts.length == 3 && parts[2].toLowerCase().endsWith("km")) {
+				binRead.checkWithin(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+						Double.parseDouble(parts[2].substring(0, parts[2].length() - 2)));
+			} else if (parts.length == 3) {
+				binRead.checkNearest(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+			} else {
+				System.out.println(place + " is not a valid place.\n");
+			}
+		} catch (NumberFormatException e) {
+			System.out.println(place + " is not a valid place.\n");
+		}
+	}
 }
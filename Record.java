@@ -1,5 +1,6 @@
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 import java.util.Formatter;
 
@@ -52,6 +53,7 @@ public class Record implements Comparable<Object>{
 	 ||                  void   setName()
 	 ||                  void   setCod()
 	 ||                  void   setEid()
+	 ||                  Record copy()
 	 ||
 	 ++-----------------------------------------------------------------------*/
 
@@ -155,6 +157,20 @@ public class Record implements Comparable<Object>{
 		return state;
 	}
 
+	//A new Record with the same field values, so changing it leaves this one as it is.
+	public Record copy() {
+		Record copy = new Record(eid);
+		copy.name = name;
+		copy.cod = cod;
+		copy.state = state;
+		copy.lat = lat;
+		copy.lon = lon;
+		copy.ghi = ghi;
+		copy.capAc = capAc;
+		copy.capDc = capDc;
+		return copy;
+	}
+
 	
     /*---------------------------------------------------------------------
     |  Method writeToBin (stream, maxName, maxState, maxCOD)
@@ -231,6 +247,53 @@ public class Record implements Comparable<Object>{
 		
 
 	}
+
+	/*---------------------------------------------------------------------
+    |  Method writeToBin (buffer, maxName, maxState, maxCOD)
+    |
+    |  Purpose:  Writes the record into the buffer in exactly the layout of the RAF version, so
+    |            many records can be written to the .bin with one write. The trailing max field
+    |            lengths are not written here.
+    |
+    |  Pre-condition:  The buffer must have room for one record and no String may be longer
+    |                  than its max field length.
+    |
+    |  Post-condition: The buffer is one record further. The Strings are padded with spaces.
+    |
+    |  Parameters:
+    |      buffer -- the buffer receiving the record.
+    |      maxName, maxState, maxCOD -- the max field lengths of the .bin.
+    |
+    |  Returns: None.
+    *-------------------------------------------------------------------*/
+	public void writeToBin(ByteBuffer buffer, int maxName, int maxState, int maxCOD) {
+		while (name.length() < maxName) {
+			name = name + " ";
+		}
+		while (state.length() < maxState) {
+			state = state + " ";
+		}
+		while (cod.length() < maxCOD) {
+			cod = cod + " ";
+		}
+
+		//writeBytes() keeps the low byte of every char, and so does this.
+		buffer.putInt(eid);
+		for (int i = 0; i < maxName; i++) {
+			buffer.put((byte) name.charAt(i));
+		}
+		for (int i = 0; i < maxCOD; i++) {
+			buffer.put((byte) cod.charAt(i));
+		}
+		for (int i = 0; i < maxState; i++) {
+			buffer.put((byte) state.charAt(i));
+		}
+		buffer.putDouble(lat);
+		buffer.putDouble(lon);
+		buffer.putDouble(ghi);
+		buffer.putDouble(capAc);
+		buffer.putDouble(capDc);
+	}
 	
     /*---------------------------------------------------------------------
     |  Method readEntry(RandomAccessFile stream, int maxName, int maxState, int maxCOD)
@@ -257,8 +320,8 @@ public class Record implements Comparable<Object>{
     *-------------------------------------------------------------------*/
 	public String readEntry(RandomAccessFile stream, int maxName, int maxState, int maxCOD) {
 		byte[] ctyName = new byte[maxName]; // ASCII, not UNICODE
-		byte[] CODName = new byte[maxState];
-		byte[] stateName = new byte[maxCOD];
+		byte[] CODName = new byte[maxCOD];
+		byte[] stateName = new byte[maxState];
 
 		try {
 			this.eid = stream.readInt();
@@ -280,6 +343,44 @@ public class Record implements Comparable<Object>{
 		}
 		return (this.toString());
 	}
+
+	/*---------------------------------------------------------------------
+    |  Method readEntry(ByteBuffer buffer, int maxName, int maxState, int maxCOD)
+    |
+    |  Purpose:  Reads a single entry the same way as the RAF version, but from bytes already
+    |            read into memory. Used when many records are read in one pass over the .bin,
+    |            so no String is built for printing.
+    |
+    |  Pre-condition: The buffer is positioned on the first byte of the record and holds the
+    |                 whole record.
+    |
+    |  Post-condition: The buffer is one record further.
+    |
+    |  Parameters: ByteBuffer buffer, The bytes to read the record from.
+    |              int maxName, The maximum field length for the name field across the entire .csv/.bin
+    |              int maxState, The maximum field length for the state across the entire .csv/.bin
+    |              int maxCOD, The maximum field length for the COD across the entire .csv/.bin
+    |
+    |  Returns: None.
+    *-------------------------------------------------------------------*/
+	public void readEntry(ByteBuffer buffer, int maxName, int maxState, int maxCOD) {
+		byte[] ctyName = new byte[maxName];
+		byte[] CODName = new byte[maxCOD];
+		byte[] stateName = new byte[maxState];
+
+		this.eid = buffer.getInt();
+		buffer.get(ctyName);
+		this.name = new String(ctyName);
+		buffer.get(CODName);
+		this.cod = new String(CODName);
+		buffer.get(stateName);
+		this.state = new String(stateName);
+		this.lat = buffer.getDouble();
+		this.lon = buffer.getDouble();
+		this.ghi = buffer.getDouble();
+		this.capAc = buffer.getDouble();
+		this.capDc = buffer.getDouble();
+	}
 	
 
 	/*---------------------------------------------------------------------
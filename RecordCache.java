@@ -0,0 +1,115 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class RecordCache
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class keeps a bounded number of decoded Records in memory
+ ||                  keyed by EID, so a lookup of a popular EID costs neither a bucket probe nor a
+ ||                  read of the .bin. The least recently used Record is evicted once the cache
+ ||                  is full. Only Records that were found are cached, so adding records to the
+ ||                  index can never make an entry wrong; anything that changes or removes a
+ ||                  record must call invalidate() or clear(). Every method is synchronized so
+ ||                  concurrent lookups may share one cache.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the number of Records to keep.
+ ||
+ ||  Class Methods:  public Record get()
+ ||                  public void put()
+ ||                  public void invalidate()
+ ||                  public void clear()
+ ||                  public long getHits()
+ ||                  public long getMisses()
+ ||                  public long getEvictions()
+ ||                  public double hitRate()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class RecordCache {
+
+	private int capacity; //The most Records kept in memory.
+	private LinkedHashMap<Integer, Record> records; //The cached Records by EID, in least recently used order.
+	private long hits; //Lookups answered from memory.
+	private long misses; //Lookups that had to go to the index.
+	private long evictions; //Records dropped to make room.
+
+	public RecordCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		//An access ordered map evicts the least recently used Record once it is over capacity.
+		this.records = new LinkedHashMap<Integer, Record>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Record> eldest) {
+				if (size() <= RecordCache.this.capacity) {
+					return false;
+				}
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	//Returns the cached Record of the EID, or null on a miss. The Record is shared and must not be changed.
+	public synchronized Record get(int EID) {
+		Record found = records.get(EID);
+		if (found != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return found;
+	}
+
+	public synchronized void put(int EID, Record record) {
+		records.put(EID, record);
+	}
+
+	//Drops the Record of one EID after it was changed or removed.
+	public synchronized void invalidate(int EID) {
+		records.remove(EID);
+	}
+
+	//Drops every Record, for when the index is rebuilt. The counters are kept.
+	public synchronized void clear() {
+		records.clear();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	//The share of lookups answered from memory, 0 before the first lookup.
+	public synchronized double hitRate() {
+		if (hits + misses == 0) {
+			return 0;
+		}
+		return (double) hits / (hits + misses);
+	}
+
+	public synchronized String toString() {
+		return "The record cache(" + capacity + " records) had " + hits + " hits and " + misses + " misses("
+				+ String.format("%.1f", 100 * hitRate()) + "% hits) and evicted " + evictions + " records.";
+	}
+}
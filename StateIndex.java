@@ -0,0 +1,372 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class StateIndex
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a secondary index over the state of the records
+ ||                  in the .bin. For every state code it keeps the posting list of the record
+ ||                  numbers holding it, in ascending order, so the records of one state can be
+ ||                  read in offset order without scanning the rest of the .bin. It is built in
+ ||                  memory in the same pass as lhl.idx and saved next to it(lhl.idx.states) as a
+ ||                  posting file: a directory of the states and their counts followed by every
+ ||                  posting list. An index read from a posting file only keeps the directory in
+ ||                  memory and reads one list per query. The file records the length and
+ ||                  fingerprint of the .bin it was built from, so a stale one is never used.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  Sidecar.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  MAGIC - the first int of a saved posting file.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  The public constructor starts an empty index to build in memory. read()
+ ||                  opens a saved posting file.
+ ||
+ ||  Class Methods:  public static String key()
+ ||                  private int idOf()
+ ||                  public void add()
+ ||                  public void addAll()
+ ||                  public String remove()
+ ||                  public int[] postings()
+ ||                  private int[] list()
+ ||                  public String[] getStates()
+ ||                  public long getRecords()
+ ||                  public boolean describes()
+ ||                  public boolean write()
+ ||                  public boolean stale()
+ ||                  public StateIndex writable()
+ ||                  public static StateIndex read()
+ ||                  public void close()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class StateIndex implements Sidecar<StateIndex> {
+
+	private static int MAGIC = 0x53544154; //"STAT", marks a saved posting file.
+
+	private HashMap<String, Integer> ids = new HashMap<String, Integer>(); //The number of each state, in order of first appearance.
+	private ArrayList<String> names = new ArrayList<String>(); //The state of each number.
+	private int[] counts = new int[16]; //The postings of each state.
+	private ArrayList<int[]> lists; //The posting list of each state when built in memory, null when read from a file.
+	private long[] starts; //Where the posting list of each state starts in the file, null when built in memory.
+	private FileChannel file; //The posting file the lists are read from, null when built in memory.
+	private long records; //The postings of every state together.
+	private long binLength; //The length and fingerprint of the .bin a read index was saved for.
+	private long binFingerprint;
+	private LongAdder queries = new LongAdder(); //Calls of postings().
+	private LongAdder postingsRead = new LongAdder(); //Record numbers those calls returned.
+
+	public StateIndex() {
+		this.lists = new ArrayList<int[]>();
+	}
+
+	private StateIndex(FileChannel file, long binLength, long binFingerprint) {
+		this.file = file;
+		this.binLength = binLength;
+		this.binFingerprint = binFingerprint;
+	}
+
+	//The state field is padded on the right with nulls in the .bin, the key is the code without them.
+	public static String key(String state) {
+		return state.trim();
+	}
+
+	//The number of the state, a new state gets the next one and an empty list.
+	private int idOf(String key) {
+		Integer id = ids.get(key);
+		if (id == null) {
+			id = names.size();
+			ids.put(key, id);
+			names.add(key);
+			if (id == counts.length) {
+				counts = Arrays.copyOf(counts, counts.length * 2);
+			}
+			lists.add(new int[4]);
+		}
+		return id;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method add(state, record)
+	|
+	|  Purpose:  Adds the record number to the posting list of its state. Records added in
+	|            record order are appended, which is how every build adds them. A record
+	|            added out of order(moved by compaction or changed by an update) is inserted
+	|            where it keeps the list ascending.
+	|
+	|  Pre-condition:  The index was built in memory, not read from a file.
+	|
+	|  Post-condition: The list of the state holds the record once more.
+	|
+	|  Parameters: state - the state of the record, padded or not.
+	|              record - the record number in the .bin.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	public void add(String state, int record) {
+		int id = idOf(key(state));
+		int[] list = lists.get(id);
+		int count = counts[id];
+		if (count == list.length) {
+			list = Arrays.copyOf(list, list.length * 2);
+			lists.set(id, list);
+		}
+		int at = count;
+		if (count > 0 && list[count - 1] > record) {
+			at = Arrays.binarySearch(list, 0, count, record);
+			at = at < 0 ? -(at + 1) : at;
+			System.arraycopy(list, at, list, at + 1, count - at);
+		}
+		list[at] = record;
+		counts[id]++;
+		records++;
+	}
+
+	//Adds every posting of other, state by state in the order other first met them.
+	public void addAll(StateIndex other) {
+		for (int id = 0; id < other.names.size(); id++) {
+			for (int record : other.list(id)) {
+				add(other.names.get(id), record);
+			}
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method remove(record)
+	|
+	|  Purpose:  Takes the record number out of whichever posting list holds it. Every list
+	|            is binary searched, which costs one search per state(a few dozen) and saves
+	|            reading the state of a deleted record from the .bin.
+	|
+	|  Pre-condition:  The index was built in memory, not read from a file.
+	|
+	|  Post-condition: No list holds the record.
+	|
+	|  Parameters: record - the record number in the .bin.
+	|
+	|  Returns: the state whose list held it, or null when none did.
+	*-------------------------------------------------------------------*/
+	public String remove(int record) {
+		for (int id = 0; id < names.size(); id++) {
+			int[] list = lists.get(id);
+			int at = Arrays.binarySearch(list, 0, counts[id], record);
+			if (at >= 0) {
+				System.arraycopy(list, at + 1, list, at, counts[id] - at - 1);
+				counts[id]--;
+				records--;
+				return names.get(id);
+			}
+		}
+		return null;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method postings(state)
+	|
+	|  Purpose:  Returns the record numbers of the state in ascending order. An index read
+	|            from a file reads the list with one positional read, so any number of threads
+	|            may query it at once.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: state - the state wanted, padded or not.
+	|
+	|  Returns: the record numbers, empty when no record has the state.
+	*-------------------------------------------------------------------*/
+	public int[] postings(String state) {
+		queries.increment();
+		Integer id = ids.get(key(state));
+		if (id == null) {
+			return new int[0];
+		}
+		int[] found = list(id);
+		postingsRead.add(found.length);
+		return found;
+	}
+
+	//The posting list of one state number, copied out of memory or read from the file.
+	private int[] list(int id) {
+		if (file == null) {
+			return Arrays.copyOf(lists.get(id), counts[id]);
+		}
+		ByteBuffer bytes = ByteBuffer.allocate(counts[id] * 4);
+		try {
+			IndexFile.readAt(file, starts[id], bytes);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the postings of " + names.get(id) + " from the state index.");
+			System.exit(-1);
+		}
+		int[] found = new int[counts[id]];
+		bytes.flip();
+		bytes.asIntBuffer().get(found);
+		return found;
+	}
+
+	//The states with at least one record, in alphabetical order.
+	public String[] getStates() {
+		ArrayList<String> states = new ArrayList<String>();
+		for (int id = 0; id < names.size(); id++) {
+			if (counts[id] > 0) {
+				states.add(names.get(id));
+			}
+		}
+		String[] sorted = states.toArray(new String[0]);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	//True when the posting file was saved for a .bin of this length and fingerprint.
+	public boolean describes(long length, long fingerprint) {
+		return binLength == length && binFingerprint == fingerprint;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method write(path, length, fingerprint)
+	|
+	|  Purpose:  Saves the index as a posting file: MAGIC, the length and fingerprint of the
+	|            .bin, the number of states, then the code and posting count of each state in
+	|            alphabetical order, then their posting lists in the same order as ints.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: The file at path holds the index.
+	|
+	|  Parameters: path - the file to write.
+	|              length - the length of the .bin the postings point into.
+	|              fingerprint - its fingerprint(see IndexBin.fingerprintBin()).
+	|
+	|  Returns: true
+	*-------------------------------------------------------------------*/
+	public boolean write(String path, long length, long fingerprint) {
+		String[] states = getStates();
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeLong(length);
+			out.writeLong(fingerprint);
+			out.writeInt(states.length);
+			for (String state : states) {
+				out.writeUTF(state);
+				out.writeInt(counts[ids.get(state)]);
+			}
+			for (String state : states) {
+				for (int record : list(ids.get(state))) {
+					out.writeInt(record);
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the state index " + path + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		return true;
+	}
+
+	//The postings of a changed .bin are kept in memory, only the saved posting file is deleted.
+	public boolean stale(String path) {
+		new File(path).delete();
+		return true;
+	}
+
+	//An index read from a posting file is copied into memory, so records can be added and removed.
+	public StateIndex writable() {
+		if (file == null) {
+			return this;
+		}
+		StateIndex copy = new StateIndex();
+		copy.addAll(this);
+		return copy;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method read(path)
+	|
+	|  Purpose:  Opens a posting file saved by write() and reads its directory. The posting
+	|            lists stay in the file until a query asks for one, so the file is kept open
+	|            until close().
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: path - the saved posting file.
+	|
+	|  Returns: the index, or null when the file is missing or is not a posting file.
+	*-------------------------------------------------------------------*/
+	public static StateIndex read(String path) {
+		if (!new File(path).isFile()) {
+			return null;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(path, "r");
+			if (raf.length() < 24 || raf.readInt() != MAGIC) {
+				raf.close();
+				return null;
+			}
+			StateIndex index = new StateIndex(raf.getChannel(), raf.readLong(), raf.readLong());
+			int states = raf.readInt();
+			index.starts = new long[Math.max(16, states)];
+			index.counts = new int[Math.max(16, states)];
+			for (int id = 0; id < states; id++) {
+				String state = raf.readUTF();
+				index.ids.put(state, id);
+				index.names.add(state);
+				index.counts[id] = raf.readInt();
+			}
+			long start = raf.getFilePointer();
+			for (int id = 0; id < states; id++) {
+				index.starts[id] = start;
+				start = start + (4L * index.counts[id]);
+				index.records = index.records + index.counts[id];
+			}
+			if (start != raf.length()) {
+				raf.close();
+				return null;
+			}
+			return index;
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the state index " + path + ", it is ignored.");
+			return null;
+		}
+	}
+
+	//Closes the posting file of an index that was read from one.
+	public void close() {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				System.out.println("I/O ERROR: Couldn't close the state index.");
+			}
+		}
+	}
+
+	public String toString() {
+		return "State index: " + getStates().length + " states over " + records + " records, " + queries.sum()
+				+ " queries read " + postingsRead.sum() + " postings.";
+	}
+}
@@ -0,0 +1,146 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class BenchHarness
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class measures one operation the way JMH does in its
+ ||                  sample time mode, without needing JMH on the class path. The operation is
+ ||                  first run for a warm up period so the JIT has compiled it, then run again
+ ||                  for a measurement period while every call is timed on its own. An optional
+ ||                  setup runs before every call and is left out of the timings. Each row reports
+ ||                  the calls per second, the latency percentiles and the bytes the calls
+ ||                  allocated(from the HotSpot per thread allocation counter).
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  PERCENTILES - the latency percentiles printed for every row.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the stream the rows are printed to and the warm up and measurement
+ ||                  periods in seconds.
+ ||
+ ||  Class Methods:  public void printHeader()
+ ||                  public void run()
+ ||                  private long allocatedBytes()
+ ||                  private static String formatNanos()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class BenchHarness {
+
+	private static double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 }; //The percentiles of each row.
+
+	private PrintStream out; //Where the rows are printed.
+	private long warmupNanos; //How long every operation is warmed up.
+	private long measureNanos; //How long every operation is measured.
+	private com.sun.management.ThreadMXBean threads; //The allocation counter, null when the JVM has none.
+
+	public BenchHarness(PrintStream out, double warmupSeconds, double measureSeconds) {
+		this.out = out;
+		this.warmupNanos = (long) (warmupSeconds * 1e9);
+		this.measureNanos = (long) (measureSeconds * 1e9);
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!threads.isThreadAllocatedMemorySupported()) {
+				threads = null;
+			} else {
+				threads.setThreadAllocatedMemoryEnabled(true);
+			}
+		}
+	}
+
+	public void printHeader() {
+		out.printf("%-26s %10s %8s %12s %10s %10s %10s %10s %10s %12s %10s%n", "Benchmark", "records", "ops", "ops/s",
+				"p50", "p90", "p99", "p99.9", "max", "B/op", "MB/s");
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method run(name, records, setup, operation)
+	|
+	|  Purpose:  Warms the operation up, measures it and prints one row. Both periods always
+	|            run the operation at least once, so slow operations such as a whole build
+	|            still get one timed call.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: One row has been printed.
+	|
+	|  Parameters: name - the benchmark name printed in the row.
+	|              records - the size of the dataset the operation works on.
+	|              setup - run before every call outside of the timings, or null.
+	|              operation - the operation being measured.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void run(String name, long records, Runnable setup, Runnable operation) {
+		long end = System.nanoTime() + warmupNanos;
+		do {
+			if (setup != null) {
+				setup.run();
+			}
+			operation.run();
+		} while (System.nanoTime() < end);
+
+		long[] samples = new long[1024];
+		int calls = 0;
+		long busy = 0;
+		long allocated = 0;
+		end = System.nanoTime() + measureNanos;
+		do {
+			if (setup != null) {
+				setup.run();
+			}
+			long before = allocatedBytes();
+			long start = System.nanoTime();
+			operation.run();
+			long took = System.nanoTime() - start;
+			allocated = allocated + (allocatedBytes() - before);
+			if (calls == samples.length) {
+				samples = Arrays.copyOf(samples, calls * 2);
+			}
+			samples[calls] = took;
+			calls++;
+			busy = busy + took;
+		} while (System.nanoTime() < end);
+
+		Arrays.sort(samples, 0, calls);
+		String[] percentiles = new String[PERCENTILES.length];
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			int rank = (int) Math.ceil(PERCENTILES[i] * calls) - 1;
+			percentiles[i] = formatNanos(samples[Math.max(0, rank)]);
+		}
+		String perCall = (threads == null) ? "n/a" : String.format("%.1f", (double) allocated / calls);
+		String rate = (threads == null) ? "n/a" : String.format("%.1f", allocated / (busy / 1e9) / (1 << 20));
+		out.printf("%-26s %10d %8d %12.1f %10s %10s %10s %10s %10s %12s %10s%n", name, records, calls,
+				calls / (busy / 1e9), percentiles[0], percentiles[1], percentiles[2], percentiles[3],
+				formatNanos(samples[calls - 1]), perCall, rate);
+	}
+
+	//The bytes this thread has allocated so far, 0 when the JVM cannot tell.
+	private long allocatedBytes() {
+		if (threads == null) {
+			return 0;
+		}
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	//Prints a latency with a unit that keeps it short.
+	private static String formatNanos(long nanos) {
+		if (nanos < 10_000) {
+			return nanos + " ns";
+		}
+		if (nanos < 10_000_000) {
+			return String.format("%.1f us", nanos / 1e3);
+		}
+		return String.format("%.1f ms", nanos / 1e6);
+	}
+}
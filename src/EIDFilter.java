@@ -0,0 +1,240 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class EIDFilter
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a Bloom filter over the EIDs stored in lhl.idx.
+ ||                  It answers "definitely not in the index" or "maybe in the index", so a lookup
+ ||                  of an EID that was never indexed usually returns without reading a single
+ ||                  block. It is sized from the number of EIDs and the false positive rate wanted,
+ ||                  and is saved next to the index(lhl.idx.bloom) so an opened index gets it back
+ ||                  without reading the .bin. Since it does not depend on the buckets, splits and
+ ||                  doublings never touch it. The counters are safe to update from many threads.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  MAGIC - the first int of a saved filter.
+ ||                  MAXHASHES - the most bits set per EID.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the expected number of EIDs and the false positive rate wanted.
+ ||
+ ||  Class Methods:  public void add()
+ ||                  public boolean mightContain()
+ ||                  public void falsePositive()
+ ||                  public long getEntries()
+ ||                  public long getChecks()
+ ||                  public long getSkipped()
+ ||                  public long getFalsePositives()
+ ||                  public double getRate()
+||                  public double expectedRate()
+ ||                  public void write()
+ ||                  public static EIDFilter read()
+ ||                  private static long hash()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class EIDFilter {
+
+	private static int MAGIC = 0x424C4F32; //"BLO2", marks a saved filter that keeps the rate it was sized for.
+	private static int MAXHASHES = 16; //More bits per EID only helps for rates nobody asks for.
+
+	private long[] words; //The bits of the filter.
+	private long bits; //The number of bits, always a multiple of 64.
+	private int hashes; //The number of bits set for each EID.
+	private double rate; //The false positive rate the filter was sized for.
+	private long entries; //The number of EIDs added.
+	private LongAdder checks = new LongAdder(); //Calls of mightContain().
+	private LongAdder skipped = new LongAdder(); //Checks answered "not in the index", each one a chain walk saved.
+	private LongAdder falsePositives = new LongAdder(); //Checks that passed for EIDs the index did not have.
+
+	public EIDFilter(long expected, double falsePositiveRate) {
+		//The textbook sizes: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hashes.
+		double perEntry = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		long wanted = (long) Math.ceil(Math.max(1, expected) * perEntry);
+		this.words = new long[(int) Math.max(1, (wanted + 63) / 64)];
+		this.bits = 64L * words.length;
+		this.hashes = (int) Math.max(1, Math.min(MAXHASHES, Math.round(perEntry * Math.log(2))));
+		this.rate = falsePositiveRate;
+	}
+
+	private EIDFilter(long[] words, int hashes, double rate, long entries) {
+		this.words = words;
+		this.bits = 64L * words.length;
+		this.hashes = hashes;
+		this.rate = rate;
+		this.entries = entries;
+	}
+
+	//Sets the bits of the EID. Not thread safe, the filter is filled while the index is built.
+	public void add(int EID) {
+		long hash = hash(EID);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			long bit = Long.remainderUnsigned((h1 + (long) i * h2) & 0xFFFFFFFFFFFFL, bits);
+			words[(int) (bit >>> 6)] |= 1L << bit;
+		}
+		entries++;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method mightContain(EID)
+	|
+	|  Purpose:  Checks the bits of the EID, counting the check and, when a bit is clear, the
+	|            index probe it saves.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: The counters are updated.
+	|
+	|  Parameters: EID - the EID about to be looked up.
+	|
+	|  Returns: false when the EID was never added, true when it may have been.
+	*-------------------------------------------------------------------*/
+	public boolean mightContain(int EID) {
+		checks.increment();
+		long hash = hash(EID);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			long bit = Long.remainderUnsigned((h1 + (long) i * h2) & 0xFFFFFFFFFFFFL, bits);
+			if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				skipped.increment();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Records that an EID passed the filter but was not found in the index.
+	public void falsePositive() {
+		falsePositives.increment();
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	public long getChecks() {
+		return checks.sum();
+	}
+
+	public long getSkipped() {
+		return skipped.sum();
+	}
+
+	public long getFalsePositives() {
+		return falsePositives.sum();
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	//The false positive rate the filter should have with the EIDs added so far.
+	public double expectedRate() {
+		return Math.pow(1 - Math.exp(-(double) hashes * entries / bits), hashes);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method write(path)
+	|
+	|  Purpose:  Saves the filter as MAGIC, the number of EIDs added, the number of hashes, the
+	|            rate it was sized for, the number of words and then the words.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: path holds the filter.
+	|
+	|  Parameters: path - the file to write, replaced if it exists.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void write(String path) {
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeLong(entries);
+			out.writeInt(hashes);
+			out.writeDouble(rate);
+			out.writeInt(words.length);
+			for (long word : words) {
+				out.writeLong(word);
+			}
+			out.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the EID filter " + path + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method read(path)
+	|
+	|  Purpose:  Loads a filter saved by write().
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: path - the saved filter.
+	|
+	|  Returns: the filter, or null when the file is missing or is not a saved filter(older
+	|           ones without the rate included).
+	*-------------------------------------------------------------------*/
+	public static EIDFilter read(String path) {
+		if (!new File(path).isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+			EIDFilter filter = null;
+			if (in.readInt() == MAGIC) {
+				long entries = in.readLong();
+				int hashes = in.readInt();
+				double rate = in.readDouble();
+				long[] words = new long[in.readInt()];
+				for (int i = 0; i < words.length; i++) {
+					words[i] = in.readLong();
+				}
+				filter = new EIDFilter(words, hashes, rate, entries);
+			}
+			in.close();
+			return filter;
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the EID filter " + path + ", it is ignored.");
+			return null;
+		}
+	}
+
+	//Spreads the bits of the EID over 64 bits(the finalizer of MurmurHash3), sequential EIDs included.
+	private static long hash(int EID) {
+		long h = EID * 0x9E3779B97F4A7C15L;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB93FE1A85B53L;
+		return h ^ (h >>> 33);
+	}
+
+	public String toString() {
+		return "The EID filter(" + bits + " bits, " + hashes + " hashes, expected false positive rate "
+				+ String.format("%.4f", expectedRate()) + ") was checked " + getChecks() + " times, skipped "
+				+ getSkipped() + " index probes and let " + getFalsePositives() + " misses through.";
+	}
+}
@@ -1,235 +1,238 @@
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-
-
-/*+----------------------------------------------------------------------
- ||
- ||  Class EntryBlock
- ||
- ||         Author:  Todd Noecker 
- ||
- ||        Purpose:  An object of this class will hold 20 record entries and one additional int
- ||                  for its current capacity. The Entryblock has a size of 164 bytes. To minimize
- ||                  I/O the Class features methods to read and write entire chunks(buckets) in the
- ||                  .bin index file.
- ||					 
- ||
- ||  Inherits From:  None.
- ||
- ||     Interfaces:  None.
- ||
- |+-----------------------------------------------------------------------
- ||
- ||      Constants:  No constants(all Max length Strings are treated as variables
- ||                  and determined individually by method.)
- ||
- |+-----------------------------------------------------------------------
- ||
- ||   Constructors:  The constructor for this method initializes all variables to
- ||                  the suggested values from the spec. The constructor can only be
- ||                  Initialized with a valid EID(only 0-9 with no additional chars).
- ||                  All values are initialized to default values
- ||
- ||  Class Methods:  public int getRecCount()
- ||                  public ArrayList<Entry> getList()
- ||                  public void setRecCount()
- ||                  public void getRecCount()
- ||                  
- ||
- ++-----------------------------------------------------------------------*/
-
-public class EntryBlock {
-	
-	//These are used to avoid hard coded values in my project. These represent
-	//The byte sizes of various parts of the lhl.idx file.
-	private static int BUCKETSIZE = 20;
-	private static int ENTRYSIZE = 8;
-	private static int BLOCKSIZE = (BUCKETSIZE * ENTRYSIZE); 
-	
-
-	ArrayList<Entry> currentBlock = null;
-	private Entry current;
-	private int recordCount;
-	
-	public EntryBlock(RandomAccessFile stream) {
-		currentBlock = new ArrayList<Entry>();
-		recordCount = 0;
-		current = new Entry(0,0);
-	}
-	
-	
-	//Setters and Getters for the class.
-	public int getRecCount() {
-		return this.recordCount;
-	}
-	
-	public ArrayList<Entry> getList(){
-		return currentBlock;
-	}
-	
-	public void setRecCount(int count) {
-		this.recordCount = count;
-	}
-	
-	
-	  /*---------------------------------------------------------------------
-    |  Method readBlock (stream, position)
-    |
-    |  Purpose:  This method will read an entire EntryBlock from the RAF to the
-    |            system memory as an EntryBlock Object. The method will read through 164
-    |            bytes representing the 41 ints that comprise a EntryBlock.
-    |
-    |  Pre-condition:  Stream must be on initial byte 0 for first write and
-    |                  must write a consistent length for each Object entry.
-    |
-    |  Post-condition: The stream has been read 164 bytes further/deeper.
-    |
-    |  Parameters:
-    |      stream- The indicated file stream, in this case containing the lhl.idx RAF
-    |      position - this indicated the current "index" of the file stream.
-    |
-    |  Returns: an EntryBlock object populated with values from the associated position.
-    *-------------------------------------------------------------------*/
-	public EntryBlock readBlock(RandomAccessFile stream, int position) {
-		int currentCount = 0;
-		currentBlock =  new ArrayList<Entry>();
-		
-		try {
-			int seekVal = (position *160) + (160 + ((position)*4));
-			stream.seek(seekVal);
-			currentCount = stream.readInt();
-			stream.seek((position*160) + (position*4));
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.out.println("Had an issue trying to seek. Perhaps you went too far into the file.\n");
-		}
-		this.recordCount = 0;
-		for(int i  = 0; i < currentCount; i ++) {
-			current = new Entry(0, 0);
-			current.readFromIDX(stream);
-			currentBlock.add(current);
-			this.recordCount++;
-		}
-		
-		return this;
-	}
-	
-	  /*---------------------------------------------------------------------
-    |  Method writeBlock (stream, position)
-    |
-    |  Purpose:  This method is used to write the entire EntryBlock object into
-    |            a .bin file on disk. The structure of the EntryBlock exists s.t.
-    |            164 byte chunks will be written, and then a final int is written
-    |            to indicate the size of the current block.
-    |
-    |  Pre-condition:  The position of the stream is adjusted on entry to the method and
-    |                  does not impact functionality.
-    |
-    |  Post-condition: The file is created in the current directory after the
-    |                  last record is written. The final line of the file
-    |                  contains the max field length for the 3 String fields.
-    |                  The file has the same content as the csvContent list.
-    |  
-    |           Note:  Adapted from Dr. McCann's code.    
-    |
-    |  Parameters:
-    |      stream- The indicated file stream, in this case containing the lhl.idx RAF
-    |      position - this indicated the current "index" of the file stream.
-    |
-    |  Returns: an EntryBlock object populated with values from the associated position.
-    *-------------------------------------------------------------------*/
-	public void writeBlock(RandomAccessFile stream, int position) {
-		//There exists a EntryBlock every 164 bytes.
-		int seekVal = (position *164);
-		try {
-			stream.seek(seekVal);
-			int count = this.getRecCount();
-			int blanks = 20 - count;
-			//Write all actual entries that exist in the Block.
-			for(int i = 0; i < count; i++) {
-				this.getList().get(i).writeToIDX(stream);
-			}
-			//Write all additional spaces with 0's
-			for(int i = 0; i < blanks; i++) {
-				Entry adder = new Entry(0,0);
-				adder.writeToIDX(stream);
-			}
-			//The stream should be on byte position*160 meaning we are at the correct location to write
-			//The count.
-			stream.writeInt(count);
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.out.println("Had an issue trying to seek. Perhaps you went too far into the file.\n");
-		}
-	}
-
-	
-	
-	/*---------------------------------------------------------------------
-	|  Method writeEntry (stream, maxName, maxState, maxCOD)
-	|
-	|  Purpose:  This method is used to write a single entry to the .bin file. This method helps
-	|            to minimize I/O by only reading the associated capacity int from the EntryBlock.
-	|            This value is used to determine the next usable space inside a block inside the
-	|            .idx file. 
-	|
-	|  Pre-condition:  The stream will be in its initial write of the values. 
-	|
-	|  Post-condition: The file is created in the current directory after the
-	|                  last record is written. The final line of the file
-	|                  contains the max field length for the 3 String fields.
-	|                  The file has the same content as the csvContent list.
-	|  
-	|           Note:  Adapted from Dr. McCann's code.    
-	|
-	|  Parameters:
-	|      stream- The indicated file stream, in this case containing the lhl.idx RAF
-	|      position - this indicated the current "index" of the filestream
-	|
-	|  Returns: an EntryBlock object populated with values from the associated position.
-	*-------------------------------------------------------------------*/
-	public void writeEntry(RandomAccessFile stream, int position, int EID, int key) {
-		int currentCount = 0;
-		current.setEID(EID);
-		current.setKey(key);
-		try {
-			//Determine the current position of the size indicator for the current bucket.
-			int seekVal = position*BLOCKSIZE + (BLOCKSIZE+(position*4));
-			stream.seek(seekVal);
-			currentCount = stream.readInt();
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.out.println("Had an issue trying to seek. Perhaps you went too far into the file.\n");
-		}
-		
-		try {
-			//Go to the current free record position. (ENTRYSIZE*currentCount) gives us the specific 
-			//location to write the entry.
-			int seekVal = (position*BLOCKSIZE + ((position*4)) + (ENTRYSIZE*currentCount));
-			stream.seek(seekVal);
-		} catch (IOException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-			System.out.println("Had an issue trying to seek. Perhaps you went too far into the file.\n");
-		}
-		
-		try {
-			//Write the actual object to .idx file.
-			stream.writeInt(current.getKey());
-			stream.writeInt(current.getEID());
-			currentCount++;
-			//Write the new current count to the correct position for this bucket.
-			int seekVal = position*BLOCKSIZE + (BLOCKSIZE+(position*4));
-			stream.seek(seekVal);
-			stream.writeInt(currentCount);
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			System.out.println("Had an issue trying to seek. Perhaps you went too far into the file.\n");
-		}
-	}
-
-
-}
+import java.nio.ByteBuffer;
+
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class EntryBlock
+ ||
+ ||         Author:  Todd Noecker 
+ ||
+ ||        Purpose:  An object of this class will hold the record entries of one block(20 by
+ ||                  default, see BlockLayout) and two additional ints for its current capacity
+ ||                  and the page of the next overflow block chained off it(0 when there is
+ ||                  none). The default Entryblock has a size of 168 bytes. To minimize
+ ||                  I/O the Class features methods to read and write entire chunks(buckets) in the
+ ||                  .bin index file. The entries are kept in two parallel int arrays(record
+ ||                  numbers and EIDs) and the block is read and written through one reused
+ ||                  buffer, so no object is created per entry.
+ ||					 
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  No constants(all Max length Strings are treated as variables
+ ||                  and determined individually by method.)
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  The constructor for this method initializes all variables to
+ ||                  the suggested values from the spec. The constructor can only be
+ ||                  Initialized with a valid EID(only 0-9 with no additional chars).
+ ||                  All values are initialized to default values
+ ||
+ ||  Class Methods:  public int getRecCount()
+ ||                  public void setRecCount()
+ ||                  public int getKey()
+ ||                  public int getEID()
+ ||                  public void add()
+ ||                  public void insert()
+ ||                  public int getNext()
+ ||                  public void setNext()
+ ||                  public int readNext()
+ ||                  public void writeNext()
+ ||                  
+ ||
+ ++-----------------------------------------------------------------------*/
+
+public class EntryBlock {
+	
+	//The byte size of one entry of the lhl.idx file. The sizes of the blocks come from the layout.
+	private static int ENTRYSIZE = 8;
+	
+
+	private BlockLayout layout; //Where the blocks of the index file are and how large they are.
+	private int[] keys; //The record number of each entry, the first recordCount are used.
+	private int[] eids; //The EID of each entry, parallel to keys.
+	private ByteBuffer bytes; //The block as stored in lhl.idx, reused by every read and write.
+	private Entry current;
+	private int recordCount;
+	private int next; //The page of the next overflow block in this bucket's chain, 0 for none.
+	
+	public EntryBlock(BlockLayout layout) {
+		this.layout = layout;
+		keys = new int[layout.getBucketSize()];
+		eids = new int[layout.getBucketSize()];
+		bytes = ByteBuffer.allocate(layout.getBlockSize());
+		recordCount = 0;
+		next = 0;
+		current = new Entry(0,0);
+	}
+	
+	
+	//Setters and Getters for the class.
+	public int getRecCount() {
+		return this.recordCount;
+	}
+	
+	public void setRecCount(int count) {
+		this.recordCount = count;
+	}
+	
+	//The record number and EID of entry i, for i below getRecCount().
+	public int getKey(int i) {
+		return keys[i];
+	}
+	
+	public int getEID(int i) {
+		return eids[i];
+	}
+	
+	//Adds an entry after the last one. The block must not be full.
+	public void add(int EID, int key) {
+		keys[recordCount] = key;
+		eids[recordCount] = EID;
+		recordCount++;
+	}
+	
+	//Adds an entry keeping the block sorted by EID, equal EIDs by record number. The block must not be full.
+	public void insert(int EID, int key) {
+		int at = recordCount;
+		while (at > 0 && (eids[at - 1] > EID || (eids[at - 1] == EID && keys[at - 1] > key))) {
+			keys[at] = keys[at - 1];
+			eids[at] = eids[at - 1];
+			at--;
+		}
+		keys[at] = key;
+		eids[at] = EID;
+		recordCount++;
+	}
+	
+	public int getNext() {
+		return this.next;
+	}
+	
+	public void setNext(int next) {
+		this.next = next;
+	}
+	
+	//Reads only the overflow link of the block at the passed position.
+	public int readNext(IndexFile stream, int position) {
+		return stream.readInt(layout.nextStart(position));
+	}
+	
+	//Rewrites only the overflow link of the block at the passed position.
+	public void writeNext(IndexFile stream, int position, int link) {
+		stream.writeInt(layout.nextStart(position), link);
+	}
+	
+	  /*---------------------------------------------------------------------
+    |  Method readBlock (stream, position)
+    |
+    |  Purpose:  This method will read an entire EntryBlock from the RAF to the
+    |            system memory as an EntryBlock Object. The method will read through 168
+    |            bytes(by default) representing the 42 ints that comprise a EntryBlock. The overflow link
+    |            is kept in next so callers can follow the chain.
+    |
+    |  Pre-condition:  Stream must be on initial byte 0 for first write and
+    |                  must write a consistent length for each Object entry.
+    |
+    |  Post-condition: The stream has been positioned on the entries of the block.
+    |
+    |  Parameters:
+    |      stream- The indicated file, in this case containing the lhl.idx RAF or mapping
+    |      position - this indicated the current "index" of the file stream.
+    |
+    |  Returns: an EntryBlock object populated with values from the associated position.
+    *-------------------------------------------------------------------*/
+	public EntryBlock readBlock(IndexFile stream, int position) {
+		//The whole block is read at once and decoded from memory.
+		bytes.clear();
+		stream.read(layout.blockStart(position), bytes);
+		this.recordCount = bytes.getInt(layout.getBucketSize() * ENTRYSIZE);
+		this.next = bytes.getInt(layout.getBucketSize() * ENTRYSIZE + 4);
+		for(int i  = 0; i < recordCount; i ++) {
+			keys[i] = bytes.getInt(i * ENTRYSIZE);
+			eids[i] = bytes.getInt(i * ENTRYSIZE + 4);
+		}
+		
+		return this;
+	}
+	
+	  /*---------------------------------------------------------------------
+    |  Method writeBlock (stream, position)
+    |
+    |  Purpose:  This method is used to write the entire EntryBlock object into
+    |            a .bin file on disk. The structure of the EntryBlock exists s.t.
+    |            160 bytes of entries will be written, then an int to indicate
+    |            the size of the current block and a final int holding the overflow link.
+    |
+    |  Pre-condition:  The position of the stream is adjusted on entry to the method and
+    |                  does not impact functionality.
+    |
+    |  Post-condition: The file is created in the current directory after the
+    |                  last record is written. The final line of the file
+    |                  contains the max field length for the 3 String fields.
+    |                  The file has the same content as the csvContent list.
+    |  
+    |           Note:  Adapted from Dr. McCann's code.    
+    |
+    |  Parameters:
+    |      stream- The indicated file, in this case containing the lhl.idx RAF or mapping
+    |      position - this indicated the current "index" of the file stream.
+    |
+    |  Returns: an EntryBlock object populated with values from the associated position.
+    *-------------------------------------------------------------------*/
+	public void writeBlock(IndexFile stream, int position) {
+		//There exists a EntryBlock every block size bytes after the header. The whole block is
+		//assembled in memory(entries, 0's for the empty slots, the count and the link)
+		//and written with a single write.
+		bytes.clear();
+		layout.encode(bytes, keys, eids, 0, recordCount, next);
+		stream.write(layout.blockStart(position), bytes.array());
+	}
+
+	
+	
+	/*---------------------------------------------------------------------
+	|  Method writeEntry (stream, maxName, maxState, maxCOD)
+	|
+	|  Purpose:  This method is used to write a single entry to the .bin file. This method helps
+	|            to minimize I/O by only reading the associated capacity int from the EntryBlock.
+	|            This value is used to determine the next usable space inside a block inside the
+	|            .idx file. 
+	|
+	|  Pre-condition:  The stream will be in its initial write of the values. 
+	|
+	|  Post-condition: The file is created in the current directory after the
+	|                  last record is written. The final line of the file
+	|                  contains the max field length for the 3 String fields.
+	|                  The file has the same content as the csvContent list.
+	|  
+	|           Note:  Adapted from Dr. McCann's code.    
+	|
+	|  Parameters:
+	|      stream- The indicated file, in this case containing the lhl.idx RAF or mapping
+	|      position - this indicated the current "index" of the filestream
+	|
+	|  Returns: an EntryBlock object populated with values from the associated position.
+	*-------------------------------------------------------------------*/
+	public void writeEntry(IndexFile stream, int position, int EID, int key) {
+		int currentCount = 0;
+		current.setEID(EID);
+		current.setKey(key);
+		//Determine the current position of the size indicator for the current bucket.
+		currentCount = stream.readInt(layout.countStart(position));
+		
+		//Go to the current free record position. (ENTRYSIZE*currentCount) gives us the specific 
+		//location to write the entry.
+		current.writeToIDX(stream, layout.blockStart(position) + (ENTRYSIZE*currentCount));
+		currentCount++;
+		//Write the new current count to the correct position for this bucket.
+		stream.writeInt(layout.countStart(position), currentCount);
+	}
+
+
+}
@@ -0,0 +1,409 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class IndexLog
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is the write-ahead log of lhl.idx(lhl.idx.wal). While
+ ||                  it is attached, the IndexFile only stages its writes, and the writes IndexBin
+ ||                  makes to the .bin are handed to the log as well. Every write becomes a redo
+ ||                  record(the bytes and where they go) in the open group. IndexBin ends the group
+ ||                  only between changes(an insert with the split or doubling it caused, a delete,
+ ||                  a compaction step), so a group always takes both files from one consistent
+ ||                  state to the next. A commit writes the group as one frame, forces the log to
+ ||                  disk once for all the changes in it(group commit) and only then applies the
+ ||                  records to the files. When the program dies, recover() redoes every whole frame
+ ||                  on the next open. Redoing a frame that was already applied writes the same
+ ||                  bytes again, so it does no harm. A frame cut short or failing its CRC32 ends
+ ||                  the log. Once the log grows past CHECKPOINT, both files are forced to disk and
+ ||                  the log starts over. Frames are numbered in sequence, so the stale frames
+ ||                  behind a restarted log are never redone.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  INDEX, BIN - the file a record is for.
+ ||                  MAGIC - the first int of a log, followed by the name of the .bin.
+ ||                  FRAME - the first int of every frame, followed by its sequence number, the
+ ||                          length of its records and their CRC32.
+ ||                  WRITE, LENGTH - the kinds of record: bytes written at a position, or a new
+ ||                                  file length(kept in the position).
+ ||                  GROUPBYTES - the record bytes that end a group early.
+ ||                  CHECKPOINT - the log length that makes it start over.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the path of the log, the name of the .bin, the lhl.idx file to attach
+ ||                  to, the opened .bin and the number of changes committed together.
+ ||
+ ||  Class Methods:  public void write()
+ ||                  public void setLength()
+ ||                  public boolean endChange()
+ ||                  public void commit()
+ ||                  public void overlay()
+ ||                  public void close()
+ ||                  public static int recover()
+ ||                  private static int replay()
+ ||                  private void checkpoint()
+ ||                  private void reserve()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class IndexLog {
+
+	public static int INDEX = 0; //Records for lhl.idx.
+	public static int BIN = 1; //Records for the .bin.
+	private static int MAGIC = 0x4C484C57; //"LHLW", marks a log.
+	private static int FRAME = 0x47525550; //"GRUP", starts every frame.
+	private static int FRAMEHEAD = 24; //The bytes before the records of a frame: FRAME, sequence, length and CRC32.
+	private static int RECORDHEAD = 13; //The bytes before the data of a record: kind, position and count.
+	private static byte WRITE = 0; //Added to the file(INDEX or BIN) for the kind of a write record.
+	private static byte LENGTH = 2; //Added to the file for the kind of a length record.
+	private static int GROUPBYTES = 4 << 20; //A group holding this many record bytes is committed at the end of its change.
+	private static long CHECKPOINT = 64L << 20; //A log this long is emptied once both files are on disk.
+
+	private String path; //The log file.
+	private RandomAccessFile stream; //The log, only ever appended to between checkpoints.
+	private FileChannel channel; //The channel of the log, forced once per group.
+	private long start; //The length of the log header, where the first frame goes.
+	private long end; //Where the next frame goes.
+	private IndexFile index; //lhl.idx, staging its writes in this log.
+	private RandomAccessFile bin; //The .bin, written by the BIN records.
+	private int groupSize; //The changes committed together.
+	private ByteBuffer group; //The frame being filled: room for its head, then its records.
+	private int changes; //The changes in the open group.
+	private long sequence; //The sequence number of the open group.
+	private long groups; //Groups committed.
+	private long committed; //Changes committed.
+	private long logged; //Bytes written to the log.
+	private long forceTime; //Nanoseconds spent forcing the log to disk.
+
+	public IndexLog(String path, String binName, IndexFile index, RandomAccessFile bin, int groupSize) {
+		this.path = path;
+		this.index = index;
+		this.bin = bin;
+		this.groupSize = Math.max(1, groupSize);
+		this.group = ByteBuffer.allocate(1 << 16);
+		this.group.position(FRAMEHEAD);
+		//A new log must not continue the numbers of a deleted one whose frames are still on the disk.
+		this.sequence = new Random().nextLong() >>> 1;
+		try {
+			stream = new RandomAccessFile(path, "rw");
+			channel = stream.getChannel();
+			stream.setLength(0);
+			stream.writeInt(MAGIC);
+			stream.writeUTF(binName);
+			start = stream.getFilePointer();
+			end = start;
+			channel.force(true);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't create the write-ahead log " + path + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		index.setLog(this);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method write(file, position, bytes, offset, count)
+	|
+	|  Purpose:  Adds a write of count bytes of the array to the open group. The file is not
+	|            touched until the group is committed.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: The record is the last of the open group.
+	|
+	|  Parameters: file - INDEX or BIN.
+	|              position - the byte position in the file.
+	|              bytes, offset, count - the bytes to write.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void write(int file, long position, byte[] bytes, int offset, int count) {
+		reserve(RECORDHEAD + count);
+		group.put((byte) (WRITE + file));
+		group.putLong(position);
+		group.putInt(count);
+		group.put(bytes, offset, count);
+	}
+
+	//Adds a change of the file's length to the open group.
+	public void setLength(int file, long length) {
+		reserve(RECORDHEAD);
+		group.put((byte) (LENGTH + file));
+		group.putLong(length);
+		group.putInt(0);
+	}
+
+	//Counts the end of one change. Returns true when the group is full and should be committed.
+	public boolean endChange() {
+		changes++;
+		return changes >= groupSize || group.position() >= GROUPBYTES;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method commit()
+	|
+	|  Purpose:  Commits the open group: its frame is appended to the log and forced to disk,
+	|            then its records are applied to lhl.idx(with staging turned off for the
+	|            writes) and the .bin. The log is emptied when it has reached CHECKPOINT.
+	|
+	|  Pre-condition:  The group ends with a whole change.
+	|
+	|  Post-condition: Both files hold every committed change and a new group is open.
+	|
+	|  Parameters: None.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void commit() {
+		int length = group.position() - FRAMEHEAD;
+		if (length == 0) {
+			changes = 0;
+			return;
+		}
+		CRC32 crc = new CRC32();
+		group.putLong(4, sequence);
+		crc.update(group.array(), 4, 8);
+		crc.update(group.array(), FRAMEHEAD, length);
+		group.putInt(0, FRAME);
+		group.putInt(12, length);
+		group.putLong(16, crc.getValue());
+		group.flip();
+		try {
+			long at = end;
+			while (group.hasRemaining()) {
+				at = at + channel.write(group, at);
+			}
+			long began = System.nanoTime();
+			channel.force(false);
+			forceTime = forceTime + (System.nanoTime() - began);
+			logged = logged + (at - end);
+			end = at;
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the write-ahead log " + path + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		group.position(FRAMEHEAD);
+		index.setLog(null);
+		replay(group, index, bin);
+		index.setLog(this);
+
+		group.clear();
+		group.position(FRAMEHEAD);
+		sequence++;
+		groups++;
+		committed = committed + changes;
+		changes = 0;
+		if (end >= CHECKPOINT) {
+			checkpoint();
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method overlay(position, window)
+	|
+	|  Purpose:  Lays the .bin writes of the open group over a window of the .bin that was just
+	|            read from it, so the window shows the bytes as they will be once committed.
+	|
+	|  Pre-condition:  The window holds the bytes from position on, from 0 to its limit.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: position - where the window starts in the .bin.
+	|              window - the bytes read.
+	|
+	|  Returns: None.
+	*-------------------------------------------------------------------*/
+	public void overlay(long position, ByteBuffer window) {
+		ByteBuffer records = group.duplicate();
+		records.flip();
+		records.position(FRAMEHEAD);
+		while (records.hasRemaining()) {
+			int kind = records.get();
+			long at = records.getLong();
+			int count = records.getInt();
+			long from = Math.max(at, position);
+			long to = Math.min(at + count, position + window.limit());
+			if (kind == WRITE + BIN && from < to) {
+				System.arraycopy(group.array(), records.position() + (int) (from - at), window.array(),
+						(int) (from - position), (int) (to - from));
+			}
+			records.position(records.position() + count);
+		}
+	}
+
+	//Commits what is left, forces both files to disk and deletes the log, which is then no longer needed.
+	public void close() {
+		commit();
+		index.setLog(null);
+		index.sync();
+		try {
+			bin.getChannel().force(true);
+			stream.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't close the write-ahead log " + path + ".");
+			System.exit(-1);
+		}
+		new File(path).delete();
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method recover(path, indexPath)
+	|
+	|  Purpose:  Called before an index is opened or built. When a log was left behind by a
+	|            program that did not close it, every whole frame in it is redone, in order, on
+	|            lhl.idx and the .bin named in the log. Redoing stops at the first frame that is
+	|            cut short, fails its CRC32 or is out of sequence; that group was never applied.
+	|            The files are then forced to disk and the log is deleted.
+	|
+	|  Pre-condition:  Neither file is open.
+	|
+	|  Post-condition: There is no log, and both files hold every committed change.
+	|
+	|  Parameters: path - the log.
+	|              indexPath - the lhl.idx file it belongs to.
+	|
+	|  Returns: the number of groups redone.
+	*-------------------------------------------------------------------*/
+	public static int recover(String path, String indexPath) {
+		if (!new File(path).isFile()) {
+			return 0;
+		}
+		int redone = 0;
+		try {
+			RandomAccessFile log = new RandomAccessFile(path, "r");
+			FileChannel channel = log.getChannel();
+			if (log.length() >= 6 && log.readInt() == MAGIC) {
+				String binName = log.readUTF();
+				IndexFile index = new IndexFile(indexPath, "rw", false);
+				RandomAccessFile bin = null;
+				long at = log.getFilePointer();
+				long expected = -1;
+				ByteBuffer head = ByteBuffer.allocate(FRAMEHEAD);
+				while (at + FRAMEHEAD <= log.length()) {
+					head.clear();
+					IndexFile.readAt(channel, at, head);
+					long sequence = head.getLong(4);
+					int length = head.getInt(12);
+					if (head.getInt(0) != FRAME || (expected >= 0 && sequence != expected) || length < 0
+							|| at + FRAMEHEAD + length > log.length()) {
+						break;
+					}
+					ByteBuffer frame = ByteBuffer.allocate(FRAMEHEAD + length);
+					frame.position(FRAMEHEAD);
+					IndexFile.readAt(channel, at + FRAMEHEAD, frame);
+					CRC32 crc = new CRC32();
+					crc.update(head.array(), 4, 8);
+					crc.update(frame.array(), FRAMEHEAD, length);
+					if (crc.getValue() != head.getLong(16)) {
+						break;
+					}
+					if (bin == null && new File(binName).isFile()) {
+						bin = new RandomAccessFile(binName, "rw");
+					}
+					frame.flip();
+					frame.position(FRAMEHEAD);
+					if (replay(frame, index, bin) > 0 && bin == null) {
+						System.out.println("The write-ahead log " + path + " has changes for " + binName + ", which is missing.");
+						System.exit(-1);
+					}
+					redone++;
+					expected = sequence + 1;
+					at = at + FRAMEHEAD + length;
+				}
+				index.sync();
+				index.close();
+				if (bin != null) {
+					bin.getChannel().force(true);
+					bin.close();
+				}
+			}
+			log.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't redo the write-ahead log " + path + ".");
+			System.exit(-1);
+		}
+		if (redone > 0) {
+			System.out.println("Redid " + redone + " committed groups of changes from " + path + ".");
+		}
+		new File(path).delete();
+		return redone;
+	}
+
+	//Applies the records from the position of the buffer to its limit. Returns the .bin records skipped for want of a .bin.
+	private static int replay(ByteBuffer records, IndexFile index, RandomAccessFile bin) {
+		int skipped = 0;
+		try {
+			while (records.hasRemaining()) {
+				int kind = records.get();
+				long position = records.getLong();
+				int count = records.getInt();
+				if (kind == WRITE + INDEX) {
+					byte[] bytes = new byte[count];
+					records.get(bytes);
+					index.write(position, bytes);
+				} else if (kind == LENGTH + INDEX) {
+					index.setLength(position);
+				} else if (bin == null) {
+					records.position(records.position() + count);
+					skipped++;
+				} else if (kind == WRITE + BIN) {
+					ByteBuffer bytes = records.slice();
+					bytes.limit(count);
+					while (bytes.hasRemaining()) {
+						bin.getChannel().write(bytes, position + bytes.position());
+					}
+					records.position(records.position() + count);
+				} else {
+					bin.setLength(position);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the .bin file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		return skipped;
+	}
+
+	//Forces both files to disk so no frame is needed any more, and empties the log.
+	private void checkpoint() {
+		index.sync();
+		try {
+			bin.getChannel().force(true);
+			channel.truncate(start);
+			channel.force(true);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't empty the write-ahead log " + path + ".");
+			System.exit(-1);
+		}
+		end = start;
+	}
+
+	//Makes room for bytes more in the open group.
+	private void reserve(int bytes) {
+		if (group.remaining() < bytes) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(group.capacity() * 2, group.position() + bytes));
+			group.flip();
+			grown.put(group);
+			group = grown;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Write-ahead log: " + committed + " changes in " + groups + " groups, " + (logged / 1024) + " KiB logged, "
+				+ String.format("%.1f", forceTime / 1e6) + " ms forcing it to disk.";
+	}
+}
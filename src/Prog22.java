@@ -1,103 +1,198 @@
-import java.util.Scanner;
-
-/*+----------------------------------------------------------------------
-||
-||  Class CSC460MAINPA22
-||
-||            Author: Todd Noecker
-||
-||        Assignment: PA2 Part B
-||
-||            Course: CSC460 Database Design
-||
-||        Instructor: Dr. Lester McCann
-||
-||               TAs: Priya, Aayush
-||
-||  Language and IDE: Java v16.0 written in Eclipse v2021		
-||
-||          Due Date: 9/21/22
-||
-||        Objectives:  This program is designed to open a .idx file created in Program 2A and an associated .bin file 
-||                     created in Program 1. It will use the .idx file as an index on the .bin file to allow for fast
-||                     Linear Hash Searches. These files are not modified and only accessed from this program, The program will
-||                     allow users to enter EID values which are then searched for in .idx file and if found the values are accessed then
-||                     printed from the .bin file.
-||                     
-||
-||      Requirements:  This program will implement Dr.McCann's Linear Hashing Lite Algorithm, and carry out searches on the EID passed during the
-||                     input loop to determine if the value exists within the DB record. 
-||
-||           Issues:  No remaining issues.
-||
-++-----------------------------------------------------------------------*/
-public class Prog22 {
-
-	public static void main(String[] args) {
-
-			if(args.length < 2 || args.length > 3) {
-				System.out.println("Error the program needs exactly two arguements. These should be lhl.idx and 2021-utility-scale-solar-plants");
-				System.exit(-1);
-			}
-			String arg1 = args[0];
-			String arg2 = args[1];
-			
-			System.out.println("Reading from " + arg2 + " and " + arg1 + "\n");
-
-			IndexBin inBin = new IndexBin(arg2, arg1);
-			checkEIDs(inBin);
-
-	}
-	
-	/*---------------------------------------------------------------------
-	|  Method checkEIDs(binRead)
-	|
-	|  Purpose:  This method will take the passed EID value and initiate a binary search on the
-	|            selected int value. If the record is found it is returned to be printed, if
-	|            the record is not found, a default "Record Not Found" message is printed.
-	|           
-	|
-	|  Pre-condition: An opened ParseBin Object containing the .bin RAF. 
-	|
-	|  Post-condition: Bin file access is left open. Search has or has returned a string
-	|                  with either a missing record message or the record data.
-	|  
-	|
-	|  Parameters: IndexBin binRead- the associated bin to be used to access the files within.
-	|
-	|  Returns: None
-	*-------------------------------------------------------------------*/
-	private static void checkEIDs(IndexBin binRead) {
-
-		Scanner input = new Scanner(System.in);
-		int EIDsearched = 0;
-		System.out.print("\n\nSearching the generated .idx Index file...\n");
-		// Outer read loop for EIDs
-		while (EIDsearched != -1) {
-			// Inner loop to handle bad inputs
-			do {
-				System.out.print("\nPlease enter an EID value between 1-99999\n");
-				while (!input.hasNextInt()) {
-					String wrong = input.next();
-					System.out.println(wrong + " is not a valid EID.\n");
-				}
-				EIDsearched = input.nextInt();
-			} while (EIDsearched < -1);
-
-			// The search has been ended.
-			if (EIDsearched == -1) {
-				System.out.println("Have a great day.\nThanks for grading!\n");
-				System.exit(0);
-			}
-			if (EIDsearched >= 1 && EIDsearched <= 99999) {
-				//This is essentially the exact same loop from project 1 but now,
-				//the checkEID method will call a linear hashing function to find
-				//The associated EID.
-				binRead.checkEID(EIDsearched);
-			} else {
-				System.out.println("Searched int is " + EIDsearched + " is not in a valid range 1-99999.\n");
-			}
-
-		}
-	}
-}
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/*+----------------------------------------------------------------------
+||
+||  Class CSC460MAINPA22
+||
+||            Author: Todd Noecker
+||
+||        Assignment: PA2 Part B
+||
+||            Course: CSC460 Database Design
+||
+||        Instructor: Dr. Lester McCann
+||
+||               TAs: Priya, Aayush
+||
+||  Language and IDE: Java v16.0 written in Eclipse v2021		
+||
+||          Due Date: 9/21/22
+||
+||        Objectives:  This program is designed to open a .idx file created in Program 2A and an associated .bin file 
+||                     created in Program 1. It will use the .idx file as an index on the .bin file to allow for fast
+||                     Linear Hash Searches. These files are not modified and only accessed from this program, The program will
+||                     allow users to enter EID values which are then searched for in .idx file and if found the values are accessed then
+||                     printed from the .bin file.
+||                     
+||
+||      Requirements:  This program will implement Dr.McCann's Linear Hashing Lite Algorithm, and carry out searches on the EID passed during the
+||                     input loop to determine if the value exists within the DB record. 
+||
+||           Issues:  No remaining issues.
+||
+++-----------------------------------------------------------------------*/
+public class Prog22 {
+
+	public static void main(String[] args) {
+
+			if(args.length < 2) {
+				System.out.println("Error the program needs exactly two arguements. These should be lhl.idx and 2021-utility-scale-solar-plants");
+				System.exit(-1);
+			}
+			String arg1 = args[0];
+			String arg2 = args[1];
+			
+			System.out.println("Reading from " + arg2 + " and " + arg1 + "\n");
+
+			//Optional arguements after the two files, "mapped" reads lhl.idx through a memory mapping and
+			//"bloom=0.01" checks an EID filter before reading lhl.idx and "recordcache=512" keeps recent Records.
+			//"state" opens lhl.idx.states so a state code can be entered instead of an EID, "tree"
+			//opens lhl.idx.tree so a range of EIDs like 60000-61000 can, and "grid" opens lhl.idx.grid
+			//so a place can: 35.2,-118.1,5 for the 5 closest plants, 35.2,-118.1,50km for the plants
+			//within 50 km and 34,-119,36,-117 for the plants in the box between two corners.
+			IndexBin inBin = new IndexBin(arg2, arg1, IndexSettings.fromArgs(args, 2));
+			checkEIDs(inBin);
+
+	}
+	
+	/*---------------------------------------------------------------------
+	|  Method checkEIDs(binRead)
+	|
+	|  Purpose:  This method will take the passed EID value and initiate a binary search on the
+	|            selected int value. If the record is found it is returned to be printed, if
+	|            the record is not found, a default "Record Not Found" message is printed.
+	|           
+	|
+	|  Pre-condition: An opened ParseBin Object containing the .bin RAF. 
+	|
+	|  Post-condition: Bin file access is left open. Search has or has returned a string
+	|                  with either a missing record message or the record data.
+	|  
+	|
+	|  Parameters: IndexBin binRead- the associated bin to be used to access the files within.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void checkEIDs(IndexBin binRead) {
+
+		Scanner input = new Scanner(System.in);
+		int EIDsearched = 0;
+		System.out.print("\n\nSearching the generated .idx Index file...\n");
+		// Outer read loop for EIDs
+		while (EIDsearched != -1) {
+			// Inner loop to handle bad inputs
+			do {
+				ArrayList<String> others = new ArrayList<String>();
+				if (binRead.getTree() != null) {
+					others.add("a range of EIDs like 60000-61000");
+				}
+				if (binRead.getStateIndex() != null) {
+					others.add("a state code");
+				}
+				if (binRead.getGrid() != null) {
+					others.add("a place like 35.2,-118.1,5");
+				}
+				String prompt = "\nPlease enter an EID value between 1-99999";
+				if (others.size() > 1) {
+					prompt = prompt + ", " + String.join(", ", others.subList(0, others.size() - 1));
+				}
+				if (others.size() > 0) {
+					prompt = prompt + " or " + others.get(others.size() - 1);
+				}
+				System.out.print(prompt + "\n");
+				while (!input.hasNextInt()) {
+					String wrong = input.next();
+					//With the tree two EIDs joined by a dash are a range, with the grid numbers joined by
+					//commas are a place, with the state index a word is a state code. Every record of the
+					//range, place or state is printed.
+					if (binRead.getTree() != null && wrong.matches("\\d{1,9}-\\d{1,9}")) {
+						String[] ends = wrong.split("-");
+						binRead.checkRange(Integer.parseInt(ends[0]), Integer.parseInt(ends[1]));
+					} else if (binRead.getGrid() != null && wrong.contains(",")) {
+						checkPlace(binRead, wrong);
+					} else if (binRead.getStateIndex() != null) {
+						binRead.checkState(wrong.toUpperCase());
+					} else {
+						System.out.println(wrong + " is not a valid EID.\n");
+					}
+				}
+				EIDsearched = input.nextInt();
+			} while (EIDsearched < -1);
+
+			// The search has been ended.
+			if (EIDsearched == -1) {
+				//With "bloom=" the filter reports how many index probes it saved.
+				if (binRead.getFilter() != null) {
+					System.out.println(binRead.getFilter().toString());
+				}
+				//With "recordcache=" the cache reports its hit rate.
+				if (binRead.getRecordCache() != null) {
+					System.out.println(binRead.getRecordCache().toString());
+				}
+				//With "state" the state index reports the postings it read.
+				if (binRead.getStateIndex() != null) {
+					System.out.println(binRead.getStateIndex().toString());
+				}
+				//With "tree" the tree reports the nodes its range scans read.
+				if (binRead.getTree() != null) {
+					System.out.println(binRead.getTree().toString());
+				}
+				//With "grid" the grid reports the entries its queries tested.
+				if (binRead.getGrid() != null) {
+					System.out.println(binRead.getGrid().toString());
+				}
+				System.out.println("Have a great day.\nThanks for grading!\n");
+				System.exit(0);
+			}
+			if (EIDsearched >= 1 && EIDsearched <= 99999) {
+				//This is essentially the exact same loop from project 1 but now,
+				//the checkEID method will call a linear hashing function to find
+				//The associated EID.
+				binRead.checkEID(EIDsearched);
+			} else {
+				System.out.println("Searched int is " + EIDsearched + " is not in a valid range 1-99999.\n");
+			}
+
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method checkPlace(binRead, place)
+	|
+	|  Purpose:  Searches the spatial grid for the place entered and prints every record
+	|            found. Three numbers are a point and either how many of its closest plants
+	|            are wanted(35.2,-118.1,5) or a distance in km(35.2,-118.1,50km), four numbers
+	|            are two corners of a box(34,-119,36,-117).
+	|
+	|  Pre-condition: The index was opened with "grid".
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: IndexBin binRead- the associated bin to be used to access the files within.
+	|              String place- the place as it was entered.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void checkPlace(IndexBin binRead, String place) {
+		String[] parts = place.split(",");
+		try {
+			if (parts.length == 4) {
+				double lat1 = Double.parseDouble(parts[0]);
+				double lon1 = Double.parseDouble(parts[1]);
+				double lat2 = Double.parseDouble(parts[2]);
+				double lon2 = Double.parseDouble(parts[3]);
+				binRead.checkBox(Math.min(lat1, lat2), Math.min(lon1, lon2), Math.max(lat1, lat2), Math.max(lon1, lon2));
+			} else if (parts.length == 3 && parts[2].toLowerCase().endsWith("km")) {
+				binRead.checkWithin(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+						Double.parseDouble(parts[2].substring(0, parts[2].length() - 2)));
+			} else if (parts.length == 3) {
+				binRead.checkNearest(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+			} else {
+				System.out.println(place + " is not a valid place.\n");
+			}
+		} catch (NumberFormatException e) {
+			System.out.println(place + " is not a valid place.\n");
+		}
+	}
+}
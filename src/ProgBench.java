@@ -0,0 +1,1539 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/*+----------------------------------------------------------------------
+||
+||  Class ProgBench
+||
+||            Author: Todd Noecker
+||
+||  Language and IDE: Java v16.0 written in Eclipse v2021
+||
+||        Objectives:  This program times the index built by Prog21 and searched by Prog22 so that
+||                     the storage options in IndexSettings can be compared on the same .bin file.
+||                     Every timing is repeated for a number of rounds and the best round is reported
+||                     so one cold start does not hide the steady state.
+||
+||             Usage:  java ProgBench <benchmark> <bin path without .bin> [rounds]
+||                     java ProgBench suite <bin paths without .bin, comma separated> [seconds]
+||
+||                     storage - builds lhl.idx and looks up every EID of the .bin once with the RAF
+||                               path and once through the memory mapping.
+||                     build   - builds lhl.idx record by record(doubling and linear, with and without
+||                               the block cache) and with the bulk loader.
+||                     batch   - looks up a shuffled batch of EIDs(three quarters hits) with a loop of
+||                               lookup() calls and with one lookupAll() call.
+||                     parallel - bulk loads lhl.idx with 1, 2, 4, 8 and all available threads and
+||                               checks every index is byte for byte the single thread one.
+||                     concurrent - looks up every EID of the .bin from 1, 2, 4, 8 and all available
+||                               threads sharing one opened index, in both storage modes.
+||                     buckets - bulk loads lhl.idx with the default and aligned bucket layouts at
+||                               three fill factors, with scanned and with sorted blocks, and
+||                               compares the file size, block occupancy, the blocks and 4 KiB
+||                               pages read per probe and the lookup time.
+||                     compact - deletes 10%, 30% and 50% of the records of a copy of the .bin,
+||                               updates some of the rest, and times lookups with the
+||                               tombstones, compact() and lookups after it, then the same
+||                               deletes compacted in the background while looking up.
+||                     wal     - builds lhl.idx record by record(doubling and linear) without a
+||                               write-ahead log and with groups of 1, 16, 256 and 4096 changes,
+||                               then kills Prog21 building with the log at random moments,
+||                               redoes the log, finishes the build with "append" and checks it
+||                               against the build that was never interrupted.
+||                     state   - builds lhl.idx with and without the state index, then reads every
+||                               record of the smallest, median and largest state through it and
+||                               by scanning the .bin, in both storage modes, and checks the
+||                               postings still match a scan after deletes, updates that change
+||                               states and compaction, and after reopening the index.
+||                     range   - bulk loads lhl.idx with and without the B+-tree over the EIDs,
+||                               then finds every record of random EID ranges 10 to 100000
+||                               wide through the tree and by probing every EID of the range
+||                               in the hash index, in both storage modes, iterates the whole
+||                               .bin in EID order and checks the tree after deletes and
+||                               compaction, and after reopening the index.
+||                     spatial - bulk loads lhl.idx with and without the spatial grid, then
+||                               finds the records in boxes 0.1, 1 and 5 degrees wide, within
+||                               10, 50 and 200 km and the 1, 10 and 100 closest, around random
+||                               plants, through the grid and by scanning the .bin, in both
+||                               storage modes, and checks the grid still matches a scan after
+||                               deletes, updates that move plants and compaction, and after
+||                               reopening the index.
+||                     columns - bulk loads lhl.idx with and without the column files, then
+||                               totals the AC capacity by state, counts the plants by whole
+||                               GHI and counts those north of 40 degrees over 50 MW AC, from
+||                               the columns and by scanning the .bin, in both storage modes,
+||                               with the bytes each read, and checks the columns still match
+||                               a scan after deletes, updates and compaction, and after
+||                               reopening the index.
+||                     suite   - runs every operation through BenchHarness on each .bin(build,
+||                               checkEID and findOffset hits and misses, readCounts, lookup
+||                               against view, a scan of every record, misses with the
+||                               EID filter, skewed hits with the record cache and
+||                               doubleBuckets at three hVal values) and prints ops/s, latency
+||                               percentiles and the bytes allocated. The last argument is the
+||                               measurement time per row.
+||
+||           Issues:   The builds write lhl.idx in the current directory, exactly like Prog21.
+||
+++-----------------------------------------------------------------------*/
+public class ProgBench {
+
+	private static PrintStream console = System.out; //The real System.out while builds are silenced.
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: java ProgBench <storage|build|batch|parallel|concurrent|suite|buckets|compact|wal|state|range|spatial|columns> <bin path without .bin> [rounds]");
+			System.exit(-1);
+		}
+		int rounds = 5;
+		if (args.length > 2) {
+			rounds = Integer.parseInt(args[2]);
+		}
+
+		if (args[0].equalsIgnoreCase("storage")) {
+			benchStorage(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("build")) {
+			benchBuild(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("batch")) {
+			benchBatch(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("parallel")) {
+			benchParallel(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("concurrent")) {
+			benchConcurrent(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("suite")) {
+			benchSuite(args[1].split(","), rounds);
+		} else if (args[0].equalsIgnoreCase("buckets")) {
+			benchBuckets(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("compact")) {
+			benchCompact(args[1]);
+		} else if (args[0].equalsIgnoreCase("wal")) {
+			benchLog(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("state")) {
+			benchStates(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("range")) {
+			benchRanges(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("spatial")) {
+			benchSpatial(args[1], rounds);
+		} else if (args[0].equalsIgnoreCase("columns")) {
+			benchColumns(args[1], rounds);
+		} else {
+			System.out.println("Unknown benchmark " + args[0]);
+			System.exit(-1);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchStorage(path, rounds)
+	|
+	|  Purpose:  Compares the RAF and memory mapped storage modes. For each mode the index is
+	|            built from the .bin(best of rounds) and then every EID in the .bin is looked
+	|            up once per round through a freshly opened index.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the index of the last mode benchmarked.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchStorage(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		System.out.println("Benchmarking " + eids.length + " records from " + path + ".bin\n");
+
+		for (int mode = 0; mode < 2; mode++) {
+			IndexSettings settings = new IndexSettings();
+			settings.setMapped(mode == 1);
+			String name = settings.isMapped() ? "mapped" : "RAF";
+
+			long bestBuild = timeBuild(path, settings, rounds);
+
+			long bestLookup = Long.MAX_VALUE;
+			int found = 0;
+			for (int r = 0; r < rounds; r++) {
+				silence();
+				IndexBin opened = new IndexBin(path, "lhl.idx", settings);
+				restore();
+				found = 0;
+				long start = System.nanoTime();
+				for (int eid : eids) {
+					if (opened.lookup(eid) != null) {
+						found++;
+					}
+				}
+				bestLookup = Math.min(bestLookup, System.nanoTime() - start);
+				opened.close();
+			}
+
+			System.out.printf("%-7s build %10.2f ms   lookups %10.2f ms (%8.0f lookups/s, %d found)%n", name,
+					bestBuild / 1e6, bestLookup / 1e6, eids.length / (bestLookup / 1e9), found);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchBuild(path, rounds)
+	|
+	|  Purpose:  Compares building lhl.idx one record at a time(doubling and linear growth)
+	|            against the two pass bulk loader, in both storage modes.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the index of the last build.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each build is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchBuild(String path, int rounds) {
+		int records = readEIDs(path).length;
+		System.out.println("Building the index of " + records + " records from " + path + ".bin\n");
+		String[][] variants = { {}, { "linear" }, { "cache=65536" }, { "linear", "cache=65536" }, { "bulk" },
+				{ "bulk", "linear" }, { "mapped" }, { "mapped", "linear" }, { "mapped", "cache=65536" },
+				{ "mapped", "linear", "cache=65536" }, { "mapped", "bulk" }, { "mapped", "bulk", "linear" } };
+		for (String[] words : variants) {
+			IndexSettings settings = IndexSettings.fromArgs(words, 0);
+			long best = timeBuild(path, settings, rounds);
+			System.out.printf("%-22s %10.2f ms  %12.0f records/s   %8d KiB%n", String.join(" ", words).isEmpty() ? "doubling"
+					: String.join(" ", words), best / 1e6, records / (best / 1e9), new File("lhl.idx").length() / 1024);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchBatch(path, rounds)
+	|
+	|  Purpose:  Compares looking up a batch of EIDs one at a time against lookupAll(). The
+	|            batch holds every EID of the .bin plus one miss for every three hits, shuffled.
+	|            The index is bulk loaded first and both storage modes are measured.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the bulk loaded index.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchBatch(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		int[] batch = Arrays.copyOf(eids, eids.length + eids.length / 3);
+		Random random = new Random(460);
+		HashSet<Integer> present = new HashSet<Integer>();
+		for (int eid : eids) {
+			present.add(eid);
+		}
+		for (int i = eids.length; i < batch.length; i++) {
+			do {
+				batch[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+			} while (present.contains(batch[i]));
+		}
+		for (int i = batch.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = batch[i];
+			batch[i] = batch[j];
+			batch[j] = swap;
+		}
+		IndexSettings bulk = IndexSettings.fromArgs(new String[] { "bulk", "linear" }, 0);
+		timeBuild(path, bulk, 1);
+		System.out.println("Looking up " + batch.length + " EIDs(" + eids.length + " hits) in " + path + ".bin\n");
+
+		for (int mode = 0; mode < 2; mode++) {
+			IndexSettings settings = new IndexSettings();
+			settings.setMapped(mode == 1);
+			silence();
+			IndexBin opened = new IndexBin(path, "lhl.idx", settings);
+			restore();
+
+			long bestLoop = Long.MAX_VALUE;
+			long bestBatch = Long.MAX_VALUE;
+			int loopFound = 0;
+			int batchFound = 0;
+			for (int r = 0; r < rounds; r++) {
+				long start = System.nanoTime();
+				loopFound = 0;
+				for (int eid : batch) {
+					if (opened.lookup(eid) != null) {
+						loopFound++;
+					}
+				}
+				bestLoop = Math.min(bestLoop, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				batchFound = opened.lookupAll(batch).size();
+				bestBatch = Math.min(bestBatch, System.nanoTime() - start);
+			}
+			opened.close();
+
+			String name = settings.isMapped() ? "mapped" : "RAF";
+			System.out.printf("%-7s lookup loop %10.2f ms (%9.0f/s, %d found)   lookupAll %10.2f ms (%9.0f/s, %d found)%n",
+					name, bestLoop / 1e6, batch.length / (bestLoop / 1e9), loopFound, bestBatch / 1e6,
+					batch.length / (bestBatch / 1e9), batchFound);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchParallel(path, rounds)
+	|
+	|  Purpose:  Times the bulk loader with more and more threads and reports the speedup over
+	|            one thread. Every index built is compared with the one thread index.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the index of the last build.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each build is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchParallel(String path, int rounds) {
+		int records = readEIDs(path).length;
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("Bulk loading " + records + " records from " + path + ".bin on " + cores + " cores\n");
+		int[] counts = { 1, 2, 4, 8, cores };
+		byte[] serial = null;
+		long single = 0;
+		for (int threads : counts) {
+			IndexSettings settings = IndexSettings.fromArgs(new String[] { "threads=" + threads }, 0);
+			long best = timeBuild(path, settings, rounds);
+			byte[] built = new byte[0];
+			try {
+				built = Files.readAllBytes(Paths.get("lhl.idx"));
+			} catch (IOException e) {
+				System.out.println("I/O ERROR: Couldn't read lhl.idx back.");
+				System.exit(-1);
+			}
+			if (serial == null) {
+				serial = built;
+				single = best;
+			}
+			System.out.printf("%3d threads %10.2f ms  %12.0f records/s  speedup %5.2f  %s%n", threads, best / 1e6,
+					records / (best / 1e9), (double) single / best, Arrays.equals(serial, built) ? "identical" : "DIFFERENT");
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchConcurrent(path, rounds)
+	|
+	|  Purpose:  Measures lookups per second when several threads share one opened IndexBin.
+	|            The EIDs of the .bin are dealt out to the threads round robin and every thread
+	|            counts what it found, so a lookup disturbed by another thread shows up as a
+	|            wrong found count.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the bulk loaded index.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchConcurrent(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		int cores = Runtime.getRuntime().availableProcessors();
+		timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk" }, 0), 1);
+		System.out.println("Looking up " + eids.length + " EIDs of " + path + ".bin on " + cores + " cores\n");
+		int[] counts = { 1, 2, 4, 8, cores };
+
+		for (int mode = 0; mode < 2; mode++) {
+			IndexSettings settings = new IndexSettings();
+			settings.setMapped(mode == 1);
+			silence();
+			IndexBin opened = new IndexBin(path, "lhl.idx", settings);
+			restore();
+			String name = settings.isMapped() ? "mapped" : "RAF";
+
+			long single = 0;
+			for (int threads : counts) {
+				long best = Long.MAX_VALUE;
+				int found = 0;
+				for (int r = 0; r < rounds; r++) {
+					int[] foundBy = new int[threads];
+					Thread[] workers = new Thread[threads];
+					for (int t = 0; t < threads; t++) {
+						int mine = t;
+						workers[t] = new Thread(() -> {
+							for (int i = mine; i < eids.length; i = i + threads) {
+								Record record = opened.lookup(eids[i]);
+								if (record != null && record.getEid() == eids[i]) {
+									foundBy[mine]++;
+								}
+							}
+						});
+					}
+					long start = System.nanoTime();
+					for (Thread worker : workers) {
+						worker.start();
+					}
+					try {
+						for (Thread worker : workers) {
+							worker.join();
+						}
+					} catch (InterruptedException e) {
+						System.out.println("ERROR: Interrupted while waiting for the lookups.");
+						System.exit(-1);
+					}
+					best = Math.min(best, System.nanoTime() - start);
+					found = Arrays.stream(foundBy).sum();
+				}
+				if (single == 0) {
+					single = best;
+				}
+				System.out.printf("%-7s %3d threads %10.2f ms  %10.0f lookups/s  speedup %5.2f  %d found%n", name,
+						threads, best / 1e6, eids.length / (best / 1e9), (double) single / best, found);
+			}
+			opened.close();
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchSuite(paths, seconds)
+	|
+	|  Purpose:  Measures the public operations of IndexBin on every dataset with BenchHarness.
+	|            The builds run record by record(doubling) and bulk loaded. checkEID is measured
+	|            for hits(the EIDs of the .bin, shuffled) and misses(EIDs that are not in it),
+	|            with its printing going to a null stream, and so is findOffset, which should
+	|            allocate nothing. lookup is compared with view reading one field, and a scan
+	|            of every record through forEachRecord, in both storage modes. The misses and
+	|            hits are measured again with a 1% EID filter in front of the index, and checkEID
+	|            on skewed hits without and with a record cache. doubleBuckets is measured on bulk
+	|            loads with fill factors 0.8, 0.4 and 0.2, one doubling per fresh index, so the
+	|            same records are rehashed from three different hVal values.
+	|
+	|  Pre-condition: Every path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the index of the last doubleBuckets row.
+	|
+	|  Parameters: paths - the .bin files without their extension.
+	|              seconds - the measurement time of every row, warm up is half of it.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchSuite(String[] paths, int seconds) {
+		BenchHarness harness = new BenchHarness(console, seconds / 2.0, seconds);
+		harness.printHeader();
+		silence();
+		for (String path : paths) {
+			int[] eids = readEIDs(path);
+			Random random = new Random(460);
+			int[] hits = eids.clone();
+			HashSet<Integer> present = new HashSet<Integer>();
+			for (int i = hits.length - 1; i >= 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = hits[i];
+				hits[i] = hits[j];
+				hits[j] = swap;
+				present.add(hits[i]);
+			}
+			int[] misses = new int[Math.max(1, hits.length)];
+			for (int i = 0; i < misses.length; i++) {
+				do {
+					misses[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+				} while (present.contains(misses[i]));
+			}
+
+			harness.run("build doubling", eids.length, null, () -> new IndexBin(path, new IndexSettings()).close());
+			IndexSettings bulk = IndexSettings.fromArgs(new String[] { "bulk" }, 0);
+			harness.run("build bulk", eids.length, null, () -> new IndexBin(path, bulk).close());
+
+			IndexBin opened = new IndexBin(path, "lhl.idx", new IndexSettings());
+			int[] next = { 0 };
+			if (hits.length > 0) {
+				harness.run("checkEID hit", eids.length, null, () -> {
+					opened.checkEID(hits[next[0]]);
+					next[0] = (next[0] + 1) % hits.length;
+				});
+			}
+			harness.run("checkEID miss", eids.length, null, () -> {
+				opened.checkEID(misses[next[0] % misses.length]);
+				next[0] = (next[0] + 1) % misses.length;
+			});
+			long[] sink = { 0 };
+			if (hits.length > 0) {
+				harness.run("findOffset hit", eids.length, null, () -> {
+					sink[0] = sink[0] + opened.findOffset(hits[next[0]]);
+					next[0] = (next[0] + 1) % hits.length;
+				});
+			}
+			harness.run("findOffset miss", eids.length, null, () -> {
+				sink[0] = sink[0] + opened.findOffset(misses[next[0] % misses.length]);
+				next[0] = (next[0] + 1) % misses.length;
+			});
+			harness.run("readCounts", eids.length, null, () -> opened.readCounts());
+			double[] total = { 0 };
+			if (hits.length > 0) {
+				harness.run("lookup hit", eids.length, null, () -> {
+					total[0] = total[0] + opened.lookup(hits[next[0]]).getCapAc();
+					next[0] = (next[0] + 1) % hits.length;
+				});
+				harness.run("view hit", eids.length, null, () -> {
+					total[0] = total[0] + opened.view(hits[next[0]]).getCapAc();
+					next[0] = (next[0] + 1) % hits.length;
+				});
+			}
+			harness.run("scan capAc", eids.length, null, () -> opened.forEachRecord(view -> total[0] = total[0] + view.getCapAc()));
+			opened.close();
+
+			IndexBin mapped = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(new String[] { "mapped" }, 0));
+			if (hits.length > 0) {
+				harness.run("view hit mapped", eids.length, null, () -> {
+					total[0] = total[0] + mapped.view(hits[next[0]]).getCapAc();
+					next[0] = (next[0] + 1) % hits.length;
+				});
+			}
+			harness.run("scan capAc mapped", eids.length, null, () -> mapped.forEachRecord(view -> total[0] = total[0] + view.getCapAc()));
+			mapped.close();
+
+			//The same misses with the EID filter saved by a build with a 1% false positive rate.
+			IndexSettings bloom = IndexSettings.fromArgs(new String[] { "bulk", "bloom=0.01" }, 0);
+			new IndexBin(path, bloom).close();
+			IndexBin filtered = new IndexBin(path, "lhl.idx", bloom);
+			harness.run("checkEID miss bloom", eids.length, null, () -> {
+				filtered.checkEID(misses[next[0] % misses.length]);
+				next[0] = (next[0] + 1) % misses.length;
+			});
+			harness.run("findOffset miss bloom", eids.length, null, () -> {
+				sink[0] = sink[0] + filtered.findOffset(misses[next[0] % misses.length]);
+				next[0] = (next[0] + 1) % misses.length;
+			});
+			if (hits.length > 0) {
+				harness.run("findOffset hit bloom", eids.length, null, () -> {
+					sink[0] = sink[0] + filtered.findOffset(hits[next[0]]);
+					next[0] = (next[0] + 1) % hits.length;
+				});
+			}
+			console.println(filtered.getFilter().toString());
+			filtered.close();
+
+			//Skewed hits, nine in ten from a hot set of 512 EIDs, without and with a record cache.
+			if (hits.length > 0) {
+				int[] skewed = new int[1 << 16];
+				for (int i = 0; i < skewed.length; i++) {
+					boolean hot = random.nextInt(10) < 9;
+					skewed[i] = hits[random.nextInt(hot ? Math.min(512, hits.length) : hits.length)];
+				}
+				IndexBin plain = new IndexBin(path, "lhl.idx", new IndexSettings());
+				harness.run("checkEID skewed", eids.length, null, () -> {
+					plain.checkEID(skewed[next[0] % skewed.length]);
+					next[0] = (next[0] + 1) % skewed.length;
+				});
+				plain.close();
+				IndexBin cached = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(new String[] { "recordcache=1024" }, 0));
+				harness.run("checkEID skewed cached", eids.length, null, () -> {
+					cached.checkEID(skewed[next[0] % skewed.length]);
+					next[0] = (next[0] + 1) % skewed.length;
+				});
+				console.println(cached.getRecordCache().toString());
+				cached.close();
+			}
+
+			for (String fill : new String[] { "fill=0.8", "fill=0.4", "fill=0.2" }) {
+				IndexSettings settings = IndexSettings.fromArgs(new String[] { "bulk", fill }, 0);
+				IndexBin[] built = { new IndexBin(path, settings) };
+				int hVal = built[0].getHVal();
+				built[0].close();
+				harness.run("doubleBuckets hVal=" + hVal, eids.length, () -> {
+					built[0].close();
+					built[0] = new IndexBin(path, settings);
+				}, () -> built[0].doubleBuckets());
+				built[0].close();
+			}
+		}
+		restore();
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchBuckets(path, rounds)
+	|
+	|  Purpose:  Compares bucket layouts: the default 20 entry block and aligned blocks of 256
+	|            bytes to 8 KiB, each bulk loaded(linear) at fill factors 0.5, 0.7 and 0.9, once
+	|            with unsorted blocks that are scanned and once sorted and binary searched. Every row
+	|            shows the blocks and size of lhl.idx, how full the blocks are, the blocks and
+	|            4 KiB pages a probe of every EID reads on average(what a probe costs when
+	|            nothing is cached) and the warm lookup time of findOffset(best of rounds).
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: lhl.idx holds the index of the last layout.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times the warm lookups are repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchBuckets(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		System.out.println("Benchmarking bucket layouts on " + eids.length + " records from " + path + ".bin\n");
+		System.out.printf("%-8s %6s %6s %5s %-6s %10s %10s %6s %12s %12s %12s%n", "layout", "bucket", "block", "fill",
+				"search", "blocks", "idx MB", "used", "blocks/probe", "pages/probe", "ns/lookup");
+		String[][] layouts = { { "bucket=20" }, { "bucket=20", "aligned" }, { "bucket=63", "aligned" },
+				{ "bucket=127", "aligned" }, { "bucket=511", "aligned" }, { "bucket=1023", "aligned" } };
+		for (String[] layout : layouts) {
+			for (String fill : new String[] { "fill=0.5", "fill=0.7", "fill=0.9" }) {
+			for (String search : new String[] { "scan", "sorted" }) {
+				//Linear growth keeps the bucket count the fill factor asks for instead of a power of two.
+				String[] words = Arrays.copyOf(layout, layout.length + (search.equals("sorted") ? 4 : 3));
+				words[layout.length] = "bulk";
+				words[layout.length + 1] = "linear";
+				words[layout.length + 2] = fill;
+				if (search.equals("sorted")) {
+					words[layout.length + 3] = search;
+				}
+				silence();
+				new IndexBin(path, IndexSettings.fromArgs(words, 0)).close();
+				IndexBin opened = new IndexBin(path, "lhl.idx", new IndexSettings());
+				restore();
+				BlockLayout blocks = opened.getLayout();
+				long length = new File("lhl.idx").length();
+				long count = (length - blocks.getDataStart()) / blocks.getBlockSize();
+
+				long probedBlocks = 0;
+				long probedPages = 0;
+				for (int eid : eids) {
+					long cost = opened.probeCost(eid);
+					probedBlocks = probedBlocks + (cost >>> 32);
+					probedPages = probedPages + (int) cost;
+				}
+				long best = Long.MAX_VALUE;
+				long sink = 0;
+				for (int r = 0; r < rounds; r++) {
+					long start = System.nanoTime();
+					for (int eid : eids) {
+						sink = sink + opened.findOffset(eid);
+					}
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				opened.close();
+
+				System.out.printf("%-8s %6d %6d %5s %-6s %10d %10.2f %5.1f%% %12.2f %12.2f %12.1f%n",
+						layout.length > 1 ? "aligned" : "default", blocks.getBucketSize(), blocks.getBlockSize(),
+						fill.substring(5), search, count, length / 1048576.0,
+						100.0 * opened.getEntryCount() / ((double) count * blocks.getBucketSize()),
+						(double) probedBlocks / Math.max(1, eids.length), (double) probedPages / Math.max(1, eids.length),
+						(double) best / Math.max(1, eids.length));
+			}
+			}
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchCompact(path)
+	|
+	|  Purpose:  Measures deletes, updates and compaction on a copy of the .bin(path-compact.bin,
+	|            the .bin itself is never changed). For 10%, 30% and 50% of the EIDs that occur
+	|            once, the copy is bulk loaded with "write", the EIDs are deleted(ns/delete) and a
+	|            tenth of the rest updated in place(ns/update). Every remaining EID is then looked
+	|            up with the tombstones in place, compact() is timed and the lookups are repeated.
+	|            The same deletes are then compacted in the background while the main thread
+	|            keeps looking up. Every lookup is checked: deleted EIDs must be missing and all
+	|            others found with their updated values.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: path-compact.bin and lhl.idx hold the last compacted copy.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchCompact(String path) {
+		int[] eids = readEIDs(path);
+		String copy = new File(path).getName() + "-compact";
+		HashMap<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		for (int eid : eids) {
+			counts.merge(eid, 1, Integer::sum);
+		}
+		int[] singles = Arrays.stream(eids).filter(eid -> counts.get(eid) == 1).toArray();
+		Random random = new Random(460);
+		for (int i = singles.length - 1; i > 0; i--) {
+			int swap = random.nextInt(i + 1);
+			int keep = singles[i];
+			singles[i] = singles[swap];
+			singles[swap] = keep;
+		}
+		int[] all = counts.keySet().stream().mapToInt(Integer::intValue).toArray();
+		System.out.println("Deleting from a copy of " + path + ".bin(" + eids.length + " records, " + singles.length
+				+ " EIDs that occur once)\n");
+		System.out.printf("%7s %10s %10s %9s %10s %10s %10s %10s %12s %10s %10s %7s%n", "deleted", "ns/delete",
+				"ns/update", "tombstone", "ns/lookup", "compact ms", "ns/lookup", "bg ms", "ns/lookup bg", "bin MB",
+				"idx MB", "wrong");
+
+		for (double fraction : new double[] { 0.1, 0.3, 0.5 }) {
+			int deletes = (int) (singles.length * fraction);
+			HashSet<Integer> deleted = new HashSet<Integer>();
+			for (int i = 0; i < deletes; i++) {
+				deleted.add(singles[i]);
+			}
+			IndexBin index = openCopy(path, copy);
+			long start = System.nanoTime();
+			for (int i = 0; i < deletes; i++) {
+				index.delete(singles[i]);
+			}
+			long deleteTime = System.nanoTime() - start;
+
+			//A tenth of the remaining once-only EIDs get a new AC capacity, the EID itself.
+			int updates = Math.max(1, (singles.length - deletes) / 10);
+			Record[] changed = new Record[updates];
+			for (int i = 0; i < updates; i++) {
+				changed[i] = index.lookup(singles[deletes + i]);
+				changed[i].setCapAc(changed[i].getEid());
+			}
+			start = System.nanoTime();
+			for (Record record : changed) {
+				index.update(record);
+			}
+			long updateTime = System.nanoTime() - start;
+			double ratio = index.tombstoneRatio();
+
+			int[] wrong = new int[1];
+			long before = timeLookups(index, all, deleted, wrong);
+			start = System.nanoTime();
+			index.compact();
+			long compactTime = System.nanoTime() - start;
+			long after = timeLookups(index, all, deleted, wrong);
+			checkUpdates(index, changed, wrong);
+			index.close();
+
+			//The same deletes again, compacted in the background while the lookups go on.
+			index = openCopy(path, copy);
+			for (int i = 0; i < deletes; i++) {
+				index.delete(singles[i]);
+			}
+			for (Record record : changed) {
+				index.update(record);
+			}
+			start = System.nanoTime();
+			Thread compactor = index.compactInBackground();
+			long lookups = 0;
+			long lookupTime = 0;
+			while (compactor.isAlive()) {
+				lookupTime = lookupTime + timeLookups(index, all, deleted, wrong) * all.length;
+				lookups = lookups + all.length;
+			}
+			long backgroundTime = System.nanoTime() - start;
+			checkUpdates(index, changed, wrong);
+			index.close();
+
+			System.out.printf("%6.0f%% %10.0f %10.0f %8.1f%% %10.0f %10.1f %10.0f %10.1f %12.0f %10.2f %10.2f %7d%n",
+					100 * fraction, (double) deleteTime / Math.max(1, deletes), (double) updateTime / updates, 100 * ratio,
+					(double) before, compactTime / 1e6, (double) after, backgroundTime / 1e6,
+					(double) lookupTime / Math.max(1, lookups), new File(copy + ".bin").length() / 1048576.0,
+					new File("lhl.idx").length() / 1048576.0, wrong[0]);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchLog(path, rounds)
+	|
+	|  Purpose:  Measures what the write-ahead log costs a record by record build at four group
+	|            sizes, as a share of the same build without it, then checks that it does its
+	|            job(see crashBuilds()) for both kinds of growth.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension, in the current
+	|                 directory(Prog21 is run on it from here).
+	|
+	|  Post-condition: lhl.idx holds the last finished build.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each build is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchLog(String path, int rounds) {
+		int records = readEIDs(path).length;
+		System.out.println("Building the index of " + records + " records from " + path + ".bin with a write-ahead log\n");
+		System.out.printf("%-9s %7s %10s %12s %8s%n", "growth", "group", "ms", "records/s", "slower");
+		for (String growth : new String[] { "doubling", "linear" }) {
+			String[] words = growth.equals("linear") ? new String[] { "linear" } : new String[0];
+			long plain = timeBuild(path, IndexSettings.fromArgs(words, 0), rounds);
+			System.out.printf("%-9s %7s %10.2f %12.0f %8s%n", growth, "no log", plain / 1e6, records / (plain / 1e9), "");
+			for (int group : new int[] { 1, 16, 256, 4096 }) {
+				IndexSettings settings = IndexSettings.fromArgs(words, 0);
+				settings.setLogGroup(group);
+				long best = timeBuild(path, settings, rounds);
+				System.out.printf("%-9s %7d %10.2f %12.0f %7.1f%%%n", growth, group, best / 1e6, records / (best / 1e9),
+						100.0 * (best - plain) / plain);
+			}
+		}
+		System.out.println();
+		crashBuilds(path, new String[0], 6);
+		crashBuilds(path, new String[] { "linear" }, 6);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method crashBuilds(path, words, trials)
+	|
+	|  Purpose:  Runs Prog21 with the write-ahead log(groups of 16) in a separate JVM and kills
+	|            it at a random moment of its run, trials times. Each time the log is redone, the
+	|            build is finished with "append" and lhl.idx is compared byte for byte with a
+	|            build that was never interrupted.
+	|
+	|  Pre-condition: path names an existing .bin file in the current directory.
+	|
+	|  Post-condition: lhl.idx holds the last finished build.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              words - the build options.
+	|              trials - how many builds are killed.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void crashBuilds(String path, String[] words, int trials) {
+		IndexSettings settings = IndexSettings.fromArgs(words, 0);
+		settings.setLogGroup(16);
+		silence();
+		new IndexBin(path, settings).close();
+		restore();
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(ProcessHandle.current().info().command().orElse("java"));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("Prog21");
+		command.add(path);
+		command.addAll(Arrays.asList(words));
+		command.add("wal=16");
+		ProcessBuilder builder = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+		try {
+			byte[] expected = Files.readAllBytes(Paths.get("lhl.idx"));
+			long start = System.nanoTime();
+			builder.start().waitFor();
+			long full = System.nanoTime() - start;
+			Random random = new Random(460);
+			int same = 0;
+			for (int i = 0; i < trials; i++) {
+				long wait = (long) (full * (0.3 + 0.6 * random.nextDouble()));
+				Process child = builder.start();
+				Thread.sleep(wait / 1000000);
+				child.destroyForcibly();
+				child.waitFor();
+				silence();
+				int redone = IndexLog.recover("lhl.idx" + ".wal", "lhl.idx");
+				IndexSettings resume = IndexSettings.fromArgs(words, 0);
+				resume.setAppend(true);
+				new IndexBin(path, resume).close();
+				restore();
+				boolean matches = Arrays.equals(expected, Files.readAllBytes(Paths.get("lhl.idx")));
+				if (matches) {
+					same++;
+				}
+				System.out.printf("%-9s killed after %6.0f ms: %5d groups redone, finished index %s%n",
+						words.length == 0 ? "doubling" : String.join(" ", words), wait / 1e6, redone, matches ? "identical" : "DIFFERENT");
+			}
+			System.out.println(same + " of " + trials + " interrupted builds finished identical to the uninterrupted one.\n");
+		} catch (IOException | InterruptedException e) {
+			System.out.println("ERROR: Couldn't run Prog21 to interrupt it: " + e.getMessage());
+			System.exit(-1);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchStates(path, rounds)
+	|
+	|  Purpose:  Measures the state index. The build is timed record by record and bulk loaded,
+	|            with and without it. Then, for the smallest, median and largest state, every
+	|            record of the state is read through the posting list and by a scan of the whole
+	|            .bin(best of rounds, both storage modes) and the two are checked to agree.
+	|            Last, a copy of the .bin is built with "state" and "write", a third of its
+	|            once-only EIDs are deleted, a tenth of the rest moved to another state and the
+	|            copy compacted: the postings of every state must still match a scan, both
+	|            before closing and after the index is opened again from the saved posting file.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: path-compact.bin, lhl.idx and lhl.idx.states hold the compacted copy.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchStates(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		System.out.println("Indexing the states of " + eids.length + " records from " + path + ".bin\n");
+		for (String[] words : new String[][] { {}, { "bulk" } }) {
+			String name = words.length == 0 ? "record by record" : "bulk";
+			long plain = timeBuild(path, IndexSettings.fromArgs(words, 0), rounds);
+			IndexSettings settings = IndexSettings.fromArgs(words, 0);
+			settings.setStateIndex(true);
+			long withStates = timeBuild(path, settings, rounds);
+			System.out.printf("%-17s %10.2f ms without, %10.2f ms with the state index(%+.1f%%), %8d KiB of postings%n", name,
+					plain / 1e6, withStates / 1e6, 100.0 * (withStates - plain) / plain, new File("lhl.idx.states").length() / 1024);
+		}
+
+		silence();
+		IndexBin indexed = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(new String[] { "state" }, 0));
+		restore();
+		String[] states = indexed.getStateIndex().getStates();
+		Arrays.sort(states, (a, b) -> Integer.compare(indexed.getStateIndex().postings(a).length,
+				indexed.getStateIndex().postings(b).length));
+		indexed.close();
+		String[] picked = { states[0], states[states.length / 2], states[states.length - 1] };
+
+		System.out.printf("%n%-7s %-6s %8s %12s %12s %9s %7s%n", "storage", "state", "records", "scan ms", "postings ms",
+				"speedup", "wrong");
+		for (String storage : new String[] { "RAF", "mapped" }) {
+			String[] words = storage.equals("mapped") ? new String[] { "mapped" } : new String[0];
+			silence();
+			IndexBin scanned = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(words, 0));
+			IndexSettings settings = IndexSettings.fromArgs(words, 0);
+			settings.setStateIndex(true);
+			IndexBin posted = new IndexBin(path, "lhl.idx", settings);
+			restore();
+			for (String state : picked) {
+				long[] scan = timeState(scanned, state, rounds);
+				long[] post = timeState(posted, state, rounds);
+				System.out.printf("%-7s %-6s %8d %12.3f %12.3f %8.1fx %7d%n", storage, state, post[1], scan[0] / 1e6,
+						post[0] / 1e6, (double) scan[0] / post[0], scan[1] == post[1] && scan[2] == post[2] ? 0 : 1);
+			}
+			scanned.close();
+			posted.close();
+		}
+
+		//Deletes, state changes and compaction on a copy, checked against a scan before and after reopening.
+		HashMap<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		for (int eid : eids) {
+			counts.merge(eid, 1, Integer::sum);
+		}
+		int[] singles = Arrays.stream(eids).filter(eid -> counts.get(eid) == 1).toArray();
+		String copy = new File(path).getName() + "-compact";
+		IndexBin index = openCopy(path, copy, "state");
+		int deletes = singles.length / 3;
+		for (int i = 0; i < deletes; i++) {
+			index.delete(singles[i]);
+		}
+		int updates = Math.max(1, (singles.length - deletes) / 10);
+		for (int i = 0; i < updates; i++) {
+			Record record = index.lookup(singles[deletes + i]);
+			record.setState(states[i % states.length]);
+			index.update(record);
+		}
+		index.compact();
+		int wrong = checkStates(index, states);
+		index.close();
+		silence();
+		index = new IndexBin(copy, "lhl.idx", IndexSettings.fromArgs(new String[] { "state" }, 0));
+		restore();
+		int reopened = checkStates(index, states);
+		index.close();
+		System.out.println("\nAfter " + deletes + " deletes, " + updates + " state changes and compaction " + wrong
+				+ " states differ from a scan, " + reopened + " after reopening.");
+	}
+
+	//Reads every record of the state rounds times. Returns the best ns, the records and the sum of their EIDs.
+	private static long[] timeState(IndexBin index, String state, int rounds) {
+		long best = Long.MAX_VALUE;
+		long[] found = new long[2];
+		for (int r = 0; r < rounds; r++) {
+			found[0] = 0;
+			found[1] = 0;
+			long start = System.nanoTime();
+			index.forEachInState(state, view -> {
+				found[0]++;
+				found[1] = found[1] + view.getEid();
+			});
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return new long[] { best, found[0], found[1] };
+	}
+
+	//Counts the states whose records read through the postings differ from a scan of the .bin.
+	private static int checkStates(IndexBin index, String[] states) {
+		int wrong = 0;
+		for (String state : states) {
+			ArrayList<Integer> posted = new ArrayList<Integer>();
+			index.forEachInState(state, view -> posted.add(view.getEid()));
+			ArrayList<Integer> scanned = new ArrayList<Integer>();
+			index.forEachRecord(view -> {
+				if (StateIndex.key(view.getState()).equals(state)) {
+					scanned.add(view.getEid());
+				}
+			});
+			if (!posted.equals(scanned)) {
+				wrong++;
+			}
+		}
+		return wrong;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchRanges(path, rounds)
+	|
+	|  Purpose:  Measures the B+-tree over the EIDs. The bulk load is timed with and without
+	|            it. Then for ranges 10, 100, 1000, 10000 and 100000 EIDs wide, starting at
+	|            random EIDs between the smallest and largest of the .bin, every record of the
+	|            range is found through the tree and by probing each EID of the range in the
+	|            hash index(best of rounds, both storage modes). The probes find only the first
+	|            record of an EID, so both are checked to find the same distinct EIDs. The whole
+	|            .bin is then iterated in EID order through the tree. Last, a copy of the .bin is
+	|            built with "tree" and "write", a third of its once-only EIDs are deleted and
+	|            the copy compacted: ranges through the tree must still find what the probes
+	|            find, before closing and after the index is opened again.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: path-compact.bin, lhl.idx and lhl.idx.tree hold the compacted copy.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchRanges(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		int[] sorted = Arrays.stream(eids).filter(eid -> eid >= 0).sorted().toArray();
+		System.out.println("Range scans over the " + eids.length + " records of " + path + ".bin(EIDs " + sorted[0] + " to "
+				+ sorted[sorted.length - 1] + ")\n");
+		long plain = timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk" }, 0), rounds);
+		long withTree = timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk", "tree" }, 0), rounds);
+		System.out.printf("bulk load %10.2f ms without, %10.2f ms with the tree(%+.1f%%), %8d KiB of tree%n%n", plain / 1e6,
+				withTree / 1e6, 100.0 * (withTree - plain) / plain, new File("lhl.idx.tree").length() / 1024);
+
+		System.out.printf("%-7s %7s %8s %9s %12s %12s %9s %7s%n", "storage", "width", "queries", "records", "probes us",
+				"tree us", "speedup", "wrong");
+		for (String storage : new String[] { "RAF", "mapped" }) {
+			String[] words = storage.equals("mapped") ? new String[] { "mapped" } : new String[0];
+			silence();
+			IndexBin probed = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(words, 0));
+			IndexSettings settings = IndexSettings.fromArgs(words, 0);
+			settings.setTree(true);
+			IndexBin treed = new IndexBin(path, "lhl.idx", settings);
+			restore();
+			for (int width : new int[] { 10, 100, 1000, 10000, 100000 }) {
+				int[] lows = randomRanges(sorted, width, Math.max(5, Math.min(1000, 200000 / width)));
+				long[] probes = timeRanges(probed, lows, width, rounds);
+				long[] scans = timeRanges(treed, lows, width, rounds);
+				System.out.printf("%-7s %7d %8d %9.1f %12.2f %12.2f %8.1fx %7d%n", storage, width, lows.length,
+						(double) scans[1] / lows.length, probes[0] / 1e3 / lows.length, scans[0] / 1e3 / lows.length,
+						(double) probes[0] / scans[0], probes[2] == scans[2] && probes[3] == scans[3] ? 0 : 1);
+			}
+
+			//The whole .bin in EID order.
+			long[] seen = new long[3];
+			long start = System.nanoTime();
+			treed.forEachInRange(0, Integer.MAX_VALUE, view -> {
+				if (view.getEid() < seen[1]) {
+					seen[2]++;
+				}
+				seen[1] = view.getEid();
+				seen[0]++;
+			});
+			System.out.printf("%-7s iterated %d records in EID order in %.2f ms, %d out of order, %d missing%n", storage, seen[0],
+					(System.nanoTime() - start) / 1e6, seen[2], sorted.length - seen[0]);
+			probed.close();
+			treed.close();
+		}
+
+		//Deletes and compaction on a copy, checked against the probes before and after reopening.
+		HashMap<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		for (int eid : eids) {
+			counts.merge(eid, 1, Integer::sum);
+		}
+		int[] singles = Arrays.stream(eids).filter(eid -> counts.get(eid) == 1).toArray();
+		String copy = new File(path).getName() + "-compact";
+		IndexBin index = openCopy(path, copy, "tree");
+		int deletes = singles.length / 3;
+		for (int i = 0; i < deletes; i++) {
+			index.delete(singles[i]);
+		}
+		index.compact();
+		int[] lows = randomRanges(sorted, 1000, 50);
+		int wrong = checkRanges(index, lows, 1000);
+		index.close();
+		silence();
+		index = new IndexBin(copy, "lhl.idx", IndexSettings.fromArgs(new String[] { "tree" }, 0));
+		restore();
+		int reopened = checkRanges(index, lows, 1000);
+		long entries = index.getTree().getEntries();
+		index.close();
+		System.out.println("\nAfter " + deletes + " deletes and compaction " + wrong + " of " + lows.length
+				+ " ranges differ from the probes, " + reopened + " after reopening(" + entries + " entries for "
+				+ (eids.length - deletes) + " records).");
+	}
+
+	//The first EID of count random ranges of the width between the smallest and largest EID.
+	private static int[] randomRanges(int[] sorted, int width, int count) {
+		Random random = new Random(460);
+		int span = Math.max(1, sorted[sorted.length - 1] - sorted[0] - width + 2);
+		int[] lows = new int[count];
+		for (int i = 0; i < count; i++) {
+			lows[i] = sorted[0] + random.nextInt(span);
+		}
+		return lows;
+	}
+
+	//Finds every range rounds times. Returns the best ns, the records, the distinct EIDs and the sum of those EIDs.
+	private static long[] timeRanges(IndexBin index, int[] lows, int width, int rounds) {
+		long best = Long.MAX_VALUE;
+		long[] found = new long[4];
+		for (int r = 0; r < rounds; r++) {
+			Arrays.fill(found, 0);
+			long start = System.nanoTime();
+			for (int low : lows) {
+				long[] last = { -1 };
+				index.forEachInRange(low, low + width - 1, view -> {
+					found[1]++;
+					if (view.getEid() != last[0]) {
+						found[2]++;
+						found[3] = found[3] + view.getEid();
+						last[0] = view.getEid();
+					}
+				});
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		found[0] = best;
+		return found;
+	}
+
+	//Counts the ranges whose distinct EIDs through the tree differ from probing every EID of the range.
+	private static int checkRanges(IndexBin index, int[] lows, int width) {
+		int wrong = 0;
+		for (int low : lows) {
+			ArrayList<Integer> probed = new ArrayList<Integer>();
+			for (int eid = low; eid < low + width; eid++) {
+				if (index.findOffset(eid) != IndexBin.NOTFOUND) {
+					probed.add(eid);
+				}
+			}
+			ArrayList<Integer> scanned = new ArrayList<Integer>();
+			index.forEachInRange(low, low + width - 1, view -> {
+				if (scanned.isEmpty() || scanned.get(scanned.size() - 1) != view.getEid()) {
+					scanned.add(view.getEid());
+				}
+			});
+			if (!probed.equals(scanned)) {
+				wrong++;
+			}
+		}
+		return wrong;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchSpatial(path, rounds)
+	|
+	|  Purpose:  Measures the spatial grid. The bulk load is timed with and without it. Then
+	|            around 20 plants picked at random, the records in boxes 0.1, 1 and 5 degrees
+	|            wide, within 10, 50 and 200 km and the 1, 10 and 100 closest are found through
+	|            the grid and without it(a scan of the .bin, best of rounds, both storage
+	|            modes), and both must find the same records in the same order. Last, a copy of
+	|            the .bin is built with "grid" and "write", a third of its once-only EIDs are
+	|            deleted, a tenth of the rest moved(one in ten of those beyond every other
+	|            plant) and the copy compacted: the grid must still find what a scan finds,
+	|            before closing and after the index is opened again.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: path-compact.bin, lhl.idx and lhl.idx.grid hold the compacted copy.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchSpatial(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		System.out.println("Spatial queries over the " + eids.length + " records of " + path + ".bin\n");
+		long plain = timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk" }, 0), rounds);
+		long withGrid = timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk", "grid" }, 0), rounds);
+		System.out.printf("bulk load %10.2f ms without, %10.2f ms with the grid(%+.1f%%), %8d KiB of grid%n%n", plain / 1e6,
+				withGrid / 1e6, 100.0 * (withGrid - plain) / plain, new File("lhl.idx.grid").length() / 1024);
+
+		silence();
+		IndexBin indexed = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(new String[] { "grid" }, 0));
+		restore();
+		System.out.println(indexed.getGrid().toString() + "\n");
+		ArrayList<double[]> points = new ArrayList<double[]>();
+		indexed.forEachRecord(view -> points.add(new double[] { view.getLat(), view.getLon() }));
+		indexed.close();
+		Random random = new Random(460);
+		double[][] centers = new double[20][];
+		for (int i = 0; i < centers.length; i++) {
+			centers[i] = points.get(random.nextInt(points.size()));
+		}
+
+		String[] kinds = { "box", "box", "box", "within", "within", "within", "nearest", "nearest", "nearest" };
+		double[] sizes = { 0.1, 1, 5, 10, 50, 200, 1, 10, 100 };
+		System.out.printf("%-7s %-12s %8s %9s %12s %12s %9s %7s%n", "storage", "query", "queries", "records", "scan us",
+				"grid us", "speedup", "wrong");
+		for (String storage : new String[] { "RAF", "mapped" }) {
+			String[] words = storage.equals("mapped") ? new String[] { "mapped" } : new String[0];
+			silence();
+			IndexBin scanned = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(words, 0));
+			IndexSettings settings = IndexSettings.fromArgs(words, 0);
+			settings.setGrid(true);
+			IndexBin gridded = new IndexBin(path, "lhl.idx", settings);
+			restore();
+			for (int q = 0; q < kinds.length; q++) {
+				long[] scans = timePlaces(scanned, centers, kinds[q], sizes[q], rounds);
+				long[] cells = timePlaces(gridded, centers, kinds[q], sizes[q], rounds);
+				String query = kinds[q] + (kinds[q].equals("box") ? " " + sizes[q] : kinds[q].equals("within") ? " " + (int) sizes[q] + "km"
+						: " " + (int) sizes[q]);
+				System.out.printf("%-7s %-12s %8d %9.1f %12.2f %12.2f %8.1fx %7d%n", storage, query, centers.length,
+						(double) cells[1] / centers.length, scans[0] / 1e3 / centers.length, cells[0] / 1e3 / centers.length,
+						(double) scans[0] / cells[0], scans[1] == cells[1] && scans[2] == cells[2] ? 0 : 1);
+			}
+			scanned.close();
+			gridded.close();
+		}
+
+		//Deletes, moves and compaction on a copy, checked against a scan before and after reopening.
+		HashMap<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		for (int eid : eids) {
+			counts.merge(eid, 1, Integer::sum);
+		}
+		int[] singles = Arrays.stream(eids).filter(eid -> counts.get(eid) == 1).toArray();
+		String copy = new File(path).getName() + "-compact";
+		IndexBin index = openCopy(path, copy, "grid");
+		int deletes = singles.length / 3;
+		for (int i = 0; i < deletes; i++) {
+			index.delete(singles[i]);
+		}
+		int moves = Math.max(1, (singles.length - deletes) / 10);
+		double[][] checked = Arrays.copyOf(centers, centers.length + Math.min(10, moves));
+		for (int i = 0; i < moves; i++) {
+			Record record = index.lookup(singles[deletes + i]);
+			record.setLat(i % 10 == 0 ? record.getLat() - 30 : record.getLat() + 0.3);
+			record.setLon(record.getLon() - 0.4);
+			index.update(record);
+			if (centers.length + i < checked.length) {
+				checked[centers.length + i] = new double[] { record.getLat(), record.getLon() };
+			}
+		}
+		index.compact();
+		int wrong = checkPlaces(index, checked);
+		index.close();
+		silence();
+		index = new IndexBin(copy, "lhl.idx", IndexSettings.fromArgs(new String[] { "grid" }, 0));
+		restore();
+		int reopened = checkPlaces(index, checked);
+		long records = index.getGrid().getRecords();
+		index.close();
+		System.out.println("\nAfter " + deletes + " deletes, " + moves + " moves and compaction " + wrong + " of "
+				+ checked.length + " places differ from a scan, " + reopened + " after reopening(" + records
+				+ " records in the grid for " + (eids.length - deletes) + ").");
+	}
+
+	//Runs the query around every center rounds times. Returns the best ns, the records and a checksum of their EIDs in order.
+	private static long[] timePlaces(IndexBin index, double[][] centers, String kind, double size, int rounds) {
+		long best = Long.MAX_VALUE;
+		long[] found = new long[3];
+		Consumer<RecordView> count = view -> {
+			found[1]++;
+			found[2] = found[2] * 31 + view.getEid();
+		};
+		for (int r = 0; r < rounds; r++) {
+			Arrays.fill(found, 0);
+			long start = System.nanoTime();
+			for (double[] center : centers) {
+				if (kind.equals("box")) {
+					index.forEachInBox(center[0] - size / 2, center[1] - size / 2, center[0] + size / 2, center[1] + size / 2, count);
+				} else if (kind.equals("within")) {
+					index.forEachWithin(center[0], center[1], size, count);
+				} else {
+					index.forEachNearest(center[0], center[1], (int) size, count);
+				}
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		found[0] = best;
+		return found;
+	}
+
+	//Counts the places whose 1 degree box, records within 50 km or 10 closest records differ from a scan of the .bin.
+	private static int checkPlaces(IndexBin index, double[][] centers) {
+		int wrong = 0;
+		for (double[] center : centers) {
+			ArrayList<Integer> boxed = new ArrayList<Integer>();
+			index.forEachInBox(center[0] - 0.5, center[1] - 0.5, center[0] + 0.5, center[1] + 0.5, view -> boxed.add(view.getEid()));
+			ArrayList<Integer> near = new ArrayList<Integer>();
+			index.forEachWithin(center[0], center[1], 50, view -> near.add(view.getEid()));
+			ArrayList<Integer> closest = new ArrayList<Integer>();
+			index.forEachNearest(center[0], center[1], 10, view -> closest.add(view.getEid()));
+
+			ArrayList<Integer> scannedBox = new ArrayList<Integer>();
+			ArrayList<Integer> scannedNear = new ArrayList<Integer>();
+			ArrayList<double[]> all = new ArrayList<double[]>();
+			index.forEachRecord(view -> {
+				double lat = view.getLat();
+				double lon = view.getLon();
+				if (lat >= center[0] - 0.5 && lat <= center[0] + 0.5 && lon >= center[1] - 0.5 && lon <= center[1] + 0.5) {
+					scannedBox.add(view.getEid());
+				}
+				double away = SpatialGrid.distance(center[0], center[1], lat, lon);
+				if (away <= 50) {
+					scannedNear.add(view.getEid());
+				}
+				all.add(new double[] { away, view.getEid() });
+			});
+			//The sort is stable, so equal distances stay in record order like the grid returns them.
+			all.sort((a, b) -> Double.compare(a[0], b[0]));
+			ArrayList<Integer> scannedClosest = new ArrayList<Integer>();
+			for (int i = 0; i < Math.min(10, all.size()); i++) {
+				scannedClosest.add((int) all.get(i)[1]);
+			}
+			if (!boxed.equals(scannedBox) || !near.equals(scannedNear) || !closest.equals(scannedClosest)) {
+				wrong++;
+			}
+		}
+		return wrong;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method benchColumns(path, rounds)
+	|
+	|  Purpose:  Measures the column files. The bulk load is timed with and without them. Then
+	|            three scans that need few fields(the AC capacity totalled by state, the plants
+	|            counted by whole GHI and the plants north of 40 degrees over 50 MW AC) are run
+	|            through forEachRow() with the columns and without them(a scan of the .bin,
+	|            best of rounds, both storage modes), with the bytes each scan reads, and both
+	|            must give the same answer. Last, a copy of the .bin is built with "columns" and
+	|            "write", a third of its once-only EIDs are deleted, a tenth of the rest given a
+	|            new AC capacity and the copy compacted: the scans must match a scan of the .bin
+	|            before closing and after the index is opened again.
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: path-compact.bin, lhl.idx and its column files hold the compacted copy.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              rounds - how many times each measurement is repeated.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void benchColumns(String path, int rounds) {
+		int[] eids = readEIDs(path);
+		System.out.println("Column scans over the " + eids.length + " records of " + path + ".bin\n");
+		long plain = timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk" }, 0), rounds);
+		long withColumns = timeBuild(path, IndexSettings.fromArgs(new String[] { "bulk", "columns" }, 0), rounds);
+		long bytes = 0;
+		for (String column : ColumnStore.COLUMNS) {
+			bytes += new File("lhl.idx.col." + column).length();
+		}
+		System.out.printf("bulk load %10.2f ms without, %10.2f ms with the columns(%+.1f%%), %8d KiB of columns%n%n", plain / 1e6,
+				withColumns / 1e6, 100.0 * (withColumns - plain) / plain, bytes / 1024);
+
+		String[] queries = { "capAc by state", "count by ghi", "north and large" };
+		long binBytes = new File(path + ".bin").length();
+		System.out.printf("%-7s %-16s %12s %12s %9s %12s %12s %7s%n", "storage", "query", "scan us", "columns us", "speedup",
+				"scan KiB", "columns KiB", "wrong");
+		for (String storage : new String[] { "RAF", "mapped" }) {
+			String[] words = storage.equals("mapped") ? new String[] { "mapped" } : new String[0];
+			silence();
+			IndexBin scanned = new IndexBin(path, "lhl.idx", IndexSettings.fromArgs(words, 0));
+			IndexSettings settings = IndexSettings.fromArgs(words, 0);
+			settings.setColumns(true);
+			IndexBin columned = new IndexBin(path, "lhl.idx", settings);
+			restore();
+			ColumnStore store = columned.getColumns();
+			for (int q = 0; q < queries.length; q++) {
+				String[] scanAnswer = new String[1];
+				String[] columnAnswer = new String[1];
+				long scan = timeRows(scanned, q, rounds, scanAnswer);
+				long read = store.getBytesRead();
+				long columns = timeRows(columned, q, rounds, columnAnswer);
+				read = (store.getBytesRead() - read) / rounds;
+				System.out.printf("%-7s %-16s %12.2f %12.2f %8.1fx %12d %12d %7d%n", storage, queries[q], scan / 1e3, columns / 1e3,
+						(double) scan / columns, binBytes / 1024, read / 1024, scanAnswer[0].equals(columnAnswer[0]) ? 0 : 1);
+			}
+			scanned.close();
+			columned.close();
+		}
+
+		//Deletes, updates and compaction on a copy, checked against a scan before and after reopening.
+		HashMap<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		for (int eid : eids) {
+			counts.merge(eid, 1, Integer::sum);
+		}
+		int[] singles = Arrays.stream(eids).filter(eid -> counts.get(eid) == 1).toArray();
+		String copy = new File(path).getName() + "-compact";
+		IndexBin index = openCopy(path, copy, "columns");
+		int deletes = singles.length / 3;
+		for (int i = 0; i < deletes; i++) {
+			index.delete(singles[i]);
+		}
+		int updates = Math.max(1, (singles.length - deletes) / 10);
+		for (int i = 0; i < updates; i++) {
+			Record record = index.lookup(singles[deletes + i]);
+			record.setCapAc(record.getCapAc() + 60);
+			index.update(record);
+		}
+		index.compact();
+		int wrong = checkRows(index);
+		index.close();
+		silence();
+		index = new IndexBin(copy, "lhl.idx", IndexSettings.fromArgs(new String[] { "columns" }, 0));
+		restore();
+		int reopened = checkRows(index);
+		long rows = index.getColumns().getRows();
+		index.close();
+		System.out.println("\nAfter " + deletes + " deletes, " + updates + " updates and compaction " + wrong + " of "
+				+ queries.length + " scans differ from a scan of the .bin, " + reopened + " after reopening(" + rows
+				+ " rows in the columns for " + (eids.length - deletes) + " records).");
+	}
+
+	//Runs scan q through forEachRow() rounds times. Returns the best ns and leaves the answer in answer[0].
+	private static long timeRows(IndexBin index, int q, int rounds, String[] answer) {
+		long best = Long.MAX_VALUE;
+		for (int r = 0; r < rounds; r++) {
+			long start = System.nanoTime();
+			answer[0] = runRows(index, q);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	//Scan q of benchColumns() through forEachRow(), the answer is returned as text so two can be compared.
+	private static String runRows(IndexBin index, int q) {
+		if (q == 0) {
+			TreeMap<String, Double> totals = new TreeMap<String, Double>();
+			index.forEachRow(new String[] { "state", "capAc" }, row -> totals.merge(row.getState(), row.getCapAc(), Double::sum));
+			return totals.toString();
+		} else if (q == 1) {
+			TreeMap<Integer, Integer> histogram = new TreeMap<Integer, Integer>();
+			index.forEachRow(new String[] { "ghi" }, row -> histogram.merge((int) Math.floor(row.getGhi()), 1, Integer::sum));
+			return histogram.toString();
+		}
+		long[] found = new long[1];
+		index.forEachRow(new String[] { "lat", "capAc" }, row -> {
+			if (row.getLat() > 40 && row.getCapAc() > 50) {
+				found[0]++;
+			}
+		});
+		return Long.toString(found[0]);
+	}
+
+	//Counts the scans of benchColumns() that differ from the same scans done with RecordView over the .bin.
+	private static int checkRows(IndexBin index) {
+		TreeMap<String, Double> totals = new TreeMap<String, Double>();
+		TreeMap<Integer, Integer> histogram = new TreeMap<Integer, Integer>();
+		long[] found = new long[1];
+		index.forEachRecord(view -> {
+			totals.merge(view.getState(), view.getCapAc(), Double::sum);
+			histogram.merge((int) Math.floor(view.getGhi()), 1, Integer::sum);
+			if (view.getLat() > 40 && view.getCapAc() > 50) {
+				found[0]++;
+			}
+		});
+		String[] scanned = { totals.toString(), histogram.toString(), Long.toString(found[0]) };
+		int wrong = 0;
+		for (int q = 0; q < scanned.length; q++) {
+			if (!runRows(index, q).equals(scanned[q])) {
+				wrong++;
+			}
+		}
+		return wrong;
+	}
+
+	//Copies the .bin to copy.bin and bulk loads it for writing, with any other options given.
+	private static IndexBin openCopy(String path, String copy, String... options) {
+		try {
+			Files.copy(Paths.get(path + ".bin"), Paths.get(copy + ".bin"), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't copy " + path + ".bin.");
+			System.exit(-1);
+		}
+		silence();
+		ArrayList<String> words = new ArrayList<String>(Arrays.asList("bulk", "write"));
+		words.addAll(Arrays.asList(options));
+		IndexBin index = new IndexBin(copy, IndexSettings.fromArgs(words.toArray(new String[0]), 0));
+		restore();
+		return index;
+	}
+
+	//Counts in wrong the updated records that no longer read back with their new AC capacity.
+	private static void checkUpdates(IndexBin index, Record[] changed, int[] wrong) {
+		for (Record record : changed) {
+			Record found = index.lookup(record.getEid());
+			if (found == null || found.getCapAc() != record.getEid()) {
+				wrong[0]++;
+			}
+		}
+	}
+
+	//Looks up every EID once, counting in wrong the deleted ones found and the others missing or not updated. Returns ns per lookup.
+	private static long timeLookups(IndexBin index, int[] all, HashSet<Integer> deleted, int[] wrong) {
+		long start = System.nanoTime();
+		for (int eid : all) {
+			Record record = index.lookup(eid);
+			if ((record == null) != deleted.contains(eid) || (record != null && record.getEid() != eid)) {
+				wrong[0]++;
+			}
+		}
+		return (System.nanoTime() - start) / Math.max(1, all.length);
+	}
+
+	//Builds the index rounds times and returns the fastest build in nanoseconds.
+	private static long timeBuild(String path, IndexSettings settings, int rounds) {
+		long best = Long.MAX_VALUE;
+		for (int r = 0; r < rounds; r++) {
+			long start = System.nanoTime();
+			silence();
+			IndexBin built = new IndexBin(path, settings);
+			built.close();
+			restore();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method readEIDs(path)
+	|
+	|  Purpose:  Reads the EID of every Record in the .bin, in file order, using the same
+	|            trailing max length ints as IndexBin.aquireMaxVals().
+	|
+	|  Pre-condition: path names an existing .bin file without its extension.
+	|
+	|  Post-condition: None
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|
+	|  Returns: the EIDs of the .bin.
+	*-------------------------------------------------------------------*/
+	public static int[] readEIDs(String path) {
+		int[] eids = new int[0];
+		try {
+			RandomAccessFile bin = new RandomAccessFile(path + ".bin", "r");
+			bin.seek(bin.length() - 12);
+			int maxName = bin.readInt();
+			int maxCOD = bin.readInt();
+			int maxState = bin.readInt();
+			int recordLen = maxName + maxCOD + maxState + 44;
+			eids = new int[(int) (bin.length() / recordLen)];
+			for (int i = 0; i < eids.length; i++) {
+				bin.seek((long) i * recordLen);
+				eids[i] = bin.readInt();
+			}
+			bin.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the EIDs from " + path + ".bin");
+			System.exit(-1);
+		}
+		return eids;
+	}
+
+	//Hides the statistics IndexBin prints while it is being timed.
+	public static void silence() {
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	public static void restore() {
+		System.setOut(console);
+	}
+}
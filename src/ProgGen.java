@@ -0,0 +1,288 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/*+----------------------------------------------------------------------
+||
+||  Class ProgGen
+||
+||            Author: Todd Noecker
+||
+||  Language and IDE: Java v16.0 written in Eclipse v2021
+||
+||        Objectives:  This program writes synthetic .bin files in exactly the layout Record.writeToBin
+||                     produces, trailing max field lengths included, so Prog21, Prog22 and ProgBench can be
+||                     run on millions of records instead of the 967 solar plants. The EIDs follow one of
+||                     these distributions:
+||
+||                     sequential  - 1, 2, 3, ... n.
+||                     uniform     - n distinct EIDs spread evenly over 1 to 2^31 - 1.
+||                     zipf[=s]    - n draws from n distinct EIDs where the k-th most common appears
+||                                   about 1/k^s as often as the first(s defaults to 1.0), so the hot
+||                                   EIDs repeat and their buckets overflow.
+||                     clustered   - distinct EIDs in dense runs of 256 to 1023 consecutive values,
+||                                   like ID ranges handed out in blocks.
+||                     adversarial - distinct multiples of the largest power of two that still fits n
+||                                   EIDs, so every EID hashes to bucket 0 until the index has that
+||                                   many buckets.
+||
+||                     The other fields are random but plausible(a US state, a date, a location inside
+||                     the US and capacities), and everything is derived from the seed so the same
+||                     arguments always write the same file.
+||
+||             Usage:  java ProgGen <bin path without .bin> <records> <distribution> [seed]
+||
+||           Issues:   Zipf EIDs repeat, a lookup finds the first record with the EID.
+||
+++-----------------------------------------------------------------------*/
+public class ProgGen {
+
+	private static int MAXNAME = 32; //The name field length, room for "Synthetic Plant " and any record number.
+	private static int MAXCOD = 10; //The COD field length, MM/DD/YYYY.
+	private static int MAXSTATE = 2; //The state field length.
+	private static int RECORDLEN = MAXNAME + MAXCOD + MAXSTATE + 44; //An int EID and 5 doubles besides the Strings.
+	private static int WRITESIZE = 1 << 20; //The bytes buffered before each write.
+	private static int MASK = 0x7FFFFFFF; //The 31 bits of a positive EID.
+	private static int MAXRECORDS = 1 << 29; //The most records any distribution can give distinct EIDs.
+	private static String[] STATES = { "AL", "AZ", "AR", "CA", "CO", "CT", "DE", "FL", "GA", "ID", "IL", "IN", "IA",
+			"KS", "KY", "LA", "ME", "MD", "MA", "MI", "MN", "MS", "MO", "MT", "NE", "NV", "NH", "NJ", "NM", "NY", "NC",
+			"ND", "OH", "OK", "OR", "PA", "RI", "SC", "SD", "TN", "TX", "UT", "VT", "VA", "WA", "WV", "WI", "WY" };
+
+	private static int multiplier1; //The odd multipliers of the EID permutation, chosen from the seed.
+	private static int multiplier2;
+
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.out.println("Usage: java ProgGen <bin path without .bin> <records> "
+					+ "<sequential|uniform|zipf[=s]|clustered|adversarial> [seed]");
+			System.exit(-1);
+		}
+		long records = 0;
+		long seed = 460;
+		try {
+			records = Long.parseLong(args[1]);
+			if (args.length > 3) {
+				seed = Long.parseLong(args[3]);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("The record count and seed must be whole numbers.");
+			System.exit(-1);
+		}
+		//Distinct EIDs must fit in 31 bits, and clustered runs of at least 256 in 21 bits of cluster.
+		if (records < 0 || records > MAXRECORDS) {
+			System.out.println("The record count must be between 0 and " + MAXRECORDS);
+			System.exit(-1);
+		}
+		String distribution = args[2].toLowerCase();
+		double exponent = 1.0;
+		if (distribution.startsWith("zipf=")) {
+			try {
+				exponent = Double.parseDouble(distribution.substring(5));
+			} catch (NumberFormatException e) {
+				System.out.println("Ignoring zipf exponent " + distribution);
+			}
+			distribution = "zipf";
+		}
+		if (!distribution.equals("sequential") && !distribution.equals("uniform") && !distribution.equals("zipf")
+				&& !distribution.equals("clustered") && !distribution.equals("adversarial")) {
+			System.out.println("Unknown distribution " + args[2]);
+			System.exit(-1);
+		}
+
+		long start = System.nanoTime();
+		writeBin(args[0], (int) records, distribution, exponent, seed);
+		System.out.printf("Wrote %d %s records to %s.bin in %.2f s%n", records, distribution, args[0],
+				(System.nanoTime() - start) / 1e9);
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method writeBin(path, records, distribution, exponent, seed)
+	|
+	|  Purpose:  Writes the records WRITESIZE bytes at a time, then the three max field lengths
+	|            in the order Record.writeToBin writes them(name, COD, state).
+	|
+	|  Pre-condition: The distribution is one of the known names.
+	|
+	|  Post-condition: path.bin holds the records and the trailing ints.
+	|
+	|  Parameters: path - the .bin file without its extension.
+	|              records - the number of records.
+	|              distribution - how the EIDs are chosen.
+	|              exponent - the skew of the zipf distribution.
+	|              seed - the seed every random choice is derived from.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private static void writeBin(String path, int records, String distribution, double exponent, long seed) {
+		Random random = new Random(seed);
+		multiplier1 = random.nextInt() | 1;
+		multiplier2 = random.nextInt() | 1;
+		ZipfSampler zipf = new ZipfSampler(Math.max(1, records), exponent);
+		int stride = 1 << (31 - (32 - Integer.numberOfLeadingZeros(records)));
+		int cluster = 0;
+		int clusterLeft = 0;
+		int clusterOffset = 0;
+
+		try {
+			FileOutputStream file = new FileOutputStream(path + ".bin");
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(WRITESIZE);
+			for (int i = 0; i < records; i++) {
+				int eid = 0;
+				if (distribution.equals("sequential")) {
+					eid = i + 1;
+				} else if (distribution.equals("uniform")) {
+					eid = permute(i + 1, MASK);
+				} else if (distribution.equals("zipf")) {
+					eid = permute((int) zipf.sample(random), MASK);
+				} else if (distribution.equals("clustered")) {
+					if (clusterLeft == 0) {
+						cluster++;
+						clusterLeft = 256 + random.nextInt(768);
+						clusterOffset = 0;
+					}
+					//21 bits of cluster and 10 bits of offset, the offset never reaches 1024.
+					eid = (permute(cluster, 0x1FFFFF) << 10) + clusterOffset + 1;
+					clusterOffset++;
+					clusterLeft--;
+				} else {
+					eid = (i + 1) * stride;
+				}
+
+				if (buffer.remaining() < RECORDLEN) {
+					write(channel, buffer);
+				}
+				randomRecord(eid, i, random).writeToBin(buffer, MAXNAME, MAXSTATE, MAXCOD);
+			}
+			if (buffer.remaining() < 12) {
+				write(channel, buffer);
+			}
+			buffer.putInt(MAXNAME);
+			buffer.putInt(MAXCOD);
+			buffer.putInt(MAXSTATE);
+			write(channel, buffer);
+			file.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write to the file;\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	//Fills every field but the EID with random plausible values.
+	private static Record randomRecord(int eid, int number, Random random) {
+		Record record = new Record(eid);
+		record.setName("Synthetic Plant " + number);
+		record.setCod(String.format("%02d/%02d/%04d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+				1985 + random.nextInt(37)));
+		record.setState(STATES[random.nextInt(STATES.length)]);
+		record.setLat(25 + random.nextDouble() * 24);
+		record.setLon(-124 + random.nextDouble() * 57);
+		record.setGhi(3 + random.nextDouble() * 4);
+		double capAc = 1 + random.nextDouble() * 300;
+		record.setCapAc(capAc);
+		record.setCapDc(capAc * (1.1 + random.nextDouble() * 0.3));
+		return record;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method permute(value, mask)
+	|
+	|  Purpose:  Scrambles value inside the bits of mask(a power of two minus one). Odd
+	|            multiplications and right xor shifts can both be undone, so distinct values
+	|            stay distinct and 0 is the only value mapped to 0.
+	|
+	|  Pre-condition: value fits in mask.
+	|
+	|  Post-condition: None
+	|
+	|  Parameters: value - the value to scramble.
+	|              mask - the bits the result must fit in.
+	|
+	|  Returns: the scrambled value.
+	*-------------------------------------------------------------------*/
+	private static int permute(int value, int mask) {
+		int bits = 32 - Integer.numberOfLeadingZeros(mask);
+		value = (value * multiplier1) & mask;
+		value = value ^ (value >>> (bits / 2));
+		value = (value * multiplier2) & mask;
+		value = value ^ (value >>> (bits / 2 + 1));
+		return value;
+	}
+
+	/*+----------------------------------------------------------------------
+	||
+	||  Class ZipfSampler
+	||
+	||        Purpose:  Draws ranks 1 to n where rank k has probability proportional to 1/k^s,
+	||                  using the rejection inversion method of Hormann and Derflinger so nothing
+	||                  of size n is kept in memory.
+	||
+	++-----------------------------------------------------------------------*/
+	private static class ZipfSampler {
+
+		private long n; //The number of ranks.
+		private double exponent; //The skew s.
+		private double hIntegralX1; //H(1.5) - 1, one end of the sampled range.
+		private double hIntegralN; //H(n + 0.5), the other end.
+		private double cutoff; //Ranks this close to their inverse are accepted without the test.
+
+		private ZipfSampler(long n, double exponent) {
+			this.n = n;
+			this.exponent = exponent;
+			this.hIntegralX1 = hIntegral(1.5) - 1.0;
+			this.hIntegralN = hIntegral(n + 0.5);
+			this.cutoff = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+		}
+
+		private long sample(Random random) {
+			while (true) {
+				double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+				if (k - x <= cutoff || u >= hIntegral(k + 0.5) - h(k)) {
+					return k;
+				}
+			}
+		}
+
+		private double h(double x) {
+			return Math.exp(-exponent * Math.log(x));
+		}
+
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return expm1OverX((1.0 - exponent) * logX) * logX;
+		}
+
+		private double hIntegralInverse(double x) {
+			double t = Math.max(-1.0, x * (1.0 - exponent));
+			return Math.exp(log1pOverX(t) * x);
+		}
+
+		//expm1(x) / x, with its series near 0 where the division loses precision.
+		private static double expm1OverX(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.expm1(x) / x;
+			}
+			return 1.0 + x / 2.0 * (1.0 + x / 3.0 * (1.0 + x / 4.0));
+		}
+
+		//log1p(x) / x, with its series near 0 where the division loses precision.
+		private static double log1pOverX(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.log1p(x) / x;
+			}
+			return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+		}
+	}
+}
@@ -0,0 +1,144 @@
+import java.nio.ByteBuffer;
+import java.util.Formatter;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class RecordView
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a window onto one record of the .bin that is
+ ||                  already in a ByteBuffer(a mapping of the .bin or a reused read buffer).
+ ||                  Nothing is decoded up front: each getter reads its field at a fixed offset
+ ||                  computed from the max field lengths, and only the String getters create
+ ||                  objects. wrap() moves the same object onto another record, so a scan or a
+ ||                  stream of lookups can look at as many records as it likes with one view.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  Takes the lengths of the name, COD and state fields in the order they
+ ||                  are stored in a record.
+ ||
+ ||  Class Methods:  public RecordView wrap()
+ ||                  public int getEid()
+ ||                  public String getName()
+ ||                  public String getCod()
+ ||                  public String getState()
+ ||                  public double getLat()
+ ||                  public double getLon()
+ ||                  public double getGhi()
+ ||                  public double getCapAc()
+ ||                  public double getCapDc()
+ ||                  public Record toRecord()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class RecordView {
+
+	private ByteBuffer buffer; //The bytes holding the record, not owned by the view.
+	private int base; //The index of the record's first byte in the buffer.
+	private int nameLength; //The field lengths, as Record.writeToBin lays the fields out.
+	private int codLength;
+	private int stateLength;
+	private int doubles; //The offset of lat, the first of the five doubles after the Strings.
+
+	public RecordView(int nameLength, int codLength, int stateLength) {
+		this.nameLength = nameLength;
+		this.codLength = codLength;
+		this.stateLength = stateLength;
+		this.doubles = 4 + nameLength + codLength + stateLength;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method wrap(buffer, base)
+	|
+	|  Purpose:  Points the view at the record starting at base in the buffer. The buffer's
+	|            position and limit are never used or changed, so one buffer may be shared by
+	|            views on several threads.
+	|
+	|  Pre-condition:  The whole record must be inside the buffer.
+	|
+	|  Post-condition: The getters read the new record.
+	|
+	|  Parameters: buffer - the bytes holding the record.
+	|              base - the index of the record's first byte.
+	|
+	|  Returns: this view, so a wrap can be used inline.
+	*-------------------------------------------------------------------*/
+	public RecordView wrap(ByteBuffer buffer, int base) {
+		this.buffer = buffer;
+		this.base = base;
+		return this;
+	}
+
+	public int getEid() {
+		return buffer.getInt(base);
+	}
+
+	public String getName() {
+		return field(4, nameLength);
+	}
+
+	public String getCod() {
+		return field(4 + nameLength, codLength);
+	}
+
+	public String getState() {
+		return field(4 + nameLength + codLength, stateLength);
+	}
+
+	public double getLat() {
+		return buffer.getDouble(base + doubles);
+	}
+
+	public double getLon() {
+		return buffer.getDouble(base + doubles + 8);
+	}
+
+	public double getGhi() {
+		return buffer.getDouble(base + doubles + 16);
+	}
+
+	public double getCapAc() {
+		return buffer.getDouble(base + doubles + 24);
+	}
+
+	public double getCapDc() {
+		return buffer.getDouble(base + doubles + 32);
+	}
+
+	//Builds the String of one field the same way Record.readEntry does.
+	private String field(int offset, int length) {
+		byte[] bytes = new byte[length];
+		buffer.get(base + offset, bytes);
+		return new String(bytes);
+	}
+
+	//Decodes every field into a Record, for callers that need to keep it after the next wrap().
+	public Record toRecord() {
+		Record record = new Record(getEid());
+		record.setName(getName());
+		record.setCod(getCod());
+		record.setState(getState());
+		record.setLat(getLat());
+		record.setLon(getLon());
+		record.setGhi(getGhi());
+		record.setCapAc(getCapAc());
+		record.setCapDc(getCapDc());
+		return record;
+	}
+
+	//The same text as Record.toString(), reading only the three fields it prints.
+	public String toString() {
+		Formatter formatter = new Formatter();
+		return "[" + getEid() + "] [" + getName() + "] [" + formatter.format("%.2f", getCapAc()) + "]\n";
+	}
+}
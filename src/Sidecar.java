@@ -0,0 +1,40 @@
+/*+----------------------------------------------------------------------
+ ||
+ ||  Interface Sidecar
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  Implemented by the indexes IndexBin derives from the .bin and saves next to
+ ||                  lhl.idx(StateIndex, EIDTree, SpatialGrid and ColumnStore). Each records the
+ ||                  length and fingerprint of the .bin it was built from, so a stale one is never
+ ||                  used, and IndexBin keeps every one of them in step with the .bin the same way:
+ ||                  a saved one is opened when it still describes the .bin, the first change marks
+ ||                  it stale and close() saves it again for the .bin as it then is.
+ ||
+ ||  Inherits From:  None.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||  Class Methods:  public boolean describes()
+ ||                  public boolean write()
+ ||                  public boolean stale()
+ ||                  public T writable()
+ ||                  public void close()
+ ||
+ ++-----------------------------------------------------------------------*/
+public interface Sidecar<T extends Sidecar<T>> {
+
+	//True when it was saved for a .bin of this length and fingerprint.
+	boolean describes(long length, long fingerprint);
+
+	//Saves what it holds in memory at path for a .bin of this length and fingerprint. False when it only lives in its files, so it has to be built again from the .bin.
+	boolean write(String path, long length, long fingerprint);
+
+	//Called before the first change to the .bin, so the copy saved at path never looks current after a crash. False when that closed it, until it is built again.
+	boolean stale(String path);
+
+	//The one a writable index changes: itself, or a copy in memory of one read from its file.
+	T writable();
+
+	void close();
+}
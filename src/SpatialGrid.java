@@ -0,0 +1,649 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*+----------------------------------------------------------------------
+ ||
+ ||  Class SpatialGrid
+ ||
+ ||         Author:  Todd Noecker
+ ||
+ ||        Purpose:  An object of this class is a spatial index over the latitude and longitude
+ ||                  of the records in the .bin. The box around every plant is cut into a fixed
+ ||                  grid of rows(latitude) by columns(longitude) sized so a cell holds about
+ ||                  PERCELL records, and every cell keeps the record numbers in it together with
+ ||                  their coordinates. A query only reads the cells it overlaps and tests the
+ ||                  coordinates kept with the entries, so it returns exactly the record numbers
+ ||                  wanted and no record of the .bin has to be read to find them. The edge cells
+ ||                  also hold every point beyond the box, so a record moved outside it by an
+ ||                  update is still found. It is built in memory and saved next to the index
+ ||                  (lhl.idx.grid): the first entry of every cell, then the entries cell by cell
+ ||                  in row order, so the cells of one row of a query are read with one read. A
+ ||                  grid read from a file only keeps the first entries in memory. The file records
+ ||                  the length and fingerprint of the .bin it was built from, so a stale one is
+ ||                  never used.
+ ||
+ ||  Inherits From:  None.
+ ||
+ ||     Interfaces:  Sidecar.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||      Constants:  MAGIC - the first int of a saved grid.
+ ||                  PERCELL - the records a cell holds on average when built.
+ ||                  MAXCELLS - the most cells a grid is cut into.
+ ||                  HEADERSIZE - the bytes in front of the first entries of a saved grid.
+ ||                  ENTRYSIZE - the bytes of one saved entry.
+ ||                  EARTHRADIUS - the mean radius of the Earth in km.
+ ||
+ |+-----------------------------------------------------------------------
+ ||
+ ||   Constructors:  None public. build() builds a grid in memory and read() opens a saved one.
+ ||
+ ||  Class Methods:  public static SpatialGrid build()
+ ||                  public SpatialGrid writable()
+ ||                  private int rowOf()
+ ||                  private int colOf()
+ ||                  public void add()
+ ||                  public boolean remove()
+ ||                  public void move()
+ ||                  public int[] box()
+ ||                  public int[] within()
+ ||                  public int[] nearest()
+ ||                  private void around()
+ ||                  private void scan()
+ ||                  public static double distance()
+ ||                  public long getRecords()
+ ||                  public int getCells()
+ ||                  public boolean describes()
+ ||                  public boolean write()
+ ||                  public boolean stale()
+ ||                  public static SpatialGrid read()
+ ||                  public void close()
+ ||                  public String toString()
+ ||
+ ++-----------------------------------------------------------------------*/
+public class SpatialGrid implements Sidecar<SpatialGrid> {
+
+	private static int MAGIC = 0x47524944; //"GRID", marks a saved grid.
+	private static int PERCELL = 8; //About one small read of entries per cell.
+	private static int MAXCELLS = 1 << 22; //Keeps the first entries of a huge .bin within 16 MiB.
+	private static int HEADERSIZE = 64; //MAGIC, length, fingerprint, rows, cols, the four doubles of the cells and the entry count.
+	private static int ENTRYSIZE = 20; //The record number, latitude and longitude of one saved entry.
+	public static double EARTHRADIUS = 6371.0088; //The mean radius of the Earth in km, used by distance().
+
+	private int rows; //The cells of the grid, rows of latitude by columns of longitude.
+	private int cols;
+	private double minLat; //The south west corner of the box the grid was built over.
+	private double minLon;
+	private double cellLat; //The degrees of latitude and longitude each cell covers.
+	private double cellLon;
+	private int[][] cells; //The record numbers in each cell when built in memory, null when read from a file.
+	private int[] counts; //The entries of each cell used in memory.
+	private double[] lats; //The coordinates of every record number in memory, NaN for one not in the grid.
+	private double[] lons;
+	private int[] starts; //The first entry of each cell in the file, one more for the end, null when in memory.
+	private FileChannel file; //The saved grid the entries are read from, null when in memory.
+	private long records; //The entries of every cell together.
+	private long binLength; //The length and fingerprint of the .bin a read grid was saved for.
+	private long binFingerprint;
+	private LongAdder queries = new LongAdder(); //Calls of box(), within() and nearest().
+	private LongAdder entriesRead = new LongAdder(); //The entries those calls tested.
+
+	private SpatialGrid(int rows, int cols, double minLat, double minLon, double cellLat, double cellLon) {
+		this.rows = rows;
+		this.cols = cols;
+		this.minLat = minLat;
+		this.minLon = minLon;
+		this.cellLat = cellLat;
+		this.cellLon = cellLon;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method build(lats, lons, count)
+	|
+	|  Purpose:  Builds a grid in memory over the box holding every point. The box is cut into
+	|            about count / PERCELL cells, with rows and columns in the proportion of its
+	|            height and width so the cells come out close to square in degrees. Every point
+	|            is then added in record order.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: lats - the latitude of every record number, NaN for a record left out.
+	|              lons - the longitude of every record number.
+	|              count - the record numbers used at the front of both.
+	|
+	|  Returns: the grid.
+	*-------------------------------------------------------------------*/
+	public static SpatialGrid build(double[] lats, double[] lons, int count) {
+		double south = Double.POSITIVE_INFINITY;
+		double north = Double.NEGATIVE_INFINITY;
+		double west = Double.POSITIVE_INFINITY;
+		double east = Double.NEGATIVE_INFINITY;
+		int points = 0;
+		for (int i = 0; i < count; i++) {
+			if (!Double.isNaN(lats[i]) && !Double.isNaN(lons[i])) {
+				south = Math.min(south, lats[i]);
+				north = Math.max(north, lats[i]);
+				west = Math.min(west, lons[i]);
+				east = Math.max(east, lons[i]);
+				points++;
+			}
+		}
+		if (points == 0) {
+			south = 0;
+			north = 0;
+			west = 0;
+			east = 0;
+		}
+		//A box with no height or width still gets cells of some size.
+		double height = Math.max(north - south, 1e-9);
+		double width = Math.max(east - west, 1e-9);
+		int wanted = Math.max(1, Math.min(MAXCELLS, points / PERCELL));
+		int rows = (int) Math.max(1, Math.min(wanted, Math.round(Math.sqrt(wanted * height / width))));
+		int cols = Math.max(1, wanted / rows);
+		SpatialGrid grid = new SpatialGrid(rows, cols, south, west, height / rows, width / cols);
+		grid.cells = new int[rows * cols][];
+		grid.counts = new int[rows * cols];
+		grid.lats = new double[Math.max(16, count)];
+		grid.lons = new double[Math.max(16, count)];
+		Arrays.fill(grid.lats, Double.NaN);
+		Arrays.fill(grid.lons, Double.NaN);
+		for (int i = 0; i < count; i++) {
+			grid.add(i, lats[i], lons[i]);
+		}
+		return grid;
+	}
+
+	//A grid read from a file copied into memory with the same cells, so records can be added and removed.
+	public SpatialGrid writable() {
+		if (file == null) {
+			return this;
+		}
+		SpatialGrid grid = new SpatialGrid(rows, cols, minLat, minLon, cellLat, cellLon);
+		grid.cells = new int[rows * cols][];
+		grid.counts = new int[rows * cols];
+		grid.lats = new double[16];
+		grid.lons = new double[16];
+		Arrays.fill(grid.lats, Double.NaN);
+		Arrays.fill(grid.lons, Double.NaN);
+		ByteBuffer entries = ByteBuffer.allocate((int) records * ENTRYSIZE);
+		try {
+			IndexFile.readAt(file, HEADERSIZE + 4L * starts.length, entries);
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the entries of the spatial grid.");
+			System.exit(-1);
+		}
+		entries.flip();
+		while (entries.hasRemaining()) {
+			grid.add(entries.getInt(), entries.getDouble(), entries.getDouble());
+		}
+		return grid;
+	}
+
+	//The row holding the latitude, the edge rows hold everything beyond the box.
+	private int rowOf(double lat) {
+		return (int) Math.max(0, Math.min(rows - 1, Math.floor((lat - minLat) / cellLat)));
+	}
+
+	//The column holding the longitude, the edge columns hold everything beyond the box.
+	private int colOf(double lon) {
+		return (int) Math.max(0, Math.min(cols - 1, Math.floor((lon - minLon) / cellLon)));
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method add(record, lat, lon)
+	|
+	|  Purpose:  Adds the record number to the cell holding the point. A record without both
+	|            coordinates can never be found by a query and is left out.
+	|
+	|  Pre-condition:  The grid is in memory, not read from a file.
+	|
+	|  Post-condition: The cell of the point holds the record once more.
+	|
+	|  Parameters: record - the record number in the .bin.
+	|              lat - its latitude.
+	|              lon - its longitude.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	public void add(int record, double lat, double lon) {
+		if (Double.isNaN(lat) || Double.isNaN(lon)) {
+			return;
+		}
+		if (record >= lats.length) {
+			int used = lats.length;
+			int grown = Math.max(record + 1, used * 2);
+			lats = Arrays.copyOf(lats, grown);
+			lons = Arrays.copyOf(lons, grown);
+			Arrays.fill(lats, used, grown, Double.NaN);
+			Arrays.fill(lons, used, grown, Double.NaN);
+		}
+		int cell = rowOf(lat) * cols + colOf(lon);
+		if (cells[cell] == null) {
+			cells[cell] = new int[4];
+		} else if (counts[cell] == cells[cell].length) {
+			cells[cell] = Arrays.copyOf(cells[cell], counts[cell] * 2);
+		}
+		cells[cell][counts[cell]] = record;
+		counts[cell]++;
+		lats[record] = lat;
+		lons[record] = lon;
+		records++;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method remove(record)
+	|
+	|  Purpose:  Takes the record number out of its cell. The coordinates kept for it give the
+	|            cell, so only the few entries of that cell are searched.
+	|
+	|  Pre-condition:  The grid is in memory, not read from a file.
+	|
+	|  Post-condition: No cell holds the record.
+	|
+	|  Parameters: record - the record number in the .bin.
+	|
+	|  Returns: true when a cell held it.
+	*-------------------------------------------------------------------*/
+	public boolean remove(int record) {
+		if (record < 0 || record >= lats.length || Double.isNaN(lats[record])) {
+			return false;
+		}
+		int cell = rowOf(lats[record]) * cols + colOf(lons[record]);
+		for (int i = 0; i < counts[cell]; i++) {
+			if (cells[cell][i] == record) {
+				cells[cell][i] = cells[cell][counts[cell] - 1];
+				counts[cell]--;
+				lats[record] = Double.NaN;
+				lons[record] = Double.NaN;
+				records--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//Moves the record number of the entry of from to to, where compaction copied the record.
+	public void move(int from, int to) {
+		if (from >= 0 && from < lats.length) {
+			double lat = lats[from];
+			double lon = lons[from];
+			if (remove(from)) {
+				add(to, lat, lon);
+			}
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method box(south, west, north, east)
+	|
+	|  Purpose:  Finds every record inside the box, edges included. Only the cells the box
+	|            overlaps are read, the entries of each row of them with one read from a file.
+	|            A west edge greater than the east edge is a box across the 180th meridian.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: south, west, north, east - the edges of the box in degrees.
+	|
+	|  Returns: the record numbers in ascending order.
+	*-------------------------------------------------------------------*/
+	public int[] box(double south, double west, double north, double east) {
+		queries.increment();
+		Hits hits = new Hits();
+		if (west <= east) {
+			scan(south, north, west, east, 0, 0, -1, hits);
+		} else {
+			scan(south, north, west, Double.POSITIVE_INFINITY, 0, 0, -1, hits);
+			scan(south, north, Double.NEGATIVE_INFINITY, east, 0, 0, -1, hits);
+		}
+		int[] found = Arrays.copyOf(hits.records, hits.size);
+		Arrays.sort(found);
+		return found;
+	}
+
+	//Every record no more than km from the point, in ascending order. Only the box around the circle is read.
+	public int[] within(double lat, double lon, double km) {
+		queries.increment();
+		Hits hits = new Hits();
+		around(lat, lon, km, hits);
+		int[] found = Arrays.copyOf(hits.records, hits.size);
+		Arrays.sort(found);
+		return found;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method nearest(lat, lon, k)
+	|
+	|  Purpose:  Finds the k records closest to the point. The records within a radius are
+	|            found as within() finds them, starting from about the radius of k / PERCELL
+	|            cells and doubling it until k records are inside(or the radius covers the whole
+	|            Earth). No record outside the radius can be closer than one inside, so the k
+	|            closest of those found are the k closest of all.
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: lat - the latitude of the point.
+	|              lon - its longitude.
+	|              k - the records wanted.
+	|
+	|  Returns: the record numbers, closest first(equal distances in ascending order), fewer
+	|           than k when the grid holds fewer.
+	*-------------------------------------------------------------------*/
+	public int[] nearest(double lat, double lon, int k) {
+		queries.increment();
+		if (k <= 0) {
+			return new int[0];
+		}
+		double km = Math.max(1, Math.toRadians(cellLat) * EARTHRADIUS * Math.sqrt(Math.max(1.0, (double) k / PERCELL)));
+		Hits hits = new Hits();
+		while (true) {
+			hits.size = 0;
+			around(lat, lon, km, hits);
+			if (hits.size >= k || km >= Math.PI * EARTHRADIUS) {
+				break;
+			}
+			km = km * 2;
+		}
+		Integer[] order = new Integer[hits.size];
+		double[] found = new double[hits.size];
+		for (int i = 0; i < hits.size; i++) {
+			order[i] = i;
+			found[i] = hits.distances[i];
+		}
+		Arrays.sort(order, (a, b) -> found[a] != found[b] ? Double.compare(found[a], found[b])
+				: Integer.compare(hits.records[a], hits.records[b]));
+		int[] closest = new int[Math.min(k, hits.size)];
+		for (int i = 0; i < closest.length; i++) {
+			closest[i] = hits.records[order[i]];
+		}
+		return closest;
+	}
+
+	//Scans the box around the circle of km around the point, split in two where it crosses the 180th meridian.
+	private void around(double lat, double lon, double km, Hits hits) {
+		double angle = km / EARTHRADIUS;
+		double south = lat - Math.toDegrees(angle);
+		double north = lat + Math.toDegrees(angle);
+		//A circle over a pole, or bigger than the Earth, takes every longitude.
+		if (angle >= Math.PI || south <= -90 || north >= 90) {
+			scan(south, north, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, lat, lon, km, hits);
+			return;
+		}
+		double reach = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(lat))));
+		double west = lon - reach;
+		double east = lon + reach;
+		scan(south, north, Math.max(west, -180), Math.min(east, 180), lat, lon, km, hits);
+		if (west < -180) {
+			scan(south, north, west + 360, 180, lat, lon, km, hits);
+		}
+		if (east > 180) {
+			scan(south, north, -180, east - 360, lat, lon, km, hits);
+		}
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method scan(south, north, west, east, lat, lon, km, hits)
+	|
+	|  Purpose:  Tests every entry of the cells the box overlaps and adds the ones inside it
+	|            (and within km of the point when km is not negative) to hits. From a file the
+	|            cells of one row of the box follow each other, so each row is one read.
+	|
+	|  Pre-condition:  west is not greater than east.
+	|
+	|  Post-condition: hits holds the records found after the ones it held.
+	|
+	|  Parameters: south, north, west, east - the edges of the box in degrees.
+	|              lat, lon - the point the distance is measured from.
+	|              km - the greatest distance, negative for the whole box.
+	|              hits - gets the record numbers and their distances.
+	|
+	|  Returns: None
+	*-------------------------------------------------------------------*/
+	private void scan(double south, double north, double west, double east, double lat, double lon, double km, Hits hits) {
+		if (south > north || west > east) {
+			return;
+		}
+		int firstCol = colOf(west);
+		int lastCol = colOf(east);
+		long tested = 0;
+		for (int row = rowOf(south); row <= rowOf(north); row++) {
+			if (file == null) {
+				for (int cell = row * cols + firstCol; cell <= row * cols + lastCol; cell++) {
+					for (int i = 0; i < counts[cell]; i++) {
+						int record = cells[cell][i];
+						hits.test(record, lats[record], lons[record], south, north, west, east, lat, lon, km);
+					}
+					tested = tested + counts[cell];
+				}
+				continue;
+			}
+			int from = starts[row * cols + firstCol];
+			int to = starts[row * cols + lastCol + 1];
+			if (from == to) {
+				continue;
+			}
+			ByteBuffer entries = hits.buffer(to - from);
+			try {
+				IndexFile.readAt(file, HEADERSIZE + 4L * starts.length + (long) from * ENTRYSIZE, entries);
+			} catch (IOException e) {
+				System.out.println("I/O ERROR: Couldn't read the entries of the spatial grid.");
+				System.exit(-1);
+			}
+			entries.flip();
+			while (entries.hasRemaining()) {
+				hits.test(entries.getInt(), entries.getDouble(), entries.getDouble(), south, north, west, east, lat, lon, km);
+			}
+			tested = tested + (to - from);
+		}
+		entriesRead.add(tested);
+	}
+
+	//The great circle distance in km between two points(the haversine formula).
+	public static double distance(double lat1, double lon1, double lat2, double lon2) {
+		double dLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+		double dLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+		double a = dLat * dLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * dLon * dLon;
+		return 2 * EARTHRADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public int getCells() {
+		return rows * cols;
+	}
+
+	//True when the grid was saved for a .bin of this length and fingerprint.
+	public boolean describes(long length, long fingerprint) {
+		return binLength == length && binFingerprint == fingerprint;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method write(path, length, fingerprint)
+	|
+	|  Purpose:  Saves the grid: MAGIC, the length and fingerprint of the .bin, the rows and
+	|            columns, the south west corner and size of a cell in degrees and the entry
+	|            count, then the first entry of every cell in row order(and the entry count
+	|            after the last), then the record number, latitude and longitude of every entry
+	|            cell by cell.
+	|
+	|  Pre-condition:  The grid is in memory, not read from a file.
+	|
+	|  Post-condition: The file at path holds the grid.
+	|
+	|  Parameters: path - the file to write.
+	|              length - the length of the .bin the record numbers point into.
+	|              fingerprint - its fingerprint(see IndexBin.fingerprintBin()).
+	|
+	|  Returns: true
+	*-------------------------------------------------------------------*/
+	public boolean write(String path, long length, long fingerprint) {
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeLong(length);
+			out.writeLong(fingerprint);
+			out.writeInt(rows);
+			out.writeInt(cols);
+			out.writeDouble(minLat);
+			out.writeDouble(minLon);
+			out.writeDouble(cellLat);
+			out.writeDouble(cellLon);
+			out.writeInt((int) records);
+			int start = 0;
+			for (int cell = 0; cell < counts.length; cell++) {
+				out.writeInt(start);
+				start = start + counts[cell];
+			}
+			out.writeInt(start);
+			for (int cell = 0; cell < counts.length; cell++) {
+				for (int i = 0; i < counts[cell]; i++) {
+					out.writeInt(cells[cell][i]);
+					out.writeDouble(lats[cells[cell][i]]);
+					out.writeDouble(lons[cells[cell][i]]);
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't write the spatial grid " + path + ";\n\t" + "perhaps the file system is full?");
+			System.exit(-1);
+		}
+		return true;
+	}
+
+	//The cells of a changed .bin are kept in memory, only the saved grid is deleted.
+	public boolean stale(String path) {
+		new File(path).delete();
+		return true;
+	}
+
+	/*---------------------------------------------------------------------
+	|  Method read(path)
+	|
+	|  Purpose:  Opens a grid saved by write() and reads the first entry of every cell. The
+	|            entries stay in the file until a query reads their cells, so the file is kept
+	|            open until close().
+	|
+	|  Pre-condition:  None.
+	|
+	|  Post-condition: None.
+	|
+	|  Parameters: path - the saved grid.
+	|
+	|  Returns: the grid, or null when the file is missing or is not a saved grid.
+	*-------------------------------------------------------------------*/
+	public static SpatialGrid read(String path) {
+		if (!new File(path).isFile()) {
+			return null;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(path, "r");
+			if (raf.length() < HEADERSIZE || raf.readInt() != MAGIC) {
+				raf.close();
+				return null;
+			}
+			long length = raf.readLong();
+			long fingerprint = raf.readLong();
+			int rows = raf.readInt();
+			int cols = raf.readInt();
+			SpatialGrid grid = new SpatialGrid(rows, cols, raf.readDouble(), raf.readDouble(), raf.readDouble(), raf.readDouble());
+			grid.records = raf.readInt();
+			if (rows < 1 || cols < 1 || (long) rows * cols > MAXCELLS
+					|| raf.length() != HEADERSIZE + 4L * (rows * cols + 1) + grid.records * ENTRYSIZE) {
+				raf.close();
+				return null;
+			}
+			ByteBuffer starts = ByteBuffer.allocate(4 * (rows * cols + 1));
+			IndexFile.readAt(raf.getChannel(), HEADERSIZE, starts);
+			starts.flip();
+			grid.starts = new int[rows * cols + 1];
+			starts.asIntBuffer().get(grid.starts);
+			grid.file = raf.getChannel();
+			grid.binLength = length;
+			grid.binFingerprint = fingerprint;
+			return grid;
+		} catch (IOException e) {
+			System.out.println("I/O ERROR: Couldn't read the spatial grid " + path + ", it is ignored.");
+			return null;
+		}
+	}
+
+	//Closes the file of a grid that was read from one.
+	public void close() {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				System.out.println("I/O ERROR: Couldn't close the spatial grid.");
+			}
+		}
+	}
+
+	public String toString() {
+		return "Spatial grid: " + rows + " x " + cols + " cells over " + records + " records, " + queries.sum()
+				+ " queries tested " + entriesRead.sum() + " entries.";
+	}
+
+	/*+----------------------------------------------------------------------
+	||
+	||  Class Hits
+	||
+	||        Purpose:  Collects the record numbers one query has found so far with their
+	||                  distances from its point, and holds the buffer its reads from a file share.
+	||
+	++-----------------------------------------------------------------------*/
+	private static class Hits {
+
+		private int[] records = new int[16]; //The record numbers found, size of them used.
+		private double[] distances = new double[16]; //The distance of each from the point, 0 for a box.
+		private int size;
+		private ByteBuffer entries; //The entries of the last row read, grown as rows need.
+
+		//Adds the record when the point is inside the box, and within km of lat, lon unless km is negative.
+		private void test(int record, double pointLat, double pointLon, double south, double north, double west, double east,
+				double lat, double lon, double km) {
+			if (pointLat < south || pointLat > north || pointLon < west || pointLon > east) {
+				return;
+			}
+			double away = 0;
+			if (km >= 0) {
+				away = distance(lat, lon, pointLat, pointLon);
+				if (away > km) {
+					return;
+				}
+			}
+			if (size == records.length) {
+				records = Arrays.copyOf(records, size * 2);
+				distances = Arrays.copyOf(distances, size * 2);
+			}
+			records[size] = record;
+			distances[size] = away;
+			size++;
+		}
+
+		//A cleared buffer for the given number of saved entries.
+		private ByteBuffer buffer(int count) {
+			if (entries == null || entries.capacity() < count * ENTRYSIZE) {
+				entries = ByteBuffer.allocate(Math.max(count * ENTRYSIZE, 1 << 12));
+			}
+			entries.clear();
+			entries.limit(count * ENTRYSIZE);
+			return entries;
+		}
+	}
+}